@@ -0,0 +1,32 @@
+package com.upgrad.quora.api.auth;
+
+import com.upgrad.quora.service.common.AuthenticatedUser;
+import org.springframework.core.MethodParameter;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * Hands the user resolved by the AuthorizationInterceptor to controller method parameters of type AuthenticatedUser.
+ */
+public class AuthenticatedUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return AuthenticatedUser.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        final Object authenticatedUser = webRequest.getAttribute(AuthorizationInterceptor.AUTHENTICATED_USER,
+                RequestAttributes.SCOPE_REQUEST);
+        if (authenticatedUser == null) {
+            throw new IllegalStateException("Method " + parameter.getMethod() + " is not annotated with @"
+                    + RequiresAuthorization.class.getSimpleName());
+        }
+        return authenticatedUser;
+    }
+}
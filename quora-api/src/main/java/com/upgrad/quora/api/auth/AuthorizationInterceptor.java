@@ -0,0 +1,54 @@
+package com.upgrad.quora.api.auth;
+
+import com.upgrad.quora.service.business.AuthorizationBusinessService;
+import com.upgrad.quora.service.common.AuthenticatedUser;
+import com.upgrad.quora.service.datasource.RoutingContext;
+import org.springframework.web.bind.ServletRequestBindingException;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Resolves the "authorization" header of the methods annotated with RequiresAuthorization exactly once per request,
+ * before any business query runs. The resolved user is stored as request attribute and handed to the controller
+ * through the AuthenticatedUserArgumentResolver. Failures are raised as AuthorizationFailedException and mapped
+ * by the RestExceptionHandler like any other controller exception. The user is also bound to the RoutingContext, which
+ * keeps the reads following their own writes on the primary.
+ */
+public class AuthorizationInterceptor extends HandlerInterceptorAdapter {
+
+    public static final String AUTHENTICATED_USER = AuthorizationInterceptor.class.getName() + ".AUTHENTICATED_USER";
+
+    private static final String AUTHORIZATION_HEADER = "authorization";
+
+    private final AuthorizationBusinessService authorizationBusinessService;
+
+    public AuthorizationInterceptor(final AuthorizationBusinessService authorizationBusinessService) {
+        this.authorizationBusinessService = authorizationBusinessService;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws Exception {
+        if (!(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        final RequiresAuthorization requiresAuthorization =
+                ((HandlerMethod) handler).getMethodAnnotation(RequiresAuthorization.class);
+        //Async dispatches of the same request were already authorized
+        if (requiresAuthorization == null || request.getAttribute(AUTHENTICATED_USER) != null) {
+            return true;
+        }
+        final String authorization = request.getHeader(AUTHORIZATION_HEADER);
+        if (authorization == null) {
+            throw new ServletRequestBindingException("Missing request header '" + AUTHORIZATION_HEADER + "'");
+        }
+        final AuthenticatedUser authenticatedUser =
+                authorizationBusinessService.authorize(authorization, requiresAuthorization.signedOutMessage());
+        request.setAttribute(AUTHENTICATED_USER, authenticatedUser);
+        RoutingContext.bindUser(authenticatedUser.getUserId());
+        return true;
+    }
+}
@@ -0,0 +1,22 @@
+package com.upgrad.quora.api.auth;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a controller method whose "authorization" header must carry the access token of a signed-in user.
+ * The token is validated by the AuthorizationInterceptor before the method is invoked.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RequiresAuthorization {
+
+    /**
+     * Error message returned with ATHR-002 when the user of the token has signed out.
+     */
+    String signedOutMessage() default "User is signed out.";
+}
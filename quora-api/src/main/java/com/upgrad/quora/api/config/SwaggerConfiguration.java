@@ -1,6 +1,7 @@
 package com.upgrad.quora.api.config;
 
 
+import com.upgrad.quora.service.common.AuthenticatedUser;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import springfox.documentation.builders.PathSelectors;
@@ -9,6 +10,8 @@ import springfox.documentation.spi.DocumentationType;
 import springfox.documentation.spring.web.plugins.Docket;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * This Configuration integrates Swagger2 into the existing Spring Boot project.
  */
@@ -18,6 +21,6 @@ public class SwaggerConfiguration {
 
     @Bean
     public Docket swagger() {
-        return new Docket(DocumentationType.SWAGGER_2).select().apis(RequestHandlerSelectors.basePackage("com.upgrad.quora.api.controller")).paths(PathSelectors.any()).build();
+        return new Docket(DocumentationType.SWAGGER_2).ignoredParameterTypes(AuthenticatedUser.class).genericModelSubstitutes(CompletableFuture.class).select().apis(RequestHandlerSelectors.basePackage("com.upgrad.quora.api.controller")).paths(PathSelectors.any()).build();
     }
 }
\ No newline at end of file
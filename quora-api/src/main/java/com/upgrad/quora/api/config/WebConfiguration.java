@@ -0,0 +1,42 @@
+package com.upgrad.quora.api.config;
+
+import com.upgrad.quora.api.auth.AuthenticatedUserArgumentResolver;
+import com.upgrad.quora.api.auth.AuthorizationInterceptor;
+import com.upgrad.quora.api.datasource.DataSourceRoutingInterceptor;
+import com.upgrad.quora.api.metrics.ControllerTimingInterceptor;
+import com.upgrad.quora.service.business.AuthorizationBusinessService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * This Configuration registers the authorization interceptor and the resolver of the signed-in user for all the controllers.
+ * Requests are timed from before all of them. The routing context of the data source is opened next, so that the
+ * authorization interceptor can bind the user to it.
+ */
+@Configuration
+public class WebConfiguration implements WebMvcConfigurer {
+
+    @Autowired
+    private AuthorizationBusinessService authorizationBusinessService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ControllerTimingInterceptor(meterRegistry));
+        registry.addInterceptor(new DataSourceRoutingInterceptor());
+        registry.addInterceptor(new AuthorizationInterceptor(authorizationBusinessService));
+    }
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(new AuthenticatedUserArgumentResolver());
+    }
+}
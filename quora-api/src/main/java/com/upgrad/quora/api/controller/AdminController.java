@@ -1,7 +1,9 @@
 package com.upgrad.quora.api.controller;
 
+import com.upgrad.quora.api.auth.RequiresAuthorization;
 import com.upgrad.quora.api.model.UserDeleteResponse;
 import com.upgrad.quora.service.business.AdminBusinessService;
+import com.upgrad.quora.service.common.AuthenticatedUser;
 import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
@@ -21,17 +23,18 @@ public class AdminController {
      * This method accepts the user uuid and the authorization token as Http DELETE method
      * and deletes the user if the authorization token  belongs to user having admin role.
      * @param userId
-     * @param authorization
+     * @param authenticatedUser
      * @return UserDeleteResponse JSON and HttpStatus.Ok
      * @throws AuthorizationFailedException
      * @throws UserNotFoundException
      */
+    @RequiresAuthorization(signedOutMessage = "User is signed out.")
     @RequestMapping(method = RequestMethod.DELETE, path="/admin/user/{userId}", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
     public ResponseEntity<UserDeleteResponse>userDelete(
-            @PathVariable("userId") final String userId, @RequestHeader("authorization") final String authorization)
+            @PathVariable("userId") final String userId, final AuthenticatedUser authenticatedUser)
             throws AuthorizationFailedException, UserNotFoundException{
 
-        UserEntity userEntity = adminBusinessService.userDelete(userId, authorization);
+        UserEntity userEntity = adminBusinessService.userDelete(userId, authenticatedUser);
         UserDeleteResponse userDeleteResponse = new UserDeleteResponse().id(userEntity.getUuid())
                 .status("USER SUCCESSFULLY DELETED");
 
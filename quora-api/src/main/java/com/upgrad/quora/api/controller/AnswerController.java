@@ -1,23 +1,34 @@
 package com.upgrad.quora.api.controller;
 
+import com.upgrad.quora.api.auth.RequiresAuthorization;
+import com.upgrad.quora.api.etag.ConditionalGetSupport;
 import com.upgrad.quora.api.model.*;
 import com.upgrad.quora.service.business.AnswerBusinessService;
 import com.upgrad.quora.service.business.QuestionBusinessService;
+import com.upgrad.quora.service.business.UuidGenerator;
+import com.upgrad.quora.service.cache.CollectionVersions;
+import com.upgrad.quora.service.common.AuthenticatedUser;
+import com.upgrad.quora.service.common.BulkItemResult;
+import com.upgrad.quora.service.common.KeysetPage;
 import com.upgrad.quora.service.entity.AnswerEntity;
-import com.upgrad.quora.service.entity.QuestionEntity;
 import com.upgrad.quora.service.exception.AnswerNotFoundException;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.EditConflictException;
+import com.upgrad.quora.service.exception.InvalidBulkRequestException;
+import com.upgrad.quora.service.exception.InvalidPageRequestException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
+import com.upgrad.quora.service.projection.AnswerSummary;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 
 @RestController
 public class AnswerController {
@@ -28,60 +39,120 @@ public class AnswerController {
     @Autowired
     private QuestionBusinessService questionBusinessService;
 
+    @Autowired
+    private UuidGenerator uuidGenerator;
+
+    @Autowired
+    private CollectionVersions collectionVersions;
+
+    @Autowired
+    private ConditionalGetSupport conditionalGetSupport;
+
+    //Response header carrying the cursor of the next page of a paginated listing
+    private static final String NEXT_CURSOR_HEADER = "next-cursor";
+
     /**
      * This method accepts question uuid, answer request  and authorization token as Http POST method.
      * On successful validation of question and authorization token, answer will saved and appropriate UUID and
      * success message will be returned with Httpstatus as ok
      * @param answerRequest
      * @param questionId
-     * @param authorization
+     * @param authenticatedUser
      * @return answerresponse json and httpstatus.OK
      * @throws AuthorizationFailedException
      * @throws InvalidQuestionException
      */
+    @RequiresAuthorization(signedOutMessage = "User is signed out.Sign in first to post an answer")
     @RequestMapping(method = RequestMethod.POST, path="/question/{questionId}/answer/create",
     consumes = MediaType.APPLICATION_JSON_UTF8_VALUE, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
     public ResponseEntity<AnswerResponse> createAnswer(
             final AnswerRequest answerRequest,
             @PathVariable("questionId") final String questionId,
-            @RequestHeader("authorization") final String authorization)
+            final AuthenticatedUser authenticatedUser)
         throws AuthorizationFailedException, InvalidQuestionException{
 
         final AnswerEntity answerEntity = new AnswerEntity();
-        answerEntity.setUuid(UUID.randomUUID().toString());
+        answerEntity.setUuid(uuidGenerator.generate());
         answerEntity.setAnswer(answerRequest.getAnswer());
         answerEntity.setDate(ZonedDateTime.now());
-        final AnswerEntity createdAnswer = answerBusinessService.createAnswer(questionId, answerEntity, authorization);
+        final AnswerEntity createdAnswer = answerBusinessService.createAnswer(questionId, answerEntity, authenticatedUser);
         AnswerResponse answerResponse = new AnswerResponse()
                 .id(createdAnswer.getUuid())
                 .status("ANSWER CREATED");
         return new ResponseEntity<AnswerResponse>(answerResponse, HttpStatus.OK);
     }
 
+    /**
+     * This method accepts a list of answers with their question uuids and authorization token as Http POST method.
+     * The answers are saved in one transaction, answers to unknown questions fail one by one and the result of
+     * each is returned in request order.
+     * @param answerBulkCreateRequest
+     * @param authenticatedUser
+     * @return AnswerBulkCreateResponse json and httpstatus.OK
+     * @throws AuthorizationFailedException
+     * @throws InvalidBulkRequestException if there are no answers or too many
+     */
+    @RequiresAuthorization(signedOutMessage = "User is signed out.Sign in first to post an answer")
+    @RequestMapping(method = RequestMethod.POST, path="/answer/bulk-create",
+    consumes = MediaType.APPLICATION_JSON_UTF8_VALUE, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<AnswerBulkCreateResponse> createAnswers(
+            @RequestBody final AnswerBulkCreateRequest answerBulkCreateRequest,
+            final AuthenticatedUser authenticatedUser)
+        throws AuthorizationFailedException, InvalidBulkRequestException{
+
+        final List<AnswerEntity> answerEntities = new ArrayList<>();
+        final List<String> questionUuids = new ArrayList<>();
+        if(answerBulkCreateRequest.getAnswers() != null){
+            final ZonedDateTime now = ZonedDateTime.now();
+            for (AnswerBulkCreateItem item : answerBulkCreateRequest.getAnswers()) {
+                final AnswerEntity answerEntity = new AnswerEntity();
+                answerEntity.setUuid(uuidGenerator.generate());
+                answerEntity.setAnswer(item.getAnswer());
+                answerEntity.setDate(now);
+                answerEntities.add(answerEntity);
+                questionUuids.add(item.getQuestionId());
+            }
+        }
+
+        final AnswerBulkCreateResponse answerBulkCreateResponse = new AnswerBulkCreateResponse()
+                .results(new ArrayList<>());
+        for (BulkItemResult result : answerBusinessService.createAnswers(answerEntities, questionUuids, authenticatedUser)) {
+            answerBulkCreateResponse.addResultsItem(new AnswerBulkCreateResult().index(result.getIndex())
+                    .id(result.getUuid()).status(result.isCreated() ? "ANSWER CREATED" : "FAILED")
+                    .code(result.getCode()).message(result.getErrorMessage()));
+        }
+        return new ResponseEntity<AnswerBulkCreateResponse>(answerBulkCreateResponse, HttpStatus.OK);
+    }
+
     /**
      * Method accepts the answer UUID, answer content and authorization token as Http PUT method.
-     * If UUID and authorization token belongs to answer owner then update the answer
+     * If UUID and authorization token belongs to answer owner then update the answer, provided the answer is
+     * still at the version of the request when it carries one
      * @param answerEditRequest
      * @param answerId
-     * @param authorization
-     * @return AnswerEditResponse JSON and HttpStatus.OK
+     * @param authenticatedUser
+     * @return AnswerEditResponse JSON with the new version and HttpStatus.OK
      * @throws AuthorizationFailedException
      * @throws AnswerNotFoundException
+     * @throws EditConflictException if the answer has been edited since the version of the request
      */
+    @RequiresAuthorization(signedOutMessage = "User is signed out.Sign in first to edit an answer")
     @RequestMapping(method=RequestMethod.PUT, path="/answer/edit/{answerId}",
             consumes = MediaType.APPLICATION_JSON_UTF8_VALUE, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
     public ResponseEntity<AnswerEditResponse> editAnswerContent(
             final AnswerEditRequest answerEditRequest,
             @PathVariable("answerId") final String answerId,
-            @RequestHeader("authorization") final String authorization)
-        throws AuthorizationFailedException, AnswerNotFoundException{
+            final AuthenticatedUser authenticatedUser)
+        throws AuthorizationFailedException, AnswerNotFoundException, EditConflictException{
 
         AnswerEntity answerEntity = new AnswerEntity();
         answerEntity.setAnswer(answerEditRequest.getContent());
-        final AnswerEntity updatedAnswer = answerBusinessService.editAnswerContent(answerId, answerEntity, authorization);
+        answerEntity.setVersion(answerEditRequest.getVersion());
+        final AnswerEntity updatedAnswer = answerBusinessService.editAnswerContent(answerId, answerEntity, authenticatedUser);
         AnswerEditResponse answerEditResponse = new AnswerEditResponse()
                 .id(updatedAnswer.getUuid())
-                .status("ANSWER EDITED");
+                .status("ANSWER EDITED")
+                .version(updatedAnswer.getVersion());
         return new ResponseEntity<AnswerEditResponse>(answerEditResponse, HttpStatus.OK);
     }
 
@@ -89,17 +160,18 @@ public class AnswerController {
      * Method accepts the answer uuid and authorization token as Http DELETE method and
      * delete the answer if validation is successful
      * @param answerId
-     * @param authorization
+     * @param authenticatedUser
      * @return AnswerDeleteResponse JSON and HttpStatus.OK
      * @throws AuthorizationFailedException
      * @throws AnswerNotFoundException
      */
+    @RequiresAuthorization(signedOutMessage = "User is signed out.Sign in first to delete an answer")
     @RequestMapping(method = RequestMethod.DELETE, path="/answer/delete/{answerId}",
             produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
     public ResponseEntity<AnswerDeleteResponse> deleteAnswer(
-            @PathVariable("answerId") final String answerId, @RequestHeader("authorization") final String authorization)
+            @PathVariable("answerId") final String answerId, final AuthenticatedUser authenticatedUser)
         throws AuthorizationFailedException, AnswerNotFoundException{
-            final AnswerEntity deletedAnswerEntity = answerBusinessService.deleteAnswer(answerId, authorization);
+            final AnswerEntity deletedAnswerEntity = answerBusinessService.deleteAnswer(answerId, authenticatedUser);
             AnswerDeleteResponse answerDeleteResponse = new AnswerDeleteResponse()
                     .id(deletedAnswerEntity.getUuid())
                     .status("ANSWER DELETED");
@@ -107,35 +179,50 @@ public class AnswerController {
     }
 
     /**
-     * This method returns the list of answers for the given question Id as Http GET method
-     * if question Id and authorization token is valid
+     * This method returns one page of the answers for the given question Id, in the order they were posted, as
+     * Http GET method if question Id and authorization token is valid. The cursor of the next page is returned in
+     * the "next-cursor" header, which is absent on the last page. If the answers have not changed since the ETag
+     * sent in If-None-Match, 304 is returned without reading them.
      * @param questionId
-     * @param authorization
+     * @param cursor next-cursor of the previous page, omitted for the first page
+     * @param limit page size, capped at the configured maximum
+     * @param webRequest
      * @return List of AnswerDetailsResponse JSON and HttpStatus.OK
      * @throws AuthorizationFailedException
      * @throws InvalidQuestionException
+     * @throws InvalidPageRequestException
      */
+    @RequiresAuthorization(signedOutMessage = "User is signed out.Sign in first to get the answers")
     @RequestMapping(method = RequestMethod.GET, path="answer/all/{questionId}",
             produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
     public ResponseEntity<List<AnswerDetailsResponse>>  getAllAnswersToQuestion(
             @PathVariable("questionId") final String questionId,
-            @RequestHeader("authorization") final String authorization)
-        throws AuthorizationFailedException, InvalidQuestionException{
+            @RequestParam(value = "cursor", required = false) final String cursor,
+            @RequestParam(value = "limit", required = false) final Integer limit,
+            final WebRequest webRequest)
+        throws AuthorizationFailedException, InvalidQuestionException, InvalidPageRequestException{
 
-         List<AnswerEntity> answerEntityList = answerBusinessService.getAllAnswersToQuestion(questionId, authorization);
+         final String etag = collectionVersions.answersTag(questionId);
+         if(conditionalGetSupport.isNotModified(webRequest, "/answer/all/{questionId}", etag)){
+             return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+         }
+         KeysetPage<AnswerSummary> answerPage = answerBusinessService.getAllAnswersToQuestion(questionId, cursor, limit);
 
          List<AnswerDetailsResponse> answerDetailsResponseList = new ArrayList<>();
-         QuestionEntity questionEntity = answerBusinessService.getQuestionByUuid(questionId);
-         if(answerEntityList != null){
-             for (AnswerEntity answer : answerEntityList ) {
-                 AnswerDetailsResponse answerDetailsResponse = new AnswerDetailsResponse()
-                         .id(answer.getUuid())
-                         .questionContent(questionEntity.getContent())
-                         .answerContent(answer.getAnswer());
-                 answerDetailsResponseList.add(answerDetailsResponse);
-             }
+         for (AnswerSummary answer : answerPage.getItems()) {
+             AnswerDetailsResponse answerDetailsResponse = new AnswerDetailsResponse()
+                     .id(answer.getUuid())
+                     .questionContent(answer.getQuestionContent())
+                     .answerContent(answer.getAnswer())
+                     .version(answer.getVersion());
+             answerDetailsResponseList.add(answerDetailsResponse);
+         }
+         HttpHeaders httpHeaders = new HttpHeaders();
+         httpHeaders.setETag(etag);
+         if(answerPage.getNextCursor() != null){
+             httpHeaders.add(NEXT_CURSOR_HEADER, answerPage.getNextCursor());
          }
-         return new ResponseEntity<List<AnswerDetailsResponse>>(answerDetailsResponseList, HttpStatus.OK);
+         return new ResponseEntity<List<AnswerDetailsResponse>>(answerDetailsResponseList, httpHeaders, HttpStatus.OK);
     }
 
 }
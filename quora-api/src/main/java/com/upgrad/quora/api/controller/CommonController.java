@@ -1,7 +1,9 @@
 package com.upgrad.quora.api.controller;
 
+import com.upgrad.quora.api.auth.RequiresAuthorization;
 import com.upgrad.quora.api.model.UserDetailsResponse;
 import com.upgrad.quora.service.business.CommonBusinessService;
+import com.upgrad.quora.service.common.AuthenticatedUser;
 import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
@@ -20,16 +22,17 @@ public class CommonController {
     /**
      *This method accepts the User UUID and authorization token as Http GET method and returns the user details
      * @param userId
-     * @param authorization
+     * @param authenticatedUser
      * @return UserDetailsResponse JSON and HttpStatus.OK
      * @throws AuthorizationFailedException
      * @throws UserNotFoundException
      */
+    @RequiresAuthorization(signedOutMessage = "User is signed out.Sign in first to get user details")
     @RequestMapping(method = RequestMethod.GET, path="/userprofile/{userId}", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
     public ResponseEntity<UserDetailsResponse>userProfile(@PathVariable("userId") final String userId,
-                                                      @RequestHeader("authorization") final String authorization) throws AuthorizationFailedException, UserNotFoundException {
+                                                      final AuthenticatedUser authenticatedUser) throws AuthorizationFailedException, UserNotFoundException {
 
-        final UserEntity userEntity = commonBusinessService.getUserByUserId(userId, authorization);
+        final UserEntity userEntity = commonBusinessService.getUserByUserId(userId);
         UserDetailsResponse userDetailsResponse = new UserDetailsResponse()
                 .firstName(userEntity.getFirstName())
                 .lastName(userEntity.getLastName())
@@ -1,21 +1,38 @@
 package com.upgrad.quora.api.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upgrad.quora.api.auth.RequiresAuthorization;
+import com.upgrad.quora.api.etag.ConditionalGetSupport;
+import com.upgrad.quora.api.export.ExportAsyncSupport;
+import com.upgrad.quora.api.export.QuestionExportWriter;
 import com.upgrad.quora.api.model.*;
 import com.upgrad.quora.service.business.QuestionBusinessService;
+import com.upgrad.quora.service.business.UuidGenerator;
+import com.upgrad.quora.service.cache.CollectionVersions;
+import com.upgrad.quora.service.common.AuthenticatedUser;
+import com.upgrad.quora.service.common.BulkItemResult;
+import com.upgrad.quora.service.common.KeysetPage;
 import com.upgrad.quora.service.entity.QuestionEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.EditConflictException;
+import com.upgrad.quora.service.exception.InvalidBulkRequestException;
+import com.upgrad.quora.service.exception.InvalidPageRequestException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
+import com.upgrad.quora.service.projection.QuestionSummary;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 
 @RestController
 public class QuestionController {
@@ -23,26 +40,47 @@ public class QuestionController {
     @Autowired
     private QuestionBusinessService questionBusinessService;
 
+    @Autowired
+    private UuidGenerator uuidGenerator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CollectionVersions collectionVersions;
+
+    @Autowired
+    private ConditionalGetSupport conditionalGetSupport;
+
+    @Autowired
+    private ExportAsyncSupport exportAsyncSupport;
+
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson;charset=UTF-8");
+
+    //Response header carrying the cursor of the next page of a paginated listing
+    private static final String NEXT_CURSOR_HEADER = "next-cursor";
+
     /**
      * This method accepts QuestionRequest and authorization token in the form of POST method and create the question
      * in the DB, if authorization is successful.
      * @param questionRequest
-     * @param authorization
+     * @param authenticatedUser
      * @return QuestionResponse json
      * @throws AuthorizationFailedException
      */
+    @RequiresAuthorization(signedOutMessage = "User is signed out.Sign in first to post a question")
     @RequestMapping(method = RequestMethod.POST, path="/question/create", consumes = MediaType.APPLICATION_JSON_UTF8_VALUE,
     produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
     public ResponseEntity<QuestionResponse> createQuestion(
-            final QuestionRequest questionRequest, @RequestHeader("authorization") final String authorization)
+            final QuestionRequest questionRequest, final AuthenticatedUser authenticatedUser)
             throws AuthorizationFailedException{
 
         final QuestionEntity questionEntity = new QuestionEntity();
-        questionEntity.setUuid(UUID.randomUUID().toString());
+        questionEntity.setUuid(uuidGenerator.generate());
         questionEntity.setContent(questionRequest.getContent());
         questionEntity.setDate(ZonedDateTime.now());
 
-        QuestionEntity createdQuestion = questionBusinessService.createQuestion(questionEntity, authorization);
+        QuestionEntity createdQuestion = questionBusinessService.createQuestion(questionEntity, authenticatedUser);
         QuestionResponse questionResponse = new QuestionResponse().id(createdQuestion.getUuid())
                 .status("QUESTION CREATED");
 
@@ -51,51 +89,123 @@ public class QuestionController {
 
 
     /**
-     * Method accepts the authorization token as Http GET method and returns the list of all questions
-     * @param authorization
-     * @return list of questiondetailresponse
+     * This method accepts a list of questions and authorization token in the form of POST method and creates the
+     * questions in the DB in one transaction, if authorization is successful. Questions fail one by one, the
+     * result of each is returned in request order.
+     * @param questionBulkCreateRequest
+     * @param authenticatedUser
+     * @return QuestionBulkCreateResponse json
      * @throws AuthorizationFailedException
+     * @throws InvalidBulkRequestException if there are no questions or too many
      */
-    @RequestMapping(method = RequestMethod.GET, path = "/question/all", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<List<QuestionDetailsResponse>> getAllQuestions
-            (@RequestHeader("authorization") final String authorization) throws AuthorizationFailedException{
-        List<QuestionEntity> allQuestions = questionBusinessService.getAllQuestions(authorization);
+    @RequiresAuthorization(signedOutMessage = "User is signed out.Sign in first to post a question")
+    @RequestMapping(method = RequestMethod.POST, path="/question/bulk-create", consumes = MediaType.APPLICATION_JSON_UTF8_VALUE,
+    produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<QuestionBulkCreateResponse> createQuestions(
+            @RequestBody final QuestionBulkCreateRequest questionBulkCreateRequest,
+            final AuthenticatedUser authenticatedUser)
+            throws AuthorizationFailedException, InvalidBulkRequestException{
 
-        List<QuestionDetailsResponse> questionDetailsResponseArrayList = new ArrayList<>();
-        if(allQuestions != null){
-            for (QuestionEntity questionEntity :allQuestions ) {
-                QuestionDetailsResponse questionDetailsResponse = new QuestionDetailsResponse().id(questionEntity.getUuid())
-                        .content(questionEntity.getContent());
-                questionDetailsResponseArrayList.add(questionDetailsResponse);
+        final List<QuestionEntity> questionEntities = new ArrayList<>();
+        if(questionBulkCreateRequest.getQuestions() != null){
+            final ZonedDateTime now = ZonedDateTime.now();
+            for (QuestionRequest questionRequest : questionBulkCreateRequest.getQuestions()) {
+                final QuestionEntity questionEntity = new QuestionEntity();
+                questionEntity.setUuid(uuidGenerator.generate());
+                questionEntity.setContent(questionRequest.getContent());
+                questionEntity.setDate(now);
+                questionEntities.add(questionEntity);
             }
         }
-        return new ResponseEntity<List<QuestionDetailsResponse>>(questionDetailsResponseArrayList, HttpStatus.OK);
+
+        final QuestionBulkCreateResponse questionBulkCreateResponse = new QuestionBulkCreateResponse()
+                .results(new ArrayList<>());
+        for (BulkItemResult result : questionBusinessService.createQuestions(questionEntities, authenticatedUser)) {
+            questionBulkCreateResponse.addResultsItem(new QuestionBulkCreateResult().index(result.getIndex())
+                    .id(result.getUuid()).status(result.isCreated() ? "QUESTION CREATED" : "FAILED")
+                    .code(result.getCode()).message(result.getErrorMessage()));
+        }
+        return new ResponseEntity<QuestionBulkCreateResponse>(questionBulkCreateResponse, HttpStatus.OK);
+    }
+
+    /**
+     * Method accepts the authorization token as Http GET method and returns one page of the questions, newest first.
+     * The cursor of the next page is returned in the "next-cursor" header, which is absent on the last page.
+     * If the feed has not changed since the ETag sent in If-None-Match, 304 is returned without reading it.
+     * @param cursor next-cursor of the previous page, omitted for the first page
+     * @param limit page size, capped at the configured maximum
+     * @param webRequest
+     * @return list of questiondetailresponse
+     * @throws AuthorizationFailedException
+     * @throws InvalidPageRequestException
+     */
+    @RequiresAuthorization(signedOutMessage = "User is signed out.Sign in first to get all questions")
+    @RequestMapping(method = RequestMethod.GET, path = "/question/all", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<List<QuestionDetailsResponse>> getAllQuestions(
+            @RequestParam(value = "cursor", required = false) final String cursor,
+            @RequestParam(value = "limit", required = false) final Integer limit,
+            final WebRequest webRequest)
+            throws AuthorizationFailedException, InvalidPageRequestException{
+        //Taken before the read, a change committed meanwhile bumps the version past the tag
+        final String etag = collectionVersions.feedTag();
+        if(conditionalGetSupport.isNotModified(webRequest, "/question/all", etag)){
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        KeysetPage<QuestionSummary> allQuestions = questionBusinessService.getAllQuestions(cursor, limit);
+        return toPageResponse(allQuestions, etag);
+    }
+
+    /**
+     * Method accepts the authorization token as Http GET method and streams all the questions in id order, as one
+     * JSON array or, with format=ndjson, as newline-delimited JSON. Meant for bulk pulls: the rows are written as
+     * they are read from the DB, so memory use does not depend on the number of questions. The response is
+     * written by the threads of the export, within its timeout.
+     * @param format json (default) or ndjson
+     * @param request
+     * @return streamed questions
+     * @throws AuthorizationFailedException
+     */
+    @RequiresAuthorization(signedOutMessage = "User is signed out.Sign in first to export the questions")
+    @RequestMapping(method = RequestMethod.GET, path = "/question/export")
+    public ResponseEntity<StreamingResponseBody> exportQuestions(
+            @RequestParam(value = "format", required = false, defaultValue = "json") final String format,
+            final HttpServletRequest request)
+            throws AuthorizationFailedException{
+        final boolean ndjson = "ndjson".equalsIgnoreCase(format);
+        exportAsyncSupport.applyTo(request);
+        return ResponseEntity.ok().contentType(ndjson ? APPLICATION_NDJSON : MediaType.APPLICATION_JSON_UTF8)
+                .body(new QuestionExportWriter(objectMapper.getFactory(), questionBusinessService, ndjson));
     }
 
     /**
      * Method accepts the authorization token, content and question uuid as Http PUT method
      * Updates the content of the question, if the authorization token is valid and question id exists.
+     * If the request carries the version the edit was made against, it is only applied if the question is still
+     * at that version; the response holds the new version.
      * @param questionEditRequest
      * @param uuid
-     * @param authorization
+     * @param authenticatedUser
      * @return
      * @throws AuthorizationFailedException
      * @throws InvalidQuestionException
+     * @throws EditConflictException if the question has been edited since the version of the request
      */
+    @RequiresAuthorization(signedOutMessage = "User is signed out.Sign in first to edit the question")
     @RequestMapping(method = RequestMethod.PUT, path="/question/edit/{questionId}", consumes = MediaType.APPLICATION_JSON_UTF8_VALUE,
     produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
     public ResponseEntity<QuestionEditResponse> editQuestionContent(
             final QuestionEditRequest questionEditRequest,
             @PathVariable("questionId") String uuid,
-            @RequestHeader("authorization") final String authorization)
-        throws AuthorizationFailedException, InvalidQuestionException{
+            final AuthenticatedUser authenticatedUser)
+        throws AuthorizationFailedException, InvalidQuestionException, EditConflictException{
 
         final QuestionEntity questionEntity = new QuestionEntity();
         questionEntity.setUuid(uuid);
         questionEntity.setContent(questionEditRequest.getContent());
-        QuestionEntity updatedQuestion = questionBusinessService.editQuestionContent(questionEntity, authorization);
+        questionEntity.setVersion(questionEditRequest.getVersion());
+        QuestionEntity updatedQuestion = questionBusinessService.editQuestionContent(questionEntity, authenticatedUser);
         QuestionEditResponse questionEditResponse = new QuestionEditResponse().id(updatedQuestion.getUuid())
-                .status("QUESTION EDITED");
+                .status("QUESTION EDITED").version(updatedQuestion.getVersion());
         return new ResponseEntity<QuestionEditResponse>(questionEditResponse, HttpStatus.OK);
     }
 
@@ -104,48 +214,67 @@ public class QuestionController {
      * Method accepts authorization token and the question uuid as Http DELETE method
      * Deletes the question from the DB, if authorization token is valid and question exists in the DB
      * @param uuid
-     * @param authorization
+     * @param authenticatedUser
      * @return
      * @throws AuthorizationFailedException
      * @throws InvalidQuestionException
      */
+    @RequiresAuthorization(signedOutMessage = "User is signed out.Sign in first to delete a question")
     @RequestMapping(method=RequestMethod.DELETE, path= "/question/delete/{questionId}",
             produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
     public ResponseEntity<QuestionDeleteResponse> deleteQuestion(
             @PathVariable("questionId") String uuid,
-            @RequestHeader("authorization") final String authorization)
+            final AuthenticatedUser authenticatedUser)
         throws AuthorizationFailedException, InvalidQuestionException{
 
-        final QuestionEntity deletedQuestion = questionBusinessService.deleteQuestion(uuid, authorization);
+        final QuestionEntity deletedQuestion = questionBusinessService.deleteQuestion(uuid, authenticatedUser);
         QuestionDeleteResponse questionDeleteResponse = new QuestionDeleteResponse().id(deletedQuestion.getUuid())
                 .status("QUESTION DELETED");
         return new ResponseEntity<QuestionDeleteResponse>(questionDeleteResponse, HttpStatus.OK);
     }
 
     /**
-     * Method accepts the user id and authorization token as Http GET method and returns all the questions of the user,
-     * if user and authorization token are valid
+     * Method accepts the user id and authorization token as Http GET method and returns one page of the questions of
+     * the user, newest first, if user and authorization token are valid.
+     * The cursor of the next page is returned in the "next-cursor" header, which is absent on the last page.
      * @param userId
-     * @param authorization
+     * @param cursor next-cursor of the previous page, omitted for the first page
+     * @param limit page size, capped at the configured maximum
      * @return List of QuestionDetailResponse
      * @throws AuthorizationFailedException
      * @throws UserNotFoundException
+     * @throws InvalidPageRequestException
      */
+    @RequiresAuthorization(signedOutMessage = "User is signed out.Sign in first to get all questions posted by a specific user")
     @RequestMapping(method = RequestMethod.GET, path="question/all/{userId}", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<List<QuestionDetailsResponse>>getAllQuestionsByUser(
-            @PathVariable("userId") final String userId, @RequestHeader("authorization") final String authorization)
-        throws AuthorizationFailedException, UserNotFoundException{
-        List<QuestionEntity> allUserQuestions = questionBusinessService.getAllQuestionsByUser(userId, authorization);
+    public ResponseEntity<List<QuestionDetailsResponse>>getAllQuestionsByUser(@PathVariable("userId") final String userId,
+            @RequestParam(value = "cursor", required = false) final String cursor,
+            @RequestParam(value = "limit", required = false) final Integer limit,
+            final WebRequest webRequest)
+        throws AuthorizationFailedException, UserNotFoundException, InvalidPageRequestException{
+        final String etag = collectionVersions.userQuestionsTag();
+        if(conditionalGetSupport.isNotModified(webRequest, "/question/all/{userId}", etag)){
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        KeysetPage<QuestionSummary> allUserQuestions = questionBusinessService.getAllQuestionsByUser(userId, cursor, limit);
+        return toPageResponse(allUserQuestions, etag);
+    }
 
+    private ResponseEntity<List<QuestionDetailsResponse>> toPageResponse(final KeysetPage<QuestionSummary> page,
+                                                                         final String etag){
         List<QuestionDetailsResponse> questionDetailsResponseArrayList = new ArrayList<>();
-        if(allUserQuestions != null){
-            for (QuestionEntity questionEntity :allUserQuestions ) {
-                QuestionDetailsResponse questionDetailsResponse = new QuestionDetailsResponse().id(questionEntity.getUuid())
-                        .content(questionEntity.getContent());
-                questionDetailsResponseArrayList.add(questionDetailsResponse);
-            }
+        for (QuestionSummary question : page.getItems()) {
+            QuestionDetailsResponse questionDetailsResponse = new QuestionDetailsResponse().id(question.getUuid())
+                    .content(question.getContent()).answerCount(question.getAnswerCount())
+                    .version(question.getVersion());
+            questionDetailsResponseArrayList.add(questionDetailsResponse);
+        }
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.setETag(etag);
+        if(page.getNextCursor() != null){
+            httpHeaders.add(NEXT_CURSOR_HEADER, page.getNextCursor());
         }
-        return new ResponseEntity<List<QuestionDetailsResponse>>(questionDetailsResponseArrayList, HttpStatus.OK);
+        return new ResponseEntity<List<QuestionDetailsResponse>>(questionDetailsResponseArrayList, httpHeaders, HttpStatus.OK);
     }
 
 
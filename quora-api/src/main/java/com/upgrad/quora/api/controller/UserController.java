@@ -6,9 +6,11 @@ import com.upgrad.quora.api.model.SignoutResponse;
 import com.upgrad.quora.api.model.SignupUserRequest;
 import com.upgrad.quora.api.model.SignupUserResponse;
 import com.upgrad.quora.service.business.UserBusinessService;
+import com.upgrad.quora.service.business.UuidGenerator;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthenticationFailedException;
+import com.upgrad.quora.service.exception.ServiceBusyException;
 import com.upgrad.quora.service.exception.SignOutRestrictedException;
 import com.upgrad.quora.service.exception.SignUpRestrictedException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,7 +24,7 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.Base64;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/")
@@ -31,19 +33,24 @@ public class UserController {
     @Autowired
     private UserBusinessService userBusinessService;
 
+    @Autowired
+    private UuidGenerator uuidGenerator;
+
 
     /**
-     * This method is used for registering a user. The information is passed as Http POST method
+     * This method is used for registering a user. The information is passed as Http POST method.
+     * The response is completed asynchronously once the password has been hashed.
      * @param signupUserRequest
      * @return SignupUserResponse JSON and HttpStatus.OK
      * @throws SignUpRestrictedException
+     * @throws ServiceBusyException
      */
     @RequestMapping(method = RequestMethod.POST, path="/user/signup", consumes = MediaType.APPLICATION_JSON_UTF8_VALUE, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<SignupUserResponse> signup(
-            final SignupUserRequest signupUserRequest) throws SignUpRestrictedException {
+    public CompletableFuture<ResponseEntity<SignupUserResponse>> signup(
+            final SignupUserRequest signupUserRequest) throws SignUpRestrictedException, ServiceBusyException {
 
         final UserEntity userEntity = new UserEntity();
-        userEntity.setUuid(UUID.randomUUID().toString());
+        userEntity.setUuid(uuidGenerator.generate());
         userEntity.setFirstName(signupUserRequest.getFirstName());
         userEntity.setLastName(signupUserRequest.getLastName());
         userEntity.setUserName(signupUserRequest.getUserName());
@@ -55,40 +62,44 @@ public class UserController {
         userEntity.setRole("nonadmin");
         userEntity.setContactNumber(signupUserRequest.getContactNumber());
 
-        final UserEntity createdUserEntity = userBusinessService.signup(userEntity);
-        SignupUserResponse signupUserResponse = new SignupUserResponse().id(createdUserEntity.getUuid())
-                .status("USER SUCCESSFULLY REGISTERED");
+        return userBusinessService.signup(userEntity).thenApply(createdUserEntity -> {
+            SignupUserResponse signupUserResponse = new SignupUserResponse().id(createdUserEntity.getUuid())
+                    .status("USER SUCCESSFULLY REGISTERED");
 
-        return new ResponseEntity<SignupUserResponse>(signupUserResponse, HttpStatus.OK);
+            return new ResponseEntity<SignupUserResponse>(signupUserResponse, HttpStatus.OK);
+        });
     }
 
 
     /**
      * This method accepts username and password as "Basic [<username:password> encoded as base64 ]" as Http POST method
-     * return access-token on successful validation otherwise throws Authenticationfailed exception
+     * return access-token on successful validation otherwise throws Authenticationfailed exception.
+     * The response is completed asynchronously once the password has been verified.
      * @param authentication
      * @return SigninResponse and  HttpStatus.OK
      * @throws AuthenticationFailedException
+     * @throws ServiceBusyException
      */
     @RequestMapping(method=RequestMethod.POST, path="/user/signin", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<SigninResponse> signin(@RequestHeader("authorization") final String authentication)
-            throws AuthenticationFailedException {
+    public CompletableFuture<ResponseEntity<SigninResponse>> signin(@RequestHeader("authorization") final String authentication)
+            throws AuthenticationFailedException, ServiceBusyException {
         byte[] decode = Base64.getDecoder().decode(authentication.split("Basic ")[1]);
         String decodedText = new String(decode);
         String[] decodedArray = decodedText.split(":");
 
-        UserAuthEntity userAuthEntity = userBusinessService.authenticate(decodedArray[0], decodedArray[1]);
-        UserEntity user = userAuthEntity.getUser();
+        return userBusinessService.authenticate(decodedArray[0], decodedArray[1]).thenApply(userAuthEntity -> {
+            UserEntity user = userAuthEntity.getUser();
 
-        SigninResponse signinResponse = new SigninResponse();
-        signinResponse.setId(user.getUuid());
-        signinResponse.setMessage("SIGNED IN SUCCESSFULLY");
+            SigninResponse signinResponse = new SigninResponse();
+            signinResponse.setId(user.getUuid());
+            signinResponse.setMessage("SIGNED IN SUCCESSFULLY");
 
 
-        HttpHeaders httpHeaders = new HttpHeaders();
-        httpHeaders.add("access-token", userAuthEntity.getAccessToken());
+            HttpHeaders httpHeaders = new HttpHeaders();
+            httpHeaders.add("access-token", userAuthEntity.getAccessToken());
 
-        return  new ResponseEntity<SigninResponse>(signinResponse, httpHeaders, HttpStatus.OK);
+            return  new ResponseEntity<SigninResponse>(signinResponse, httpHeaders, HttpStatus.OK);
+        });
     }
 
     /**
@@ -0,0 +1,93 @@
+package com.upgrad.quora.api.datasource;
+
+import com.upgrad.quora.service.datasource.ConnectionPoolMonitor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Actuator endpoint "pools", GET /actuator/pools: the state of every connection pool in one response, read from
+ * the hikaricp.connections* meters, and the connection acquire times per controller method, read from the
+ * quora.datasource.acquire timers, the endpoints waiting longest in total first. Times are in milliseconds; the
+ * percentiles are those configured under management.metrics.distribution.percentiles.
+ */
+@Component
+@Endpoint(id = "pools")
+public class ConnectionPoolEndpoint {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ConnectionPoolMonitor connectionPoolMonitor;
+
+    @ReadOperation
+    public Map<String, Object> pools() {
+        final Map<String, Object> pools = new TreeMap<>();
+        for (final Gauge active : meterRegistry.find("hikaricp.connections.active").gauges()) {
+            final String pool = active.getId().getTag("pool");
+            final Map<String, Object> state = new LinkedHashMap<>();
+            state.put("saturated", connectionPoolMonitor.isSaturated(pool));
+            state.put("active", (long) active.value());
+            state.put("idle", gauge("hikaricp.connections.idle", pool));
+            state.put("pending", gauge("hikaricp.connections.pending", pool));
+            state.put("total", gauge("hikaricp.connections", pool));
+            state.put("max", gauge("hikaricp.connections.max", pool));
+            final Counter timeouts = meterRegistry.find("hikaricp.connections.timeout").tag("pool", pool).counter();
+            state.put("timeouts", timeouts == null ? 0L : (long) timeouts.count());
+            state.put("acquire", times(meterRegistry.find("hikaricp.connections.acquire").tag("pool", pool).timer()));
+            state.put("usage", times(meterRegistry.find("hikaricp.connections.usage").tag("pool", pool).timer()));
+            pools.put(pool, state);
+        }
+        final List<Timer> acquireTimers = new ArrayList<>(meterRegistry.find("quora.datasource.acquire").timers());
+        acquireTimers.sort(Comparator.comparingDouble((Timer timer) -> timer.totalTime(TimeUnit.MILLISECONDS))
+                .reversed());
+        final List<Map<String, Object>> acquireByHandler = new ArrayList<>();
+        for (final Timer timer : acquireTimers) {
+            final Map<String, Object> handler = new LinkedHashMap<>();
+            handler.put("handler", timer.getId().getTag("handler"));
+            handler.put("pool", timer.getId().getTag("pool"));
+            handler.put("outcome", timer.getId().getTag("outcome"));
+            handler.put("totalMs", timer.totalTime(TimeUnit.MILLISECONDS));
+            handler.putAll(times(timer));
+            acquireByHandler.add(handler);
+        }
+        final Map<String, Object> response = new LinkedHashMap<>();
+        response.put("pools", pools);
+        response.put("acquireByHandler", acquireByHandler);
+        return response;
+    }
+
+    private long gauge(final String name, final String pool) {
+        final Gauge gauge = meterRegistry.find(name).tag("pool", pool).gauge();
+        return gauge == null ? 0L : (long) gauge.value();
+    }
+
+    private static Map<String, Object> times(final Timer timer) {
+        final Map<String, Object> times = new LinkedHashMap<>();
+        if (timer == null) {
+            return times;
+        }
+        times.put("count", timer.count());
+        times.put("meanMs", timer.mean(TimeUnit.MILLISECONDS));
+        times.put("maxMs", timer.max(TimeUnit.MILLISECONDS));
+        for (final ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+            times.put("p" + Math.round(percentile.percentile() * 100) + "Ms", percentile.value(TimeUnit.MILLISECONDS));
+        }
+        return times;
+    }
+}
@@ -0,0 +1,38 @@
+package com.upgrad.quora.api.datasource;
+
+import com.upgrad.quora.service.datasource.RoutingContext;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.Set;
+
+/**
+ * Reports the connection pools which served the request, "primary" and/or "replica", in the "datasource" header
+ * of the response bodies, error responses included. Requests answered without the DB get no header.
+ */
+@ControllerAdvice
+public class DataSourceHeaderAdvice implements ResponseBodyAdvice<Object> {
+
+    public static final String DATASOURCE_HEADER = "datasource";
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        final Set<String> servedBy = RoutingContext.servedBy();
+        if (!servedBy.isEmpty()) {
+            response.getHeaders().set(DATASOURCE_HEADER, String.join(",", servedBy));
+        }
+        return body;
+    }
+}
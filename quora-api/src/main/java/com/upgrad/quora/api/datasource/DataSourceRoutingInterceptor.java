@@ -0,0 +1,48 @@
+package com.upgrad.quora.api.datasource;
+
+import com.upgrad.quora.service.datasource.RoutingContext;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Opens the RoutingContext of every request before the authorization interceptor binds the signed-in user to it,
+ * and closes it when the request completes or continues asynchronously on another thread. The controller method
+ * of the request tags the connection acquire times, so that waits for a connection can be traced to an endpoint.
+ * A request continuing asynchronously keeps its context in a request attribute and gets it back when it is
+ * dispatched again, so that the pools used by the asynchronous work are reported with the response.
+ */
+public class DataSourceRoutingInterceptor extends HandlerInterceptorAdapter {
+
+    private static final String CONTEXT_ATTRIBUTE = DataSourceRoutingInterceptor.class.getName() + ".context";
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        final RoutingContext suspended = (RoutingContext) request.getAttribute(CONTEXT_ATTRIBUTE);
+        if (suspended != null) {
+            request.removeAttribute(CONTEXT_ATTRIBUTE);
+            RoutingContext.bind(suspended);
+        } else if (handler instanceof HandlerMethod) {
+            final HandlerMethod handlerMethod = (HandlerMethod) handler;
+            RoutingContext.open(handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName());
+        } else {
+            RoutingContext.open(null);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        RoutingContext.close();
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        request.setAttribute(CONTEXT_ATTRIBUTE, RoutingContext.current());
+        RoutingContext.close();
+    }
+}
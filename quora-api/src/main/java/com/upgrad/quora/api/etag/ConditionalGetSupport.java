@@ -0,0 +1,54 @@
+package com.upgrad.quora.api.etag;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Evaluates If-None-Match of the listing endpoints against the entity tag of the current version of the listed
+ * collection, before anything is read or serialized. Every evaluation is counted per endpoint as
+ * "quora.http.conditional" with result "not_modified" or "modified", the 304 ratio of an endpoint being the
+ * share of the former.
+ */
+@Component
+public class ConditionalGetSupport {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * @param request
+     * @param endpoint path template of the endpoint, used as metric tag
+     * @param etag quoted entity tag of the current version of the collection
+     * @return true if the client already holds the current version and 304 is to be returned
+     */
+    public boolean isNotModified(final WebRequest request, final String endpoint, final String etag) {
+        final boolean notModified = matches(request.getHeaderValues(HttpHeaders.IF_NONE_MATCH), etag);
+        meterRegistry.counter("quora.http.conditional", "endpoint", endpoint,
+                "result", notModified ? "not_modified" : "modified").increment();
+        return notModified;
+    }
+
+    /**
+     * Weak comparison as required for If-None-Match: "W/" prefixes are ignored, "*" matches any version.
+     */
+    private static boolean matches(final String[] ifNoneMatch, final String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (final String header : ifNoneMatch) {
+            for (String candidate : header.split(",")) {
+                candidate = candidate.trim();
+                if (candidate.startsWith("W/")) {
+                    candidate = candidate.substring(2);
+                }
+                if (candidate.equals("*") || candidate.equals(etag)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -2,6 +2,7 @@ package com.upgrad.quora.api.exception;
 
 import com.upgrad.quora.api.model.ErrorResponse;
 import com.upgrad.quora.service.exception.*;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -60,4 +61,35 @@ public class RestExceptionHandler {
         );
     }
 
+    @ExceptionHandler(InvalidPageRequestException.class)
+    public ResponseEntity<ErrorResponse> invalidPageRequestException(InvalidPageRequestException exc, WebRequest request){
+        return new ResponseEntity<ErrorResponse>(
+                new ErrorResponse().code((exc.getCode())).message(exc.getErrorMessage()), HttpStatus.BAD_REQUEST
+        );
+    }
+
+    @ExceptionHandler(InvalidBulkRequestException.class)
+    public ResponseEntity<ErrorResponse> invalidBulkRequestException(InvalidBulkRequestException exc, WebRequest request){
+        return new ResponseEntity<ErrorResponse>(
+                new ErrorResponse().code((exc.getCode())).message(exc.getErrorMessage()), HttpStatus.BAD_REQUEST
+        );
+    }
+
+    @ExceptionHandler(EditConflictException.class)
+    public ResponseEntity<ErrorResponse> editConflictException(EditConflictException exc, WebRequest request){
+        return new ResponseEntity<ErrorResponse>(
+                new ErrorResponse().code((exc.getCode())).message(exc.getErrorMessage()), HttpStatus.CONFLICT
+        );
+    }
+
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<ErrorResponse> serviceBusyException(ServiceBusyException exc, WebRequest request){
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.add(HttpHeaders.RETRY_AFTER, "1");
+        return new ResponseEntity<ErrorResponse>(
+                new ErrorResponse().code((exc.getCode())).message(exc.getErrorMessage()), httpHeaders,
+                HttpStatus.SERVICE_UNAVAILABLE
+        );
+    }
+
 }
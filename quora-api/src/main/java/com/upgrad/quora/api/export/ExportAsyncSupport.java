@@ -0,0 +1,72 @@
+package com.upgrad.quora.api.export;
+
+import com.upgrad.quora.service.datasource.RoutingContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletRequest;
+import java.util.concurrent.Callable;
+
+/**
+ * Threads and timeout of the streamed question export. An export holds a thread for as long as the client takes
+ * to read every question, so it is written by a bounded pool of its own, "quora.export.threads", within a timeout
+ * of its own, "quora.export.timeout-ms". The other asynchronous requests keep the executor and timeout of Spring MVC.
+ * The export runs with the RoutingContext of its request, so that its connection waits are tagged with the handler.
+ */
+@Component
+public class ExportAsyncSupport {
+
+    private static final Object TIMEOUT_INTERCEPTOR_KEY = ExportAsyncSupport.class.getName() + ".timeout";
+
+    @Value("${quora.export.threads:4}")
+    private int threads;
+
+    @Value("${quora.export.timeout-ms:600000}")
+    private long timeout;
+
+    private ThreadPoolTaskExecutor executor;
+
+    private CallableProcessingInterceptor timeoutInterceptor;
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("question-export-");
+        //Decorated on the request thread, when the streamed response is handed over
+        executor.setTaskDecorator(RoutingContext::propagate);
+        executor.initialize();
+        timeoutInterceptor = new CallableProcessingInterceptor() {
+            @Override
+            public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+                //Called with the request about to be started asynchronously, before its timeout is applied
+                ((AsyncWebRequest) request).setTimeout(timeout);
+            }
+        };
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    /**
+     * Has the streamed response of the request written by the export pool within the export timeout. To be called
+     * by the handler method returning the StreamingResponseBody.
+     * @param request
+     */
+    public void applyTo(final HttpServletRequest request) {
+        final WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(request);
+        asyncManager.setTaskExecutor(executor);
+        asyncManager.registerCallableInterceptor(TIMEOUT_INTERCEPTOR_KEY, timeoutInterceptor);
+    }
+}
@@ -0,0 +1,67 @@
+package com.upgrad.quora.api.export;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.upgrad.quora.service.business.QuestionBusinessService;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes all the questions to the response as they are read from the DB, either as one JSON array or as
+ * newline-delimited JSON with one question per line. Nothing but the current row is held in memory.
+ */
+public class QuestionExportWriter implements StreamingResponseBody {
+
+    //Rows written between two flushes of the response
+    private static final int FLUSH_ROWS = 1000;
+
+    private final JsonFactory jsonFactory;
+
+    private final QuestionBusinessService questionBusinessService;
+
+    private final boolean ndjson;
+
+    public QuestionExportWriter(final JsonFactory jsonFactory, final QuestionBusinessService questionBusinessService,
+                                final boolean ndjson) {
+        this.jsonFactory = jsonFactory;
+        this.questionBusinessService = questionBusinessService;
+        this.ndjson = ndjson;
+    }
+
+    @Override
+    public void writeTo(final OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = jsonFactory.createGenerator(outputStream, JsonEncoding.UTF8)) {
+            //The response stream is closed by the container
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (ndjson) {
+                //Separates the root level objects by a newline instead of a space
+                generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+            } else {
+                generator.writeStartArray();
+            }
+            final long[] rows = new long[1];
+            questionBusinessService.exportQuestions((uuid, content, date, userUuid) -> {
+                generator.writeStartObject();
+                generator.writeStringField("id", uuid);
+                generator.writeStringField("content", content);
+                generator.writeStringField("date", date == null ? null : date.toOffsetDateTime().toString());
+                generator.writeStringField("userId", userUuid);
+                generator.writeEndObject();
+                if (++rows[0] % FLUSH_ROWS == 0) {
+                    generator.flush();
+                }
+            });
+            if (ndjson) {
+                if (rows[0] > 0) {
+                    generator.writeRaw('\n');
+                }
+            } else {
+                generator.writeEndArray();
+            }
+        }
+    }
+}
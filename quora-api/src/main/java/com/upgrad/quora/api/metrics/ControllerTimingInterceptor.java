@@ -0,0 +1,76 @@
+package com.upgrad.quora.api.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every request to a controller method as "quora.controller", from before the authorization to the last
+ * byte of the response body, tagged with the controller method and the outcome:
+ * <ul>
+ *     <li>"success"</li>
+ *     <li>the code of the error response, e.g. "ATHR-001", recorded by the ErrorCodeAdvice</li>
+ *     <li>"HTTP-" and the status of other error responses, e.g. "HTTP-400" for a missing header</li>
+ *     <li>the simple name of an exception no handler answered</li>
+ * </ul>
+ * Streamed responses are timed until the stream is written. The quora.dao times of the same requests tell how
+ * much of it was spent in the DB.
+ */
+public class ControllerTimingInterceptor extends HandlerInterceptorAdapter {
+
+    public static final String ERROR_CODE_ATTRIBUTE = ControllerTimingInterceptor.class.getName() + ".errorCode";
+
+    public static final String SUCCESS = "success";
+
+    private static final String STARTED_AT_ATTRIBUTE = ControllerTimingInterceptor.class.getName() + ".startedAt";
+
+    private final MeterRegistry meterRegistry;
+
+    public ControllerTimingInterceptor(final MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        //Asynchronous requests come by again to complete, they are timed from the first time
+        if (handler instanceof HandlerMethod && request.getAttribute(STARTED_AT_ATTRIBUTE) == null) {
+            request.setAttribute(STARTED_AT_ATTRIBUTE, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        final Long startedAt = (Long) request.getAttribute(STARTED_AT_ATTRIBUTE);
+        if (startedAt == null || !(handler instanceof HandlerMethod)) {
+            return;
+        }
+        final HandlerMethod handlerMethod = (HandlerMethod) handler;
+        Timer.builder("quora.controller")
+                .tags("handler", handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName(),
+                        "outcome", outcome(request, response, ex))
+                .register(meterRegistry)
+                .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+    }
+
+    private static String outcome(final HttpServletRequest request, final HttpServletResponse response,
+                                  final Exception ex) {
+        final Object errorCode = request.getAttribute(ERROR_CODE_ATTRIBUTE);
+        if (errorCode != null) {
+            return errorCode.toString();
+        }
+        if (ex != null) {
+            return ex.getClass().getSimpleName();
+        }
+        if (response.getStatus() >= 400) {
+            return "HTTP-" + response.getStatus();
+        }
+        return SUCCESS;
+    }
+}
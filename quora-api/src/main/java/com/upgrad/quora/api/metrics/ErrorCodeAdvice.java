@@ -0,0 +1,35 @@
+package com.upgrad.quora.api.metrics;
+
+import com.upgrad.quora.api.model.ErrorResponse;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Records the code of every error response, i.e. the code of the custom exception the RestExceptionHandler
+ * answered, for the ControllerTimingInterceptor to tag the time of the request with.
+ */
+@ControllerAdvice
+public class ErrorCodeAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (body instanceof ErrorResponse && request instanceof ServletServerHttpRequest) {
+            ((ServletServerHttpRequest) request).getServletRequest()
+                    .setAttribute(ControllerTimingInterceptor.ERROR_CODE_ATTRIBUTE, ((ErrorResponse) body).getCode());
+        }
+        return body;
+    }
+}
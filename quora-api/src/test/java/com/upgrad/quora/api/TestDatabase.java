@@ -0,0 +1,36 @@
+package com.upgrad.quora.api;
+
+import org.junit.Assume;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Guard of the database backed tests, to be called from their @BeforeClass: the tests are skipped, instead of
+ * failing to start the application, unless the database of application.yaml (or of -Dspring.datasource.url,
+ * -Dspring.datasource.username and -Dspring.datasource.password) is reachable and holds the test data of
+ * quora_test.sql in quora-db.
+ */
+public final class TestDatabase {
+
+    private TestDatabase() {
+    }
+
+    public static void assumeAvailable() {
+        DriverManager.setLoginTimeout(2);
+        try (Connection connection = DriverManager.getConnection(
+                System.getProperty("spring.datasource.url", "jdbc:postgresql://localhost:5432/quora"),
+                System.getProperty("spring.datasource.username", "postgres"),
+                System.getProperty("spring.datasource.password", "password"));
+             PreparedStatement statement = connection.prepareStatement(
+                     "select count(*) from users where uuid = 'database_uuid1'");
+             ResultSet resultSet = statement.executeQuery()) {
+            Assume.assumeTrue("the test data of quora_test.sql is not loaded", resultSet.next() && resultSet.getLong(1) > 0);
+        } catch (SQLException e) {
+            Assume.assumeNoException("the test database is not reachable", e);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.upgrad.quora.api.auth;
+
+import com.upgrad.quora.api.exception.RestExceptionHandler;
+import com.upgrad.quora.service.business.AuthorizationBusinessService;
+import com.upgrad.quora.service.common.AuthenticatedUser;
+import com.upgrad.quora.service.dao.UserAuthDao;
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//Runs the AuthorizationInterceptor in front of a stub controller without a DB: the sessions are read from a map
+//standing in for UserAuthDao.
+public class AuthorizationInterceptorTest {
+
+    private static final String SIGNED_OUT_MESSAGE = "User is signed out.Sign in first to get user details";
+
+    private final Map<String, UserAuthEntity> sessions = new HashMap<>();
+
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    private MockMvc mvc;
+
+    @Before
+    public void setUp() {
+        final AuthorizationBusinessService authorizationBusinessService = new AuthorizationBusinessService();
+        ReflectionTestUtils.setField(authorizationBusinessService, "userAuthDao", new UserAuthDao() {
+            @Override
+            public UserAuthEntity getUserAuth(final String accessToken) {
+                lookups.incrementAndGet();
+                return sessions.get(accessToken);
+            }
+        });
+        ReflectionTestUtils.setField(authorizationBusinessService, "statelessVerification", false);
+        mvc = MockMvcBuilders.standaloneSetup(new StubController())
+                .addInterceptors(new AuthorizationInterceptor(authorizationBusinessService))
+                .setCustomArgumentResolvers(new AuthenticatedUserArgumentResolver())
+                .setControllerAdvice(new RestExceptionHandler())
+                .build();
+        sessions.put("database_accesstoken1", newSession("database_uuid1", null));
+        sessions.put("database_accesstoken3", newSession("database_uuid3", ZonedDateTime.now()));
+    }
+
+    //This test case passes when a token of no session is rejected with ATHR-001 before the controller method runs.
+    @Test
+    public void unknownTokenIsRejected() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/secured").header("authorization", "non_existing_access_token"))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"))
+                .andExpect(MockMvcResultMatchers.jsonPath("message").value("User has not signed in"));
+    }
+
+    //This test case passes when a token of a signed-out session is rejected with ATHR-002 and the message of the method.
+    @Test
+    public void signedOutTokenIsRejectedWithMethodMessage() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/secured").header("authorization", "database_accesstoken3"))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"))
+                .andExpect(MockMvcResultMatchers.jsonPath("message").value(SIGNED_OUT_MESSAGE));
+    }
+
+    //This test case passes when the user of a valid token is handed to the controller method after a single lookup.
+    @Test
+    public void validTokenResolvesUser() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/secured").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string("database_uuid1"));
+        assertEquals(1, lookups.get());
+    }
+
+    //This test case passes when a method without RequiresAuthorization is invoked without a token and no lookup.
+    @Test
+    public void unannotatedMethodIsNotAuthorized() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/open"))
+                .andExpect(status().isOk());
+        assertEquals(0, lookups.get());
+    }
+
+    private static UserAuthEntity newSession(final String userUuid, final ZonedDateTime logoutAt) {
+        final UserEntity user = new UserEntity();
+        user.setId(1026);
+        user.setUuid(userUuid);
+        user.setRole("nonadmin");
+        final UserAuthEntity session = new UserAuthEntity();
+        session.setUser(user);
+        session.setLoginAt(ZonedDateTime.now());
+        session.setExpiresAt(ZonedDateTime.now().plusHours(8));
+        session.setLogoutAt(logoutAt);
+        return session;
+    }
+
+    @RestController
+    public static class StubController {
+
+        @RequiresAuthorization(signedOutMessage = SIGNED_OUT_MESSAGE)
+        @GetMapping("/secured")
+        public String secured(final AuthenticatedUser authenticatedUser) {
+            return authenticatedUser.getUserUuid();
+        }
+
+        @GetMapping("/open")
+        public String open() {
+            return "open";
+        }
+    }
+}
@@ -15,7 +15,7 @@ import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
-@SpringBootTest
+@SpringBootTest(properties = "quora.auth.session-cache.enabled=false")
 @AutoConfigureMockMvc
 
 public class AnswerControllerTest {
@@ -136,6 +136,13 @@ public class AnswerControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
     }
 
+    //This test case passes when an invalid cursor is rejected.
+    @Test
+    public void getAllAnswersToQuestionWithInvalidCursor() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/answer/all/database_question_uuid?cursor=not_a_cursor").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("PAGE-001"));
+    }
 
 }
 */
\ No newline at end of file
@@ -0,0 +1,89 @@
+package com.upgrad.quora.api.controller;
+
+
+import com.upgrad.quora.api.TestDatabase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//Answer pages and the answer count of a question of its own, seeded with one answer. Skipped when the test
+//database is not available.
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "quora.auth.session-cache.enabled=false")
+@AutoConfigureMockMvc
+
+public class AnswerCountTest {
+
+    private static final String QUESTION_UUID = "answer_count_question";
+
+    private static final String ANSWER_UUID = "answer_count_answer";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeClass
+    public static void assumeDatabase() {
+        TestDatabase.assumeAvailable();
+    }
+
+    @Before
+    public void seedQuestion() {
+        jdbcTemplate.update("insert into question (uuid,content,date,user_id,answer_count) " +
+                "values (?, 'answer count question', now(), 1026, 1)", QUESTION_UUID);
+        jdbcTemplate.update("insert into answer (uuid,ans,date,user_id,question_id) select ?, 'seeded_answer', now(), " +
+                "1026, id from question where uuid = ?", ANSWER_UUID, QUESTION_UUID);
+    }
+
+    @After
+    public void removeQuestion() {
+        jdbcTemplate.update("delete from answer where question_id in (select id from question where uuid = ?)",
+                QUESTION_UUID);
+        jdbcTemplate.update("delete from question where uuid = ?", QUESTION_UUID);
+    }
+
+    //This test case passes when the answers are fetched one per page and the second page continues with the cursor returned by the first.
+    @Test
+    public void getAllAnswersToQuestionPaginated() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/question/" + QUESTION_UUID + "/answer/create?answer=my_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk());
+        final String cursor = mvc.perform(MockMvcRequestBuilders.get("/answer/all/" + QUESTION_UUID + "?limit=1").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(ANSWER_UUID))
+                .andReturn().getResponse().getHeader("next-cursor");
+        mvc.perform(MockMvcRequestBuilders.get("/answer/all/" + QUESTION_UUID + "?limit=1&cursor=" + cursor).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].answerContent").value("my_answer"));
+    }
+
+    //This test case passes when the answer count of the question grows with a created answer and shrinks with a deleted one.
+    @Test
+    public void answerCountFollowsCreateAndDelete() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/question/" + QUESTION_UUID + "/answer/create?answer=my_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk());
+        mvc.perform(MockMvcRequestBuilders.get("/question/all/database_uuid1").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[?(@.id == '" + QUESTION_UUID + "')].answerCount").value(2));
+        mvc.perform(MockMvcRequestBuilders.delete("/answer/delete/" + ANSWER_UUID).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk());
+        mvc.perform(MockMvcRequestBuilders.get("/question/all/database_uuid1").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[?(@.id == '" + QUESTION_UUID + "')].answerCount").value(1));
+    }
+}
@@ -0,0 +1,69 @@
+package com.upgrad.quora.api.controller;
+
+
+import com.upgrad.quora.api.TestDatabase;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//Bulk creation of questions and answers, every item reported on its own. Skipped when the test database is not
+//available.
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "quora.auth.session-cache.enabled=false")
+@AutoConfigureMockMvc
+
+public class BulkCreateTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeClass
+    public static void assumeDatabase() {
+        TestDatabase.assumeAvailable();
+    }
+
+    @After
+    public void removeCreatedRows() {
+        jdbcTemplate.update("delete from answer where ans = 'bulk_created_answer'");
+        jdbcTemplate.update("update question set answer_count = (select count(*) from answer a " +
+                "where a.question_id = question.id) where uuid = 'database_question_uuid'");
+        jdbcTemplate.update("delete from question where content = 'bulk_created_question'");
+    }
+
+    //This test case passes when a bulk of questions is created and the question without content fails on its own.
+    @Test
+    public void createQuestionsReportsEveryQuestion() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/question/bulk-create").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1")
+                .content("{\"questions\":[{\"content\":\"bulk_created_question\"},{\"content\":\"\"}]}"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("results[0].status").value("QUESTION CREATED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("results[1].status").value("FAILED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("results[1].code").value("QUES-002"));
+    }
+
+    //This test case passes when a bulk of answers is created and the answer to a non existing question fails on its own.
+    @Test
+    public void createAnswersReportsEveryAnswer() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/answer/bulk-create").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1")
+                .content("{\"answers\":[{\"questionId\":\"database_question_uuid\",\"answer\":\"bulk_created_answer\"},{\"questionId\":\"non_existing_question_uuid\",\"answer\":\"bulk_created_answer\"}]}"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("results[0].status").value("ANSWER CREATED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("results[1].status").value("FAILED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("results[1].code").value("QUES-001"));
+    }
+}
@@ -0,0 +1,87 @@
+package com.upgrad.quora.api.controller;
+
+
+import com.upgrad.quora.api.TestDatabase;
+import com.upgrad.quora.service.common.AccessTokenDigest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//Deletes a user of its own, seeded with a session, a question and an answer, after its answer was loaded into the
+//second-level cache. Skipped when the test database is not available.
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+
+public class CascadeEvictionTest {
+
+    private static final String USER_UUID = "cascade_user_uuid";
+
+    private static final String SESSION_UUID = "cascade_session_uuid";
+
+    private static final String ACCESS_TOKEN = "cascade_accesstoken";
+
+    private static final String QUESTION_UUID = "cascade_question_uuid";
+
+    private static final String ANSWER_UUID = "cascade_answer_uuid";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeClass
+    public static void assumeDatabase() {
+        TestDatabase.assumeAvailable();
+    }
+
+    @Before
+    public void seedUser() {
+        jdbcTemplate.update("insert into users (uuid, firstname, lastname, username, email, password, salt, role) " +
+                "values (?, 'cascade', 'user', 'cascade_username', 'cascade_email', 'cascade_password', " +
+                "'cascade_salt', 'nonadmin')", USER_UUID);
+        jdbcTemplate.update("insert into user_auth (uuid, user_id, access_token, access_token_hash, expires_at, " +
+                "login_at) select ?, id, ?, ?, now() + interval '8 hours', now() from users where uuid = ?",
+                SESSION_UUID, ACCESS_TOKEN, AccessTokenDigest.sha256Hex(ACCESS_TOKEN), USER_UUID);
+        jdbcTemplate.update("insert into question (uuid, content, date, user_id, answer_count) select ?, " +
+                "'cascade question', now(), id, 1 from users where uuid = ?", QUESTION_UUID, USER_UUID);
+        jdbcTemplate.update("insert into answer (uuid, ans, date, user_id, question_id) select ?, 'cascade answer', " +
+                "now(), q.user_id, q.id from question q where q.uuid = ?", ANSWER_UUID, QUESTION_UUID);
+    }
+
+    @After
+    public void removeUser() {
+        jdbcTemplate.update("delete from users where uuid = ?", USER_UUID);
+        jdbcTemplate.update("delete from revoked_token where jti = ?", SESSION_UUID);
+    }
+
+    //This test case passes when the question and answer of a deleted user, removed by the DB cascade, are no longer served from the second-level cache.
+    @Test
+    public void deleteUserEvictsCascadedQuestionsAndAnswers() throws Exception {
+        //Loads the question and the answer into the cache
+        mvc.perform(MockMvcRequestBuilders.put("/answer/edit/" + ANSWER_UUID + "?content=edited_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", ACCESS_TOKEN))
+                .andExpect(status().isOk());
+        mvc.perform(MockMvcRequestBuilders.delete("/admin/user/" + USER_UUID).header("authorization", "database_accesstoken"))
+                .andExpect(status().isOk());
+        mvc.perform(MockMvcRequestBuilders.delete("/answer/delete/" + ANSWER_UUID).header("authorization", "database_accesstoken"))
+                .andExpect(status().isNotFound())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ANS-001"));
+        mvc.perform(MockMvcRequestBuilders.delete("/question/delete/" + QUESTION_UUID).header("authorization", "database_accesstoken"))
+                .andExpect(status().isNotFound())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
+    }
+}
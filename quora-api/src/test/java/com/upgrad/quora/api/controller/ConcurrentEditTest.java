@@ -0,0 +1,138 @@
+package com.upgrad.quora.api.controller;
+
+
+import com.upgrad.quora.api.TestDatabase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//Edits one question from several threads at once, each appending its token to the content it read and retrying
+//with the new content when its version is stale. No edit may be lost: the final content holds every token and the
+//version counts every successful edit. Skipped when the test database is not available.
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "quora.auth.session-cache.enabled=false")
+@AutoConfigureMockMvc
+
+public class ConcurrentEditTest {
+
+    private static final String QUESTION_UUID = "concurrent_edit_question";
+
+    private static final String ANSWER_UUID = "concurrent_edit_answer";
+
+    private static final int EDITORS = 8;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeClass
+    public static void assumeDatabase() {
+        TestDatabase.assumeAvailable();
+    }
+
+    @Before
+    public void seedQuestion() {
+        jdbcTemplate.update("insert into question (uuid,content,date,user_id) values (?, 'edits:', now(), 1026)",
+                QUESTION_UUID);
+        jdbcTemplate.update("insert into answer (uuid,ans,date,user_id,question_id) select ?, 'answer', now(), " +
+                "1026, id from question where uuid = ?", ANSWER_UUID, QUESTION_UUID);
+    }
+
+    @After
+    public void removeQuestion() {
+        jdbcTemplate.update("delete from answer where uuid = ?", ANSWER_UUID);
+        jdbcTemplate.update("delete from question where uuid = ?", QUESTION_UUID);
+    }
+
+    //This test case passes when concurrent versioned edits of the same question are all applied, one after the other.
+    @Test
+    public void concurrentVersionedEditsAreNotLost() throws Exception {
+        final Queue<String> failures = new ConcurrentLinkedQueue<>();
+        final AtomicInteger edits = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> editors = new ArrayList<>();
+        for (int e = 0; e < EDITORS; e++) {
+            final String token = " t" + e;
+            editors.add(new Thread(() -> {
+                try {
+                    start.await();
+                    while (true) {
+                        final Map<String, Object> current = jdbcTemplate.queryForMap(
+                                "select content, version from question where uuid = ?", QUESTION_UUID);
+                        final int status = mvc.perform(MockMvcRequestBuilders.put("/question/edit/" + QUESTION_UUID)
+                                .param("content", current.get("content") + token)
+                                .param("version", String.valueOf(current.get("version")))
+                                .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                                .header("authorization", "database_accesstoken1"))
+                                .andReturn().getResponse().getStatus();
+                        if (status == 200) {
+                            edits.incrementAndGet();
+                            return;
+                        } else if (status != 409) {
+                            failures.add("edit" + token + " answered " + status);
+                            return;
+                        }
+                    }
+                } catch (Exception exc) {
+                    failures.add(exc.toString());
+                }
+            }));
+        }
+        editors.forEach(Thread::start);
+        start.countDown();
+        for (final Thread editor : editors) {
+            editor.join();
+        }
+        assertTrue(String.valueOf(failures.peek()), failures.isEmpty());
+        final Map<String, Object> edited = jdbcTemplate.queryForMap(
+                "select content, version from question where uuid = ?", QUESTION_UUID);
+        for (int e = 0; e < EDITORS; e++) {
+            assertTrue(edited.get("content") + " lost t" + e, ((String) edited.get("content")).contains(" t" + e));
+        }
+        assertEquals(EDITORS, edits.get());
+        assertEquals(EDITORS, ((Number) edited.get("version")).intValue());
+    }
+
+    //This test case passes when you try to edit the question against a version which is not its current version.
+    @Test
+    public void editQuestionWithStaleVersion() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.put("/question/edit/" + QUESTION_UUID + "?content=edited_question&version=-1").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isConflict())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-003"));
+        assertEquals("edits:", jdbcTemplate.queryForObject("select content from question where uuid = ?", String.class, QUESTION_UUID));
+    }
+
+    //This test case passes when you try to edit the answer against a version which is not its current version.
+    @Test
+    public void editAnswerWithStaleVersion() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.put("/answer/edit/" + ANSWER_UUID + "?content=edited_answer&version=-1").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isConflict())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ANS-003"));
+        assertEquals("answer", jdbcTemplate.queryForObject("select ans from answer where uuid = ?", String.class, ANSWER_UUID));
+    }
+}
@@ -0,0 +1,87 @@
+package com.upgrad.quora.api.controller;
+
+
+import com.upgrad.quora.api.TestDatabase;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//Listings requested again with the ETag of the previous response. Skipped when the test database is not available.
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"spring.jpa.properties.hibernate.generate_statistics=true",
+        "quora.auth.session-cache.enabled=false"})
+@AutoConfigureMockMvc
+
+public class ConditionalGetTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeClass
+    public static void assumeDatabase() {
+        TestDatabase.assumeAvailable();
+    }
+
+    @After
+    public void removeCreatedRows() {
+        jdbcTemplate.update("delete from answer where ans = 'conditional_get_answer'");
+        jdbcTemplate.update("update question set answer_count = (select count(*) from answer a " +
+                "where a.question_id = question.id) where uuid = 'database_question_uuid'");
+        jdbcTemplate.update("delete from question where content = 'conditional_get_question'");
+    }
+
+    //This test case passes when the questions are fetched again with the ETag of the previous response and 304 is returned after the session lookup only, until a question is created.
+    @Test
+    public void getAllQuestionsNotModified() throws Exception {
+        final String etag = mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken1").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(MockMvcResultMatchers.content().string(""));
+        assertEquals(1, statistics.getPrepareStatementCount());
+        mvc.perform(MockMvcRequestBuilders.post("/question/create?content=conditional_get_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk());
+        mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken1").header("If-None-Match", etag))
+                .andExpect(status().isOk());
+    }
+
+    //This test case passes when the answers are fetched again with the ETag of the previous response and 304 is returned until an answer to the question is created.
+    @Test
+    public void getAllAnswersToQuestionNotModified() throws Exception {
+        final String etag = mvc.perform(MockMvcRequestBuilders.get("/answer/all/database_question_uuid").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        mvc.perform(MockMvcRequestBuilders.get("/answer/all/database_question_uuid").header("authorization", "database_accesstoken1").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        mvc.perform(MockMvcRequestBuilders.post("/question/database_question_uuid/answer/create?answer=conditional_get_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk());
+        mvc.perform(MockMvcRequestBuilders.get("/answer/all/database_question_uuid").header("authorization", "database_accesstoken1").header("If-None-Match", etag))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,46 @@
+package com.upgrad.quora.api.controller;
+
+import com.upgrad.quora.api.TestDatabase;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//Skipped when the test database is not available.
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "quora.feed.enabled=false")
+@AutoConfigureMockMvc
+
+public class ConnectionPoolEndpointTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @BeforeClass
+    public static void assumeDatabase() {
+        TestDatabase.assumeAvailable();
+    }
+
+    //This test case passes when the pools endpoint shows the primary pool and the acquire times of the controller method which took a connection.
+    @Test
+    public void poolsShowAcquireTimesPerHandler() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/answer/all/database_question_uuid").header("authorization", "database_accesstoken2"))
+                .andExpect(status().isOk());
+        mvc.perform(MockMvcRequestBuilders.get("/actuator/pools"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("pools.primary.saturated").value(false))
+                .andExpect(MockMvcResultMatchers.jsonPath("pools.primary.max").value(greaterThanOrEqualTo(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("pools.primary.acquire.count").value(greaterThanOrEqualTo(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("acquireByHandler[*].handler").value(hasItem("AnswerController.getAllAnswersToQuestion")));
+    }
+}
@@ -0,0 +1,76 @@
+package com.upgrad.quora.api.controller;
+
+import com.upgrad.quora.api.TestDatabase;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//The replica pool is a second pool on the primary database, standing in for a real replica: the routing is
+//checked through the "datasource" header of the responses. Skipped when the test database is not available.
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"quora.datasource.replica.url=${spring.datasource.url}",
+        "quora.datasource.replica.username=${spring.datasource.username}",
+        "quora.datasource.replica.password=${spring.datasource.password}",
+        "quora.auth.session-cache.enabled=false", "quora.feed.enabled=false",
+        "quora.datasource.read-your-writes-ms=1000"})
+@AutoConfigureMockMvc
+
+public class DataSourceRoutingTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeClass
+    public static void assumeDatabase() {
+        TestDatabase.assumeAvailable();
+    }
+
+    @After
+    public void restoreQuestion() {
+        jdbcTemplate.update("update question set content = 'database_question_content' where uuid = 'database_question_uuid'");
+    }
+
+    //This test case passes when the listings are read from the replica, after the session lookup on the primary.
+    @Test
+    public void listingsAreServedByReplica() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("datasource", "primary,replica"));
+        mvc.perform(MockMvcRequestBuilders.get("/answer/all/database_question_uuid").header("authorization", "database_accesstoken2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("datasource", "primary,replica"));
+    }
+
+    //This test case passes when the user who just edited a question reads their questions from the primary, as does another user until the replica had the time to catch up with the edit.
+    @Test
+    public void ownWritesAreReadFromPrimary() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.put("/question/edit/database_question_uuid?content=edited_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("datasource", "primary"));
+        mvc.perform(MockMvcRequestBuilders.get("/question/all/database_uuid1").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("datasource", "primary"));
+        mvc.perform(MockMvcRequestBuilders.get("/question/all/database_uuid1").header("authorization", "database_accesstoken2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("datasource", "primary"));
+        Thread.sleep(1100);
+        mvc.perform(MockMvcRequestBuilders.get("/question/all/database_uuid1").header("authorization", "database_accesstoken2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("datasource", "primary,replica"));
+    }
+}
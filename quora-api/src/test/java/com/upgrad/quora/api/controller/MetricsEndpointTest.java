@@ -0,0 +1,59 @@
+package com.upgrad.quora.api.controller;
+
+import com.upgrad.quora.api.TestDatabase;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//Skipped when the test database is not available.
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "quora.feed.enabled=false")
+@AutoConfigureMockMvc
+
+public class MetricsEndpointTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @BeforeClass
+    public static void assumeDatabase() {
+        TestDatabase.assumeAvailable();
+    }
+
+    //This test case passes when the controller times are served per controller method and outcome, the error code of a failed request included, with their histogram.
+    @Test
+    public void controllerTimesPerHandlerAndOutcome() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk());
+        mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken3"))
+                .andExpect(status().isForbidden());
+        mvc.perform(MockMvcRequestBuilders.get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(allOf(
+                        containsString("quora_controller_seconds_bucket{handler=\"QuestionController.getAllQuestions\",outcome=\"success\""),
+                        containsString("quora_controller_seconds_count{handler=\"QuestionController.getAllQuestions\",outcome=\"ATHR-002\""))));
+    }
+
+    //This test case passes when the DAO calls of a request are timed per DAO and method.
+    @Test
+    public void daoTimesPerMethod() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk());
+        mvc.perform(MockMvcRequestBuilders.get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(allOf(
+                        containsString("quora_dao_seconds_count{dao=\"UserAuthDao\""),
+                        containsString("quora_dao_seconds_count{dao=\"QuestionDao\""))));
+    }
+}
@@ -0,0 +1,121 @@
+package com.upgrad.quora.api.controller;
+
+
+import com.upgrad.quora.api.TestDatabase;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertFalse;
+
+//Plans every named query on a large seeded dataset and fails if any of them scans a table sequentially. Skipped
+//when the test database is not available.
+@RunWith(SpringRunner.class)
+@SpringBootTest
+
+public class QueryPlanTest {
+
+    private static final int SEEDED_USERS = 100000;
+
+    //Literal for every parameter of the translated SQL, in order, and the LIMIT the DAO applies if any
+    private static final Map<String, String[]> PARAMETERS = new LinkedHashMap<>();
+
+    private static JdbcTemplate seededTemplate;
+
+    static {
+        PARAMETERS.put("getQuestionsFirstPage", new String[]{"limit 21"});
+        PARAMETERS.put("getQuestionsPageAfter", new String[]{"now()", "now()", "now()", "1024", "limit 21"});
+        PARAMETERS.put("getQuestionIdsByUuids", new String[]{"'database_question_uuid'", ""});
+        PARAMETERS.put("getQuestionsByUserIdFirstPage", new String[]{"1026", "limit 21"});
+        PARAMETERS.put("getQuestionsByUserIdPageAfter", new String[]{"1026", "now()", "now()", "now()", "1024", "limit 21"});
+        PARAMETERS.put("userAuthByAccessToken", new String[]{"'ed5e89f467d7b10233'", ""});
+        PARAMETERS.put("revokedUserAuth", new String[]{"now()", ""});
+        PARAMETERS.put("revokedUserAuthSince", new String[]{"now()", "now()", ""});
+        PARAMETERS.put("activeUserAuthByUser", new String[]{"1026", "now()", ""});
+        PARAMETERS.put("userByUserName", new String[]{"'abhi'", ""});
+        PARAMETERS.put("userByEmail", new String[]{"'a@gmail.com'", ""});
+        PARAMETERS.put("updateUserPassword", new String[]{"'salt'", "'password'", "1026", "'password'", ""});
+        PARAMETERS.put("getAnswersByQuestionUuidFirstPage", new String[]{"'database_question_uuid'", "limit 21"});
+        PARAMETERS.put("getAnswersByQuestionUuidPageAfter", new String[]{"'database_question_uuid'", "1024", "limit 21"});
+        PARAMETERS.put("getMaxQuestionId", new String[]{""});
+        PARAMETERS.put("getAnswerIdsByQuestionId", new String[]{"1024", ""});
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeClass
+    public static void assumeDatabase() {
+        TestDatabase.assumeAvailable();
+    }
+
+    @Before
+    public void seedRows() {
+        if (seededTemplate != null) {
+            return;
+        }
+        seededTemplate = jdbcTemplate;
+        jdbcTemplate.update("insert into users (uuid,firstname,lastname,username,email,password,salt,role) " +
+                "select 'plan_user_' || i, 'plan', 'user', 'plan_user_' || i, 'plan_user_' || i || '@example.com', " +
+                "'password', 'salt', 'nonadmin' from generate_series(1, ?) i", SEEDED_USERS);
+        jdbcTemplate.update("insert into question (uuid,content,date,user_id) select 'plan_question_' || id, " +
+                "'plan question', now() - id * interval '1 minute', id from users where username like 'plan_user_%'");
+        jdbcTemplate.update("insert into answer (uuid,ans,date,user_id,question_id) select 'plan_answer_' || id, " +
+                "'plan answer', now(), user_id, id from question where uuid like 'plan_question_%'");
+        jdbcTemplate.update("insert into user_auth (uuid,user_id,access_token,access_token_hash,expires_at,login_at) " +
+                "select 'plan_session_' || id, id, 'plan_token_' || id, md5('plan' || id) || md5('token' || id), " +
+                "now() - interval '1 day', now() - interval '2 days' from users where username like 'plan_user_%'");
+        jdbcTemplate.execute("analyze");
+    }
+
+    @AfterClass
+    public static void removeRows() {
+        if (seededTemplate != null) {
+            //Questions, answers and sessions of the seeded users are removed by cascade
+            seededTemplate.update("delete from users where username like 'plan_user_%'");
+        }
+    }
+
+    //This test case passes when none of the named queries is planned with a sequential scan.
+    @Test
+    public void namedQueriesUseIndexes() {
+        final SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        for (final Map.Entry<String, String[]> query : PARAMETERS.entrySet()) {
+            final String hql = sessionFactory.getNamedQueryRepository().getNamedQueryDefinition(query.getKey())
+                    .getQueryString();
+            for (final String sql : sessionFactory.getQueryPlanCache()
+                    .getHQLQueryPlan(hql, false, Collections.emptyMap()).getSqlStrings()) {
+                final String[] parameters = query.getValue();
+                final StringBuilder explained = new StringBuilder("explain ");
+                int parameter = 0;
+                for (final char c : sql.toCharArray()) {
+                    if (c == '?') {
+                        explained.append(parameters[parameter++]);
+                    } else {
+                        explained.append(c);
+                    }
+                }
+                explained.append(' ').append(parameters[parameter]);
+                final List<String> plan = jdbcTemplate.queryForList(explained.toString(), String.class);
+                assertFalse(query.getKey() + " scans sequentially: " + plan,
+                        String.join("\n", plan).contains("Seq Scan"));
+            }
+        }
+    }
+}
@@ -15,7 +15,7 @@ import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
-@SpringBootTest
+@SpringBootTest(properties = "quora.auth.session-cache.enabled=false")
 @AutoConfigureMockMvc
 
 public class QuestionControllerTest {
@@ -152,6 +152,14 @@ public class QuestionControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("USR-001"));
     }
 
+    //This test case passes when you try to create a bulk of questions without any question.
+    @Test
+    public void createQuestionsWithoutQuestions() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/question/bulk-create").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1")
+                .content("{\"questions\":[]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("BULK-001"));
+    }
 
 }
 */
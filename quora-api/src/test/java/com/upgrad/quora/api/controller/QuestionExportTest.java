@@ -0,0 +1,72 @@
+package com.upgrad.quora.api.controller;
+
+
+import com.upgrad.quora.api.TestDatabase;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+//Exports more questions than fit in the heap, run with -DargLine=-Xmx96m to check that the export does not buffer them.
+//Skipped when the test database is not available.
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+
+public class QuestionExportTest {
+
+    private static final int SEEDED_QUESTIONS = 1000000;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeClass
+    public static void assumeDatabase() {
+        TestDatabase.assumeAvailable();
+    }
+
+    //This test case passes when all the questions are exported as newline-delimited JSON, one question per line.
+    @Test
+    public void exportQuestionsAsNdjson() throws Exception {
+        jdbcTemplate.update("insert into question (uuid,content,date,user_id) select 'export_question_' || i, " +
+                "repeat('export question content ', 10), now(), 1026 from generate_series(1, ?) i", SEEDED_QUESTIONS);
+        try {
+            final int total = jdbcTemplate.queryForObject("select count(*) from question", Integer.class);
+            final HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/api/question/export?format=ndjson").openConnection();
+            connection.setRequestProperty("authorization", "database_accesstoken1");
+            assertEquals(200, connection.getResponseCode());
+            assertEquals("application/x-ndjson;charset=UTF-8", connection.getContentType());
+            int lines = 0;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+                while (reader.readLine() != null) {
+                    lines++;
+                }
+            }
+            assertEquals(total, lines);
+        } finally {
+            jdbcTemplate.update("delete from question where uuid like 'export_question_%'");
+        }
+    }
+
+    //This test case passes when you try to export the questions but the JWT token entered does not exist in the database.
+    @Test
+    public void exportQuestionsWithNonExistingAccessToken() throws Exception {
+        final HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/api/question/export").openConnection();
+        connection.setRequestProperty("authorization", "non_existing_access_token");
+        assertEquals(403, connection.getResponseCode());
+    }
+}
@@ -0,0 +1,48 @@
+package com.upgrad.quora.api.controller;
+
+
+import com.upgrad.quora.api.TestDatabase;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//Pages of the question listing. Skipped when the test database is not available.
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "quora.auth.session-cache.enabled=false")
+@AutoConfigureMockMvc
+
+public class QuestionPaginationTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @BeforeClass
+    public static void assumeDatabase() {
+        TestDatabase.assumeAvailable();
+    }
+
+    //This test case passes when you try to get a page of the questions with a page size of one and the response holds at most one question.
+    @Test
+    public void getAllQuestionsWithLimit() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/all?limit=1").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1));
+    }
+
+    //This test case passes when you try to get a page of the questions but the page cursor entered is not valid.
+    @Test
+    public void getAllQuestionsWithInvalidCursor() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/all?cursor=invalid_cursor").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("PAGE-001"));
+    }
+}
@@ -0,0 +1,136 @@
+package com.upgrad.quora.api.controller;
+
+
+import com.upgrad.quora.api.TestDatabase;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//Checks that the list endpoints run the same number of SQL statements whatever the number of rows they return,
+//i.e. that no association is loaded with one select per row, and that the creates and edits run no select besides
+//the session lookup. Skipped when the test database is not available.
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"spring.jpa.properties.hibernate.generate_statistics=true",
+        "quora.auth.session-cache.enabled=false", "quora.feed.enabled=false"})
+@AutoConfigureMockMvc
+
+public class StatementCountTest {
+
+    private static final int SEEDED_ROWS = 50;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeClass
+    public static void assumeDatabase() {
+        TestDatabase.assumeAvailable();
+    }
+
+    @Before
+    public void seedRows() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        //Questions and answers of all the test users, so that eager users would be loaded one by one
+        jdbcTemplate.update("insert into question (uuid,content,date,user_id) select 'statement_question_' || i, " +
+                "'statement question', now(), 1025 + i % 5 from generate_series(1, ?) i", SEEDED_ROWS);
+        jdbcTemplate.update("insert into answer (uuid,ans,date,user_id,question_id) select 'statement_answer_' || i, " +
+                "'statement answer', now(), 1025 + i % 5, 1024 from generate_series(1, ?) i", SEEDED_ROWS);
+    }
+
+    @After
+    public void removeRows() {
+        jdbcTemplate.update("delete from answer where uuid like 'statement_answer_%'");
+        jdbcTemplate.update("delete from question where uuid like 'statement_question_%'");
+        jdbcTemplate.update("delete from answer where ans = 'statement_created_answer'");
+        jdbcTemplate.update("update question set answer_count = (select count(*) from answer a " +
+                "where a.question_id = question.id) where uuid = 'database_question_uuid'");
+        jdbcTemplate.update("delete from question where content = 'statement_created_question'");
+    }
+
+    //This test case passes when getting one or all the questions runs the same number of statements.
+    @Test
+    public void getAllQuestionsRunsConstantStatements() throws Exception {
+        assertEquals(statementsOf(MockMvcRequestBuilders.get("/question/all?limit=1")),
+                statementsOf(MockMvcRequestBuilders.get("/question/all?limit=" + SEEDED_ROWS)));
+    }
+
+    //This test case passes when getting one or all the questions of a user runs the same number of statements.
+    @Test
+    public void getAllQuestionsByUserRunsConstantStatements() throws Exception {
+        assertEquals(statementsOf(MockMvcRequestBuilders.get("/question/all/database_uuid1?limit=1")),
+                statementsOf(MockMvcRequestBuilders.get("/question/all/database_uuid1?limit=" + SEEDED_ROWS)));
+    }
+
+    //This test case passes when the answers of a question are listed with one statement for the session and one for the answers with their question.
+    @Test
+    public void getAllAnswersToQuestionRunsConstantStatements() throws Exception {
+        assertEquals(2, statementsOf(MockMvcRequestBuilders.get("/answer/all/database_question_uuid")));
+    }
+
+    //This test case passes when an answer is edited with one statement for the session and one conditional UPDATE, without reading the answer and its question first, whether or not they are cached.
+    @Test
+    public void editAnswerRunsOneConditionalUpdate() throws Exception {
+        entityManagerFactory.getCache().evictAll();
+        assertEquals(2, statementsOf(MockMvcRequestBuilders.put("/answer/edit/database_answer_uuid?content=edited_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)));
+        assertEquals(2, statementsOf(MockMvcRequestBuilders.put("/answer/edit/database_answer_uuid?content=edited_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)));
+    }
+
+    //This test case passes when creating a question runs one statement for the session and one INSERT, besides fetching a block of ids.
+    @Test
+    public void createQuestionRunsOneInsert() throws Exception {
+        //The id sequence is only called once per 50 inserts
+        assertTrue(statementsOf(MockMvcRequestBuilders.post("/question/create?content=statement_created_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)) <= 3);
+        assertEquals(1, statistics.getEntityInsertCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    //This test case passes when creating an answer runs one statement for the session and one INSERT, besides fetching a block of ids.
+    @Test
+    public void createAnswerRunsOneInsert() throws Exception {
+        //The id sequence is only called once per 50 inserts
+        assertTrue(statementsOf(MockMvcRequestBuilders.post("/question/database_question_uuid/answer/create?answer=statement_created_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)) <= 3);
+    }
+
+    //This test case passes when the answers created take their ids from the pooled blocks, a block of 50 ids per 50 answers at most, instead of a block each.
+    @Test
+    public void createAnswerTakesOneIdOfPooledBlock() throws Exception {
+        final long sequenceBefore = jdbcTemplate.queryForObject("select last_value from answer_id_seq", Long.class);
+        for (int i = 0; i < 3; i++) {
+            statementsOf(MockMvcRequestBuilders.post("/question/database_question_uuid/answer/create?answer=statement_created_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE));
+        }
+        assertEquals(3, jdbcTemplate.queryForList("select id from answer where ans = 'statement_created_answer'", Integer.class).size());
+        assertTrue(jdbcTemplate.queryForObject("select last_value from answer_id_seq", Long.class) - sequenceBefore <= 50);
+    }
+
+    private long statementsOf(final MockHttpServletRequestBuilder request) throws Exception {
+        statistics.clear();
+        mvc.perform(request.header("authorization", "database_accesstoken1")).andExpect(status().isOk());
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,85 @@
+package com.upgrad.quora.api.exception;
+
+import com.upgrad.quora.service.business.PasswordHashingExecutor;
+import com.upgrad.quora.service.exception.ServiceBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//Runs a stub sign-in controller on a saturated hashing pool without a DB, the hashes block on a latch.
+public class ServiceBusyResponseTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private PasswordHashingExecutor passwordHashingExecutor;
+
+    private MockMvc mvc;
+
+    @Before
+    public void setUp() {
+        passwordHashingExecutor = new PasswordHashingExecutor();
+        ReflectionTestUtils.setField(passwordHashingExecutor, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(passwordHashingExecutor, "threads", 1);
+        ReflectionTestUtils.setField(passwordHashingExecutor, "queueCapacity", 1);
+        passwordHashingExecutor.init();
+        mvc = MockMvcBuilders.standaloneSetup(new StubController(passwordHashingExecutor))
+                .setControllerAdvice(new RestExceptionHandler())
+                .build();
+    }
+
+    @After
+    public void shutdown() {
+        release.countDown();
+        passwordHashingExecutor.shutdown();
+    }
+
+    //This test case passes when a sign-in rejected by the saturated hashing pool gets 503 with Retry-After instead of waiting for a thread.
+    @Test
+    public void signinOnSaturatedPoolIsRetriedLater() throws Exception {
+        passwordHashingExecutor.submit(this::blockedHash);
+        passwordHashingExecutor.submit(this::blockedHash);
+        mvc.perform(MockMvcRequestBuilders.post("/signin"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("GEN-002"));
+    }
+
+    private String blockedHash() {
+        try {
+            release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "hash";
+    }
+
+    @RestController
+    public static class StubController {
+
+        private final PasswordHashingExecutor passwordHashingExecutor;
+
+        public StubController(final PasswordHashingExecutor passwordHashingExecutor) {
+            this.passwordHashingExecutor = passwordHashingExecutor;
+        }
+
+        @PostMapping("/signin")
+        public CompletableFuture<String> signin() throws ServiceBusyException {
+            return passwordHashingExecutor.submit(() -> "hash");
+        }
+    }
+}
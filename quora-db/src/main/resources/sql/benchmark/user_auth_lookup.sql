@@ -0,0 +1,27 @@
+--Lookup latency of USER_AUTH by raw access token against lookup by ACCESS_TOKEN_HASH as the table grows.
+--Runs on a scratch copy of the table, so it can be pointed at any quora database:
+--    psql -h localhost -U postgres -d quora -f user_auth_lookup.sql
+--Compare the "Execution Time" of the two plans printed at each size: the raw token lookup is a sequential scan
+--which grows linearly with the number of rows, the hash lookup is a unique index scan which stays flat.
+\timing on
+CREATE EXTENSION IF NOT EXISTS pgcrypto;
+
+DROP TABLE IF EXISTS BENCH_USER_AUTH;
+CREATE TABLE BENCH_USER_AUTH (LIKE USER_AUTH INCLUDING DEFAULTS);
+CREATE UNIQUE INDEX BENCH_USER_AUTH_ACCESS_TOKEN_HASH_UK ON BENCH_USER_AUTH(ACCESS_TOKEN_HASH);
+
+--Appends rows :from to :to with JWT sized tokens (around 400 characters) and looks up the last one both ways
+\set from 1
+\set to 10000
+\ir user_auth_lookup_step.sql
+\set from 10001
+\set to 100000
+\ir user_auth_lookup_step.sql
+\set from 100001
+\set to 1000000
+\ir user_auth_lookup_step.sql
+\set from 1000001
+\set to 5000000
+\ir user_auth_lookup_step.sql
+
+DROP TABLE BENCH_USER_AUTH;
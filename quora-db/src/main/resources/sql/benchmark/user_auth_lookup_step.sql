@@ -0,0 +1,14 @@
+--One size step of user_auth_lookup.sql, expects :from and :to to be set.
+INSERT INTO BENCH_USER_AUTH (ID, UUID, USER_ID, ACCESS_TOKEN, ACCESS_TOKEN_HASH, EXPIRES_AT, LOGIN_AT)
+SELECT n, md5(n::text), 1024, t.token, encode(digest(t.token, 'sha256'), 'hex'), now() + interval '8 hours', now()
+FROM generate_series(:from, :to) AS n,
+     LATERAL (SELECT 'eyJhbGciOiJIUzUxMiJ9.' || repeat(md5(n::text), 11) || '.' || md5(n::text || 'sig') AS token) t;
+ANALYZE BENCH_USER_AUTH;
+
+SELECT count(*) AS rows FROM BENCH_USER_AUTH;
+
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM BENCH_USER_AUTH
+WHERE ACCESS_TOKEN = 'eyJhbGciOiJIUzUxMiJ9.' || repeat(md5(:to::text), 11) || '.' || md5(:to::text || 'sig');
+
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM BENCH_USER_AUTH
+WHERE ACCESS_TOKEN_HASH = encode(digest('eyJhbGciOiJIUzUxMiJ9.' || repeat(md5(:to::text), 11) || '.' || md5(:to::text || 'sig'), 'sha256'), 'hex');
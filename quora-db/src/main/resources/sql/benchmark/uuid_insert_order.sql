@@ -0,0 +1,42 @@
+--Insert throughput and uuid index size with random (version 4) against time-ordered (version 7 layout) uuids.
+--Runs on scratch tables shaped like QUESTION, so it can be pointed at any quora database:
+--    psql -h localhost -U postgres -d quora -f uuid_insert_order.sql
+--The time-ordered ids are built the way UuidGenerator builds them: epoch milliseconds, version 7, a sequence
+--within the millisecond and random bits, with 100 ids per simulated millisecond.
+--Compare the insert timings, the index sizes and, if pgstattuple is available, the leaf density of both indexes.
+\timing on
+CREATE EXTENSION IF NOT EXISTS pgcrypto;
+
+DROP TABLE IF EXISTS BENCH_UUID_RANDOM;
+DROP TABLE IF EXISTS BENCH_UUID_ORDERED;
+CREATE TABLE BENCH_UUID_RANDOM(id SERIAL PRIMARY KEY, uuid VARCHAR(200) NOT NULL, content VARCHAR(500) NOT NULL);
+CREATE TABLE BENCH_UUID_ORDERED(id SERIAL PRIMARY KEY, uuid VARCHAR(200) NOT NULL, content VARCHAR(500) NOT NULL);
+CREATE UNIQUE INDEX BENCH_UUID_RANDOM_UUID_UK ON BENCH_UUID_RANDOM(uuid);
+CREATE UNIQUE INDEX BENCH_UUID_ORDERED_UUID_UK ON BENCH_UUID_ORDERED(uuid);
+
+--10 batches of 200000 rows each, so that later batches insert into an index which no longer fits the cache
+\set batch 200000
+SELECT (extract(epoch FROM clock_timestamp()) * 1000)::bigint AS base_ms \gset
+
+\ir uuid_insert_order_step.sql
+\ir uuid_insert_order_step.sql
+\ir uuid_insert_order_step.sql
+\ir uuid_insert_order_step.sql
+\ir uuid_insert_order_step.sql
+\ir uuid_insert_order_step.sql
+\ir uuid_insert_order_step.sql
+\ir uuid_insert_order_step.sql
+\ir uuid_insert_order_step.sql
+\ir uuid_insert_order_step.sql
+
+SELECT 'random' AS ids, pg_size_pretty(pg_relation_size('BENCH_UUID_RANDOM_UUID_UK')) AS index_size
+UNION ALL
+SELECT 'ordered', pg_size_pretty(pg_relation_size('BENCH_UUID_ORDERED_UUID_UK'));
+
+CREATE EXTENSION IF NOT EXISTS pgstattuple;
+SELECT 'random' AS ids, avg_leaf_density, leaf_fragmentation FROM pgstatindex('BENCH_UUID_RANDOM_UUID_UK')
+UNION ALL
+SELECT 'ordered', avg_leaf_density, leaf_fragmentation FROM pgstatindex('BENCH_UUID_ORDERED_UUID_UK');
+
+DROP TABLE BENCH_UUID_RANDOM;
+DROP TABLE BENCH_UUID_ORDERED;
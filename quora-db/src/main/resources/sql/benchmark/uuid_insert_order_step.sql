@@ -0,0 +1,11 @@
+--One batch of uuid_insert_order.sql, expects :batch and :base_ms to be set.
+SELECT coalesce(max(id), 0) AS start_id FROM BENCH_UUID_ORDERED \gset
+
+INSERT INTO BENCH_UUID_RANDOM(uuid, content)
+SELECT gen_random_uuid()::text, 'question ' || n FROM generate_series(:start_id + 1, :start_id + :batch) AS n;
+
+INSERT INTO BENCH_UUID_ORDERED(uuid, content)
+SELECT (lpad(to_hex(:base_ms + n / 100), 12, '0') || '7' || lpad(to_hex(n % 100), 3, '0')
+        || to_hex(8 + (random() * 3)::int) || substr(md5(random()::text), 1, 15))::uuid::text,
+       'question ' || n
+FROM generate_series(:start_id + 1, :start_id + :batch) AS n;
@@ -0,0 +1,13 @@
+--V1: access tokens are looked up by a fixed-width SHA-256 digest instead of the raw VARCHAR(500) token.
+--Brings a database created from an earlier quora.sql in line with the current one, every statement is idempotent.
+CREATE EXTENSION IF NOT EXISTS pgcrypto;
+
+ALTER TABLE USER_AUTH ADD COLUMN IF NOT EXISTS ACCESS_TOKEN_HASH CHAR(64);
+
+--Backfill the existing sessions, the digest is the lower-case hex the application computes for the lookup
+UPDATE USER_AUTH SET ACCESS_TOKEN_HASH = encode(digest(ACCESS_TOKEN, 'sha256'), 'hex') WHERE ACCESS_TOKEN_HASH IS NULL;
+
+--Built without blocking the sign-ins which keep writing to USER_AUTH while the index is created
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS USER_AUTH_ACCESS_TOKEN_HASH_UK ON USER_AUTH(ACCESS_TOKEN_HASH);
+
+ALTER TABLE USER_AUTH ALTER COLUMN ACCESS_TOKEN_HASH SET NOT NULL;
@@ -0,0 +1,2 @@
+--V2: index used by the session reaper to find the expired sessions of USER_AUTH batch by batch.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS USER_AUTH_EXPIRES_AT_IDX ON USER_AUTH(EXPIRES_AT);
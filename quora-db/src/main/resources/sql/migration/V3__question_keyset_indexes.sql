@@ -0,0 +1,3 @@
+--V3: indexes serving the keyset pagination of /question/all and /question/all/{userId} on (date desc, id desc).
+CREATE INDEX CONCURRENTLY IF NOT EXISTS QUESTION_DATE_ID_IDX ON QUESTION(date DESC, id DESC);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS QUESTION_USER_ID_DATE_ID_IDX ON QUESTION(user_id, date DESC, id DESC);
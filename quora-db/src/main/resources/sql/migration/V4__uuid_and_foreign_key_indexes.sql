@@ -0,0 +1,11 @@
+--V4: indexes for the uuid lookups (userByUuid, getQuestionByUuid, getAnswerByUuid), the answer listing and the
+--foreign keys, which are otherwise scanned sequentially on every cascading delete.
+--Built concurrently, so reads and writes go on while they are built. A unique index whose build fails on duplicate
+--uuids is left INVALID: remove the duplicates, DROP INDEX CONCURRENTLY the invalid index and run the migration again.
+--USER_AUTH.ACCESS_TOKEN itself is not indexed, sessions are looked up by ACCESS_TOKEN_HASH (V1).
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS USERS_UUID_UK ON USERS(uuid);
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS QUESTION_UUID_UK ON QUESTION(uuid);
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS ANSWER_UUID_UK ON ANSWER(uuid);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ANSWER_QUESTION_ID_ID_IDX ON ANSWER(question_id, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ANSWER_USER_ID_IDX ON ANSWER(user_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS USER_AUTH_USER_ID_EXPIRES_AT_IDX ON USER_AUTH(USER_ID, EXPIRES_AT);
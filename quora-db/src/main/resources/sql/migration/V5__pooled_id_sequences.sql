@@ -0,0 +1,13 @@
+--V5: the entities draw their ids 50 at a time from the id sequences (pooled-lo) instead of using IDENTITY columns,
+--so that inserts can be sent in JDBC batches. The column defaults keep working for inserts made in SQL, each of them
+--just skips a block of 50 ids. Stop the application before migrating: instances still running with IDENTITY would
+--take ids of the blocks handed out after the change.
+ALTER SEQUENCE USERS_ID_SEQ INCREMENT BY 50;
+ALTER SEQUENCE USER_AUTH_ID_SEQ INCREMENT BY 50;
+ALTER SEQUENCE QUESTION_ID_SEQ INCREMENT BY 50;
+ALTER SEQUENCE ANSWER_ID_SEQ INCREMENT BY 50;
+--Explicitly inserted ids, e.g. of quora_test.sql, may lie beyond the sequence
+SELECT setval('USERS_ID_SEQ', greatest((SELECT max(id) FROM USERS), (SELECT last_value FROM USERS_ID_SEQ)));
+SELECT setval('USER_AUTH_ID_SEQ', greatest((SELECT max(id) FROM USER_AUTH), (SELECT last_value FROM USER_AUTH_ID_SEQ)));
+SELECT setval('QUESTION_ID_SEQ', greatest((SELECT max(id) FROM QUESTION), (SELECT last_value FROM QUESTION_ID_SEQ)));
+SELECT setval('ANSWER_ID_SEQ', greatest((SELECT max(id) FROM ANSWER), (SELECT last_value FROM ANSWER_ID_SEQ)));
@@ -0,0 +1,8 @@
+--V6: number of answers of every question, kept next to the question so that the listings show it without counting.
+--The application adjusts it in the transaction of every answer insert and delete; the answer count repair job
+--(quora.answer-count.repair) corrects any drift, e.g. of answers posted by a previous version during the backfill.
+--The ADD COLUMN with a constant default rewrites QUESTION before PostgreSQL 11, run it in a maintenance window on
+--large tables.
+ALTER TABLE QUESTION ADD COLUMN IF NOT EXISTS answer_count INTEGER NOT NULL DEFAULT 0;
+UPDATE QUESTION q SET answer_count = c.n FROM (SELECT question_id, count(*) n FROM ANSWER GROUP BY question_id) c
+WHERE q.id = c.question_id AND q.answer_count <> c.n;
@@ -0,0 +1,6 @@
+--V7: optimistic version of questions and answers. Every edit increments it, and an edit made against a version is
+--only applied while the row still has that version, so that concurrent edits do not overwrite each other unseen.
+--Existing rows start at version 0. The ADD COLUMN with a constant default rewrites the tables before PostgreSQL 11,
+--run it in a maintenance window on large tables.
+ALTER TABLE QUESTION ADD COLUMN IF NOT EXISTS version INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE ANSWER ADD COLUMN IF NOT EXISTS version INTEGER NOT NULL DEFAULT 0;
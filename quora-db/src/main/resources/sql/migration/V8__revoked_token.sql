@@ -0,0 +1,5 @@
+--V8: tombstones of the live sessions of deleted users. The sessions go with the user by the cascade, their
+--tokens must keep being rejected by the stateless verification of every instance until they expire.
+CREATE TABLE IF NOT EXISTS REVOKED_TOKEN(JTI VARCHAR(200) PRIMARY KEY, EXPIRES_AT TIMESTAMP NOT NULL, REVOKED_AT TIMESTAMP NOT NULL);
+CREATE INDEX IF NOT EXISTS REVOKED_TOKEN_REVOKED_AT_IDX ON REVOKED_TOKEN(REVOKED_AT);
+CREATE INDEX IF NOT EXISTS REVOKED_TOKEN_EXPIRES_AT_IDX ON REVOKED_TOKEN(EXPIRES_AT);
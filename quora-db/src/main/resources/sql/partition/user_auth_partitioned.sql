@@ -0,0 +1,61 @@
+--Converts USER_AUTH into a table range partitioned by LOGIN_AT with one partition per calendar month, named
+--USER_AUTH_PYYYYMM, so that whole months of expired sessions are removed by dropping their partition instead of
+--deleting them row by row. Requires PostgreSQL 11 or later. Optional, run once on a database set up with quora.sql
+--and the migrations: mvn -Ppartition
+--The session reaper creates the partitions of the upcoming months and drops the reaped ones when
+--quora.auth.reaper.partitioned is true.
+--Unique indexes of a partitioned table must contain the partition key, so the primary key becomes (ID, LOGIN_AT) and
+--the index on ACCESS_TOKEN_HASH is not unique; a lookup by digest probes the index of every remaining partition.
+--Statements are delimited by a line holding a single slash, because of the PL/pgSQL block.
+ALTER TABLE USER_AUTH RENAME TO USER_AUTH_UNPARTITIONED
+/
+ALTER INDEX IF EXISTS USER_AUTH_ACCESS_TOKEN_HASH_UK RENAME TO USER_AUTH_UNPARTITIONED_ACCESS_TOKEN_HASH_UK
+/
+ALTER INDEX IF EXISTS USER_AUTH_EXPIRES_AT_IDX RENAME TO USER_AUTH_UNPARTITIONED_EXPIRES_AT_IDX
+/
+ALTER INDEX IF EXISTS USER_AUTH_USER_ID_EXPIRES_AT_IDX RENAME TO USER_AUTH_UNPARTITIONED_USER_ID_EXPIRES_AT_IDX
+/
+CREATE TABLE USER_AUTH(
+	ID BIGINT NOT NULL DEFAULT nextval('user_auth_id_seq'),
+	uuid VARCHAR(200) NOT NULL,
+	USER_ID INTEGER NOT NULL,
+	ACCESS_TOKEN VARCHAR(500) NOT NULL,
+	ACCESS_TOKEN_HASH CHAR(64) NOT NULL,
+	EXPIRES_AT TIMESTAMP NOT NULL,
+	LOGIN_AT TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+	LOGOUT_AT TIMESTAMP NULL,
+	CONSTRAINT USER_AUTH_PARTITIONED_PK PRIMARY KEY (ID, LOGIN_AT),
+	CONSTRAINT FK_USER_AUTH_PARTITIONED_USER_ID FOREIGN KEY(USER_ID) REFERENCES USERS(ID) ON DELETE CASCADE
+) PARTITION BY RANGE (LOGIN_AT)
+/
+--One partition for every month from the oldest existing session up to the month after next
+DO $$
+DECLARE
+	month DATE;
+BEGIN
+	FOR month IN
+		SELECT generate_series(date_trunc('month', coalesce(s.oldest, now())),
+			date_trunc('month', now()) + interval '2 months', interval '1 month')::date
+		FROM (SELECT min(LOGIN_AT) AS oldest FROM USER_AUTH_UNPARTITIONED) s
+	LOOP
+		EXECUTE format('CREATE TABLE %I PARTITION OF USER_AUTH FOR VALUES FROM (%L) TO (%L)',
+			'user_auth_p' || to_char(month, 'YYYYMM'), month, (month + interval '1 month')::date);
+	END LOOP;
+END $$
+/
+INSERT INTO USER_AUTH(ID, uuid, USER_ID, ACCESS_TOKEN, ACCESS_TOKEN_HASH, EXPIRES_AT, LOGIN_AT, LOGOUT_AT)
+	SELECT ID, uuid, USER_ID, ACCESS_TOKEN, ACCESS_TOKEN_HASH, EXPIRES_AT, LOGIN_AT, LOGOUT_AT FROM USER_AUTH_UNPARTITIONED
+/
+--Keep the id sequence when the old table is dropped
+ALTER SEQUENCE user_auth_id_seq OWNED BY USER_AUTH.ID
+/
+DROP TABLE USER_AUTH_UNPARTITIONED
+/
+CREATE INDEX USER_AUTH_ACCESS_TOKEN_HASH_IDX ON USER_AUTH(ACCESS_TOKEN_HASH)
+/
+CREATE INDEX USER_AUTH_EXPIRES_AT_IDX ON USER_AUTH(EXPIRES_AT)
+/
+CREATE INDEX USER_AUTH_USER_ID_EXPIRES_AT_IDX ON USER_AUTH(USER_ID, EXPIRES_AT)
+/
+ANALYZE USER_AUTH
+/
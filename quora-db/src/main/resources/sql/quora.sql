@@ -5,6 +5,7 @@ CREATE TABLE IF NOT EXISTS USERS(id SERIAL, uuid VARCHAR(200) NOT NULL ,firstNam
 INSERT INTO users(
 	id, uuid, firstname, lastname, username, email, password, salt, country, aboutme, dob, role, contactnumber)
 	VALUES (1024,'rdtrdtdyt','Abhi','Mahajan','abhi','a@gmail.com','507FF5FED1CAC746','8Xt6jxoCI3MWsVaKY/1ySAp2qzlb2Z7P89+vDrb1o6U=', 'India' ,'I am @ UpGrad' ,'22-10-1995' , 'admin' , '1222333333' );
+CREATE UNIQUE INDEX IF NOT EXISTS USERS_UUID_UK ON USERS(uuid);
 
 --USER_AUTH table is created to store the login information of all the users
 DROP TABLE IF EXISTS USER_AUTH CASCADE;
@@ -13,6 +14,7 @@ CREATE TABLE IF NOT EXISTS USER_AUTH(
 	uuid VARCHAR(200) NOT NULL,
 	USER_ID INTEGER NOT NULL,
 	ACCESS_TOKEN VARCHAR(500) NOT NULL,
+	ACCESS_TOKEN_HASH CHAR(64) NOT NULL,
 	EXPIRES_AT TIMESTAMP NOT NULL,
 	LOGIN_AT TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
 	LOGOUT_AT TIMESTAMP NULL
@@ -20,11 +22,43 @@ CREATE TABLE IF NOT EXISTS USER_AUTH(
 
 ALTER TABLE USER_AUTH ADD CONSTRAINT FK_USER_AUTH_USER_ID FOREIGN KEY(USER_ID) REFERENCES USERS(ID) ON DELETE CASCADE ;
 
+--Access tokens are looked up by their SHA-256 hex digest, the raw token is not indexed
+CREATE UNIQUE INDEX IF NOT EXISTS USER_AUTH_ACCESS_TOKEN_HASH_UK ON USER_AUTH(ACCESS_TOKEN_HASH);
+--Expired sessions are removed in batches by the session reaper
+CREATE INDEX IF NOT EXISTS USER_AUTH_EXPIRES_AT_IDX ON USER_AUTH(EXPIRES_AT);
+--Active sessions of a user, and the cascade of user deletes
+CREATE INDEX IF NOT EXISTS USER_AUTH_USER_ID_EXPIRES_AT_IDX ON USER_AUTH(USER_ID, EXPIRES_AT);
+
+--REVOKED_TOKEN holds the live sessions of deleted users, by the uuid of their USER_AUTH row (the jti of the token),
+--until they expire: the revocation filter of every instance is rebuilt and refreshed from it after the cascade
+DROP TABLE IF EXISTS REVOKED_TOKEN CASCADE;
+CREATE TABLE IF NOT EXISTS REVOKED_TOKEN(JTI VARCHAR(200) PRIMARY KEY, EXPIRES_AT TIMESTAMP NOT NULL, REVOKED_AT TIMESTAMP NOT NULL);
+CREATE INDEX IF NOT EXISTS REVOKED_TOKEN_REVOKED_AT_IDX ON REVOKED_TOKEN(REVOKED_AT);
+CREATE INDEX IF NOT EXISTS REVOKED_TOKEN_EXPIRES_AT_IDX ON REVOKED_TOKEN(EXPIRES_AT);
+
 --QUESTION table is created to store the questions related information posted by any user in the Application
 DROP TABLE IF EXISTS QUESTION CASCADE;
-CREATE TABLE IF NOT EXISTS QUESTION(id SERIAL,uuid VARCHAR(200) NOT NULL, content VARCHAR(500) NOT NULL, date TIMESTAMP NOT NULL , user_id INTEGER NOT NULL, PRIMARY KEY(id), FOREIGN KEY (user_id) REFERENCES USERS(id) ON DELETE CASCADE);
+--answer_count is the number of ANSWER rows of the question, maintained by the application with every answer insert and delete
+--version is incremented by every edit of the question, an edit of a given version is only applied to that version
+CREATE TABLE IF NOT EXISTS QUESTION(id SERIAL,uuid VARCHAR(200) NOT NULL, content VARCHAR(500) NOT NULL, date TIMESTAMP NOT NULL , user_id INTEGER NOT NULL, answer_count INTEGER NOT NULL DEFAULT 0, version INTEGER NOT NULL DEFAULT 0, PRIMARY KEY(id), FOREIGN KEY (user_id) REFERENCES USERS(id) ON DELETE CASCADE);
+--Keyset pagination of the question listings, newest first
+CREATE UNIQUE INDEX IF NOT EXISTS QUESTION_UUID_UK ON QUESTION(uuid);
+CREATE INDEX IF NOT EXISTS QUESTION_DATE_ID_IDX ON QUESTION(date DESC, id DESC);
+CREATE INDEX IF NOT EXISTS QUESTION_USER_ID_DATE_ID_IDX ON QUESTION(user_id, date DESC, id DESC);
 
 
 --ANSWER table is created to store the answers related information in reply to any question posted in the Application
 DROP TABLE IF EXISTS ANSWER CASCADE;
-CREATE TABLE IF NOT EXISTS ANSWER(id SERIAL,uuid VARCHAR(200) NOT NULL, ans VARCHAR(255) NOT NULL,date TIMESTAMP NOT NULL , user_id INTEGER NOT NULL, question_id INTEGER NOT NULL , PRIMARY KEY(id), FOREIGN KEY (user_id) REFERENCES USERS(id) ON DELETE CASCADE, FOREIGN KEY (question_id) REFERENCES QUESTION(id) ON DELETE CASCADE);
+--version is incremented by every edit of the answer, as for QUESTION
+CREATE TABLE IF NOT EXISTS ANSWER(id SERIAL,uuid VARCHAR(200) NOT NULL, ans VARCHAR(255) NOT NULL,date TIMESTAMP NOT NULL , user_id INTEGER NOT NULL, question_id INTEGER NOT NULL , version INTEGER NOT NULL DEFAULT 0, PRIMARY KEY(id), FOREIGN KEY (user_id) REFERENCES USERS(id) ON DELETE CASCADE, FOREIGN KEY (question_id) REFERENCES QUESTION(id) ON DELETE CASCADE);
+CREATE UNIQUE INDEX IF NOT EXISTS ANSWER_UUID_UK ON ANSWER(uuid);
+--Answers of a question in id order, and the cascade of question deletes
+CREATE INDEX IF NOT EXISTS ANSWER_QUESTION_ID_ID_IDX ON ANSWER(question_id, id);
+CREATE INDEX IF NOT EXISTS ANSWER_USER_ID_IDX ON ANSWER(user_id);
+
+--Hibernate draws the ids 50 at a time from the sequences (pooled-lo), each NEXTVAL reserves the following 50 ids
+ALTER SEQUENCE USERS_ID_SEQ INCREMENT BY 50;
+ALTER SEQUENCE USER_AUTH_ID_SEQ INCREMENT BY 50;
+ALTER SEQUENCE QUESTION_ID_SEQ INCREMENT BY 50;
+ALTER SEQUENCE ANSWER_ID_SEQ INCREMENT BY 50;
+SELECT setval('USERS_ID_SEQ', (SELECT max(id) FROM USERS));
@@ -14,10 +14,10 @@ INSERT INTO users(id, uuid, firstname, lastname, username, email, password, salt
 
 
 --Insert values in USER_AUTH table
-insert into user_auth (id , uuid , user_id , access_token , expires_at , login_at, logout_at) values(1024 , 'database_uuid' , 1025 , 'database_accesstoken' , '2018-09-17 21:07:02.07' , '2018-09-17 13:07:02.07' , null);
-insert into user_auth (id , uuid , user_id , access_token , expires_at , login_at , logout_at) values(1025 , 'database_uuid1' , 1026 , 'database_accesstoken1' , '2018-09-17 21:07:02.07' , '2018-09-17 13:07:02.07' , null );
-insert into user_auth (id , uuid , user_id , access_token , expires_at , login_at , logout_at) values(1026 , 'database_uuid2' , 1027 , 'database_accesstoken2' , '2018-09-17 21:07:02.07' , '2018-09-17 13:07:02.07' , null );
-insert into user_auth (id , uuid , user_id , access_token , expires_at , login_at , logout_at) values(1027 , 'database_uuid3' , 1028 , 'database_accesstoken3' , '2018-09-17 21:07:02.07' , '2018-09-17 13:07:02.07' , '2018-09-17 15:07:02.07' );
+insert into user_auth (id , uuid , user_id , access_token , access_token_hash , expires_at , login_at, logout_at) values(1024 , 'database_uuid' , 1025 , 'database_accesstoken' , '25e589b545fec1a8b8c99b8c43792fccce5add504862dac31e220c2ee97f56f5' , '2018-09-17 21:07:02.07' , '2018-09-17 13:07:02.07' , null);
+insert into user_auth (id , uuid , user_id , access_token , access_token_hash , expires_at , login_at , logout_at) values(1025 , 'database_uuid1' , 1026 , 'database_accesstoken1' , 'ed5e89f467d7b102339a0462eb8777df77b444a9b8c660e44041f1914d51654a' , '2018-09-17 21:07:02.07' , '2018-09-17 13:07:02.07' , null );
+insert into user_auth (id , uuid , user_id , access_token , access_token_hash , expires_at , login_at , logout_at) values(1026 , 'database_uuid2' , 1027 , 'database_accesstoken2' , 'aa4e78e6403260a968220c3487c7eaff2bffd32e4cffa64c9e7b637a64576a24' , '2018-09-17 21:07:02.07' , '2018-09-17 13:07:02.07' , null );
+insert into user_auth (id , uuid , user_id , access_token , access_token_hash , expires_at , login_at , logout_at) values(1027 , 'database_uuid3' , 1028 , 'database_accesstoken3' , '94acfb0d103f1109873d85730b1314f225dcb62997c722a9cb52140a58dd49d1' , '2018-09-17 21:07:02.07' , '2018-09-17 13:07:02.07' , '2018-09-17 15:07:02.07' );
 
 
 --Insert values in QUESTION table
@@ -26,3 +26,10 @@ insert into question (id,uuid,content,date,user_id) values(1024,'database_questi
 
 --Insert values in ANSWER table
 insert into answer(id,uuid,ans,date,user_id,question_id) values (1024,'database_answer_uuid','my_answer','2018-09-17 19:41:19.593',1026,1024);
+update question set answer_count = (select count(*) from answer where answer.question_id = question.id);
+
+--Start the id sequences after the explicit ids above
+SELECT setval('USERS_ID_SEQ', (SELECT max(id) FROM USERS));
+SELECT setval('USER_AUTH_ID_SEQ', (SELECT max(id) FROM USER_AUTH));
+SELECT setval('QUESTION_ID_SEQ', (SELECT max(id) FROM QUESTION));
+SELECT setval('ANSWER_ID_SEQ', (SELECT max(id) FROM ANSWER));
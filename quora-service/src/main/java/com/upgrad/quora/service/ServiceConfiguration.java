@@ -1,15 +1,58 @@
 package com.upgrad.quora.service;
 
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
 
 /**
  * Enabling the component scan and entity scan of classes in the below mentioned "com.upgrad.quora.service" and "com.upgrad.quora.service.entity" packages respectively.
+ * Scheduling is enabled for the background maintenance of the in-memory auth structures.
  */
 @Configuration
+@EnableScheduling
 @ComponentScan("com.upgrad.quora.service")
 @EntityScan("com.upgrad.quora.service.entity")
 public class ServiceConfiguration {
+
+    /**
+     * Runs the scheduled jobs on a pool instead of the single thread of the default scheduler, so that a long job,
+     * e.g. the answer count repair, does not hold up the revocation refresh, the feed reload and the other jobs.
+     * @param poolSize "quora.scheduling.pool-size"
+     * @return scheduler of the @Scheduled methods
+     */
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(@Value("${quora.scheduling.pool-size:4}") final int poolSize) {
+        final ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("scheduled-");
+        return scheduler;
+    }
+
+    /**
+     * Passes the Ehcache configuration of the second-level cache regions to Hibernate as an absolute URI, the
+     * JCache provider does not resolve "classpath:" locations.
+     * @param config location of the configuration, "quora.entity-cache.config"
+     * @return customizer setting hibernate.javax.cache.uri
+     */
+    @Bean
+    public HibernatePropertiesCustomizer entityCacheConfiguration(
+            @Value("${quora.entity-cache.config:classpath:ehcache.xml}") final Resource config) {
+        return properties -> {
+            try {
+                properties.put("hibernate.javax.cache.uri", config.getURI().toString());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Second-level cache configuration not found: " + config, e);
+            }
+        };
+    }
 }
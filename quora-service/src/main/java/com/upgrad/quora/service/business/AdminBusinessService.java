@@ -1,8 +1,16 @@
 package com.upgrad.quora.service.business;
 
+import com.upgrad.quora.service.cache.CollectionVersions;
+import com.upgrad.quora.service.cache.EntityCache;
+import com.upgrad.quora.service.cache.QuestionFeedCache;
+import com.upgrad.quora.service.cache.TokenRevocationFilter;
+import com.upgrad.quora.service.cache.UserAuthCache;
+import com.upgrad.quora.service.common.AuthenticatedUser;
+import com.upgrad.quora.service.dao.QuestionDao;
 import com.upgrad.quora.service.dao.UserAuthDao;
 import com.upgrad.quora.service.dao.UserDao;
-import com.upgrad.quora.service.entity.UserAuthEntity;
+import com.upgrad.quora.service.entity.AnswerEntity;
+import com.upgrad.quora.service.entity.QuestionEntity;
 import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
@@ -11,6 +19,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.ZonedDateTime;
+
 @Service
 public class AdminBusinessService {
     @Autowired
@@ -19,38 +29,60 @@ public class AdminBusinessService {
     @Autowired
     private UserAuthDao userAuthDao;
 
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Autowired
+    private UserAuthCache userAuthCache;
+
+    @Autowired
+    private TokenRevocationFilter tokenRevocationFilter;
+
+    @Autowired
+    private QuestionFeedCache questionFeedCache;
+
+    @Autowired
+    private CollectionVersions collectionVersions;
+
+    @Autowired
+    private EntityCache entityCache;
+
     /**
-     * Checks if the autherization token is valid and role of the user is admin.
+     * Checks if the role of the signed-in user is admin.
      * Find the user with the provided userid, if user exists, delete the user from DB
      * @param userId
-     * @param authorizationToken
+     * @param authenticatedUser
      * @return Returns UserEntity Object on success.
      * @throws AuthorizationFailedException
      * @throws UserNotFoundException
      */
     @Transactional(propagation = Propagation.REQUIRED)
-    public UserEntity userDelete(final String userId, final String authorizationToken)
+    public UserEntity userDelete(final String userId, final AuthenticatedUser authenticatedUser)
             throws AuthorizationFailedException, UserNotFoundException {
-        UserAuthEntity userAuthEntity = userAuthDao.getUserAuth(authorizationToken);
-        if(userAuthEntity == null){
-            throw new AuthorizationFailedException("ATHR-001","User has not signed in");
-        } else{
-            if(userAuthEntity.getLogoutAt() != null){
-                throw new AuthorizationFailedException("ATHR-002","User is signed out.");
-            } else{
-
-                if(userAuthEntity.getUser().getRole().equals("nonadmin")){
-                    throw new AuthorizationFailedException("ATHR-003","Unauthorized Access, Entered user is not an admin");
-                }
-
-                UserEntity userEntity = userDao.getUserByUuid(userId);
-                if(userEntity == null)
-                    throw new UserNotFoundException("USR-001","User with entered uuid to be deleted does not exist");
-                else
-                    userDao.deleteUser(userEntity);
-                    return userEntity;
-            }
+        if("nonadmin".equals(authenticatedUser.getRole())){
+            throw new AuthorizationFailedException("ATHR-003","Unauthorized Access, Entered user is not an admin");
         }
 
+        UserEntity userEntity = userDao.getUserByUuid(userId);
+        if(userEntity == null){
+            throw new UserNotFoundException("USR-001","User with entered uuid to be deleted does not exist");
+        }
+        //live sessions of the deleted user must be rejected by the stateless verification as well, on every instance
+        //and after restarts: the tombstones outlive the sessions removed by the DB cascade
+        final ZonedDateTime now = ZonedDateTime.now();
+        userAuthDao.tombstoneActiveSessions(userEntity.getId(), now);
+        for(Object[] session : userAuthDao.getActiveSessions(userEntity.getId(), now)){
+            tokenRevocationFilter.revoke((String) session[0], (ZonedDateTime) session[1]);
+        }
+        //the answers of the deleted user are removed by the DB cascade, uncount them from the questions first
+        questionDao.decrementAnswerCountsOfUser(userEntity.getId());
+        userDao.deleteUser(userEntity);
+        //sessions of the deleted user are removed by the DB cascade, drop the cached ones as well
+        userAuthCache.invalidateUser(userEntity.getId());
+        //so are the questions of the deleted user, the feed is read from the DB until the snapshot is reloaded
+        questionFeedCache.invalidate();
+        collectionVersions.invalidateAll();
+        entityCache.evictAfterCommit(QuestionEntity.class, AnswerEntity.class);
+        return userEntity;
     }
 }
@@ -1,22 +1,38 @@
 package com.upgrad.quora.service.business;
 
+import com.upgrad.quora.service.cache.CollectionVersions;
+import com.upgrad.quora.service.cache.EntityCache;
+import com.upgrad.quora.service.cache.QuestionFeedCache;
+import com.upgrad.quora.service.common.AuthenticatedUser;
+import com.upgrad.quora.service.common.BulkItemResult;
+import com.upgrad.quora.service.common.IdCursor;
+import com.upgrad.quora.service.common.KeysetPage;
 import com.upgrad.quora.service.dao.AnswerDao;
 import com.upgrad.quora.service.dao.QuestionDao;
-import com.upgrad.quora.service.dao.UserAuthDao;
 import com.upgrad.quora.service.dao.UserDao;
 import com.upgrad.quora.service.entity.AnswerEntity;
 import com.upgrad.quora.service.entity.QuestionEntity;
-import com.upgrad.quora.service.entity.UserAuthEntity;
+import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AnswerNotFoundException;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.EditConflictException;
+import com.upgrad.quora.service.exception.InvalidBulkRequestException;
+import com.upgrad.quora.service.exception.InvalidPageRequestException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
+import com.upgrad.quora.service.projection.AnswerSummary;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 @Service
 public class AnswerBusinessService {
@@ -24,128 +40,178 @@ public class AnswerBusinessService {
     @Autowired
     private UserDao userDao;
 
-    @Autowired
-    private UserAuthDao userAuthDao;
-
     @Autowired
     private QuestionDao questionDao;
 
     @Autowired
     private AnswerDao answerDao;
 
+    @Autowired
+    private CollectionVersions collectionVersions;
+
+    @Autowired
+    private QuestionFeedCache questionFeedCache;
+
+    @Autowired
+    private EntityCache entityCache;
+
+    @Value("${quora.bulk.max-items:1000}")
+    private int maxBulkItems;
+
+    @Value("${quora.pagination.default-size:20}")
+    private int defaultPageSize;
+
+    @Value("${quora.pagination.max-size:100}")
+    private int maxPageSize;
+
+    //Length of ANSWER.ans
+    private static final int MAX_ANSWER_LENGTH = 255;
+
     /**
-     * Method accepts the question uuid, answer entity and authorization token.
-     * If the question and authorization token are valid, the answer is persisted in the DB
+     * Method accepts the question uuid, answer entity and the signed-in user.
+     * If the question is valid, the answer is persisted in the DB and counted in the answer count of the question.
+     * The question is not loaded, the insert resolves it by uuid, so the returned answer has neither id nor
+     * question set.
      * @param questionUuid
      * @param answerEntity
-     * @param authorizationToken
+     * @param authenticatedUser
      * @return AnswerEntity
-     * @throws AuthorizationFailedException
      * @throws InvalidQuestionException
      */
     @Transactional(propagation = Propagation.REQUIRED)
     public AnswerEntity createAnswer(
-                final String questionUuid, AnswerEntity answerEntity, final String authorizationToken)
-            throws AuthorizationFailedException, InvalidQuestionException{
-        //Check if question exists
-        QuestionEntity questionEntity = questionDao.getQuestionByUuid(questionUuid);
-        if(questionEntity == null){
+                final String questionUuid, AnswerEntity answerEntity, final AuthenticatedUser authenticatedUser)
+            throws InvalidQuestionException{
+        //Nothing inserted means the question does not exist
+        if(answerDao.createAnswer(answerEntity, questionUuid, authenticatedUser.getUserId()) == 0){
             throw new InvalidQuestionException("QUES-001","The question entered is invalid");
-        } else {
-            //Is authorization token valid
-            UserAuthEntity userAuthEntity = userAuthDao.getUserAuth(authorizationToken);
-            if(userAuthEntity == null){
-                throw new AuthorizationFailedException("ATHR-001","User has not signed in");
+        }
+        questionFeedCache.answersChanged(questionUuid, 1);
+        collectionVersions.questionChanged(questionUuid);
+        return answerEntity;
+    }
+
+    /**
+     * Method saves the answers of the signed-in user to the DB in one transaction. The questions of all the
+     * answers are resolved with a single query. An answer to an unknown question or without content fails on
+     * its own, the others are inserted in JDBC batches and counted with one update per question.
+     * @param newAnswers
+     * @param questionUuids uuid of the question of the answer at the same position
+     * @param authenticatedUser
+     * @return result of every answer, in order
+     * @throws InvalidBulkRequestException if there are no answers or more than the configured maximum
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public List<BulkItemResult> createAnswers(final List<AnswerEntity> newAnswers, final List<String> questionUuids,
+                                              final AuthenticatedUser authenticatedUser)
+            throws InvalidBulkRequestException{
+        if(newAnswers.isEmpty() || newAnswers.size() > maxBulkItems){
+            throw new InvalidBulkRequestException("BULK-001",
+                    "Number of answers must be between 1 and " + maxBulkItems);
+        }
+        final Map<String, Integer> questionIds = questionDao.getQuestionIdsByUuids(new HashSet<>(questionUuids));
+        final UserEntity userEntity = userDao.getUserReference(authenticatedUser.getUserId());
+        final List<AnswerEntity> validAnswers = new ArrayList<>(newAnswers.size());
+        final List<BulkItemResult> results = new ArrayList<>(newAnswers.size());
+        //Answers per question id, updated in id order so that concurrent bulks lock the questions in the same order
+        final Map<Integer, Integer> answerCounts = new TreeMap<>();
+        final Map<Integer, String> countedUuids = new HashMap<>();
+        for (int i = 0; i < newAnswers.size(); i++) {
+            final AnswerEntity newAnswer = newAnswers.get(i);
+            final Integer questionId = questionIds.get(questionUuids.get(i));
+            final String answer = newAnswer.getAnswer();
+            if(questionId == null){
+                results.add(BulkItemResult.failed(i, "QUES-001", "The question entered is invalid"));
+            } else if(answer == null || answer.trim().isEmpty()){
+                results.add(BulkItemResult.failed(i, "ANS-002", "Answer must not be empty"));
+            } else if(answer.length() > MAX_ANSWER_LENGTH){
+                results.add(BulkItemResult.failed(i, "ANS-002",
+                        "Answer must not exceed " + MAX_ANSWER_LENGTH + " characters"));
             } else {
-                if(userAuthEntity.getLogoutAt() != null){
-                    throw new AuthorizationFailedException("ATHR-002","User is signed out.Sign in first to post an answer");
-                } else {
-                    //Add user and question to the answer
-                    answerEntity.setQuestion(questionEntity);
-                    answerEntity.setUser(userAuthEntity.getUser());
-                    //Persist in the DB
-                    return  answerDao.createAnswer(answerEntity);
-                }
+                newAnswer.setUser(userEntity);
+                newAnswer.setQuestion(questionDao.getQuestionReference(questionId));
+                validAnswers.add(newAnswer);
+                answerCounts.merge(questionId, 1, Integer::sum);
+                countedUuids.put(questionId, questionUuids.get(i));
+                results.add(BulkItemResult.created(i, newAnswer.getUuid()));
             }
         }
-
+        answerDao.createAnswers(validAnswers);
+        for (Map.Entry<Integer, Integer> answerCount : answerCounts.entrySet()) {
+            final String questionUuid = countedUuids.get(answerCount.getKey());
+            questionDao.updateAnswerCount(answerCount.getKey(), answerCount.getValue());
+            questionFeedCache.answersChanged(questionUuid, answerCount.getValue());
+            collectionVersions.questionChanged(questionUuid);
+        }
+        return results;
     }
 
     /**
-     * Method updates the answer if the answer exists and the authorization token provided belongs to answer owner
+     * Method updates the answer if the answer exists and the signed-in user is the answer owner.
+     * The answer is changed by one conditional UPDATE on the uuid, the owner and, if the answer entity has one,
+     * the version the user read, without reading the answer first. Only when no row is updated is the answer read,
+     * under a row lock, to tell an unknown answer, another owner and a stale version apart. Without a version the
+     * edit is applied to whatever the answer is now.
      * @param answerId
      * @param answerEntity
-     * @param authorizationToken
-     * @return Answer Entity
+     * @param authenticatedUser
+     * @return Answer Entity with the id, new version, content, date and the uuid of its question
      * @throws AuthorizationFailedException
      * @throws AnswerNotFoundException
+     * @throws EditConflictException if the answer has been edited since the version of the answer entity
      */
     @Transactional(propagation = Propagation.REQUIRED)
     public AnswerEntity editAnswerContent(
-            final String answerId, AnswerEntity answerEntity, final String authorizationToken)
-        throws AuthorizationFailedException, AnswerNotFoundException{
-        //Check if the authorization token is valid
-        UserAuthEntity userAuthEntity = userAuthDao.getUserAuth(authorizationToken);
-        if(userAuthEntity == null){
-            throw new AuthorizationFailedException("ATHR-001","User has not signed in");
-        } else {
-            if(userAuthEntity.getLogoutAt() != null){
-                throw new AuthorizationFailedException("ATHR-002","User is signed out.Sign in first to edit an answer");
-            } else {
-                //Get answer by UUID
-                AnswerEntity answerTobeUpdated = answerDao.getAnswerByUuid(answerId);
-                if(answerTobeUpdated == null){
-                    throw new AnswerNotFoundException("ANS-001","Entered answer uuid does not exist");
-                } else {
-                    //Only answer owner can update the answer.
-                    if(answerTobeUpdated.getUser().getId() == userAuthEntity.getUser().getId()){
-                        answerTobeUpdated.setAnswer(answerEntity.getAnswer());
-                        answerTobeUpdated.setDate(ZonedDateTime.now());
-                        answerDao.updateAnswer(answerTobeUpdated);
-                        return answerTobeUpdated;
-                    } else{
-                        throw new AuthorizationFailedException("ATHR-003","Only the answer owner can edit the answer");
-                    }
-                }
+            final String answerId, AnswerEntity answerEntity, final AuthenticatedUser authenticatedUser)
+        throws AuthorizationFailedException, AnswerNotFoundException, EditConflictException{
+        final AnswerEntity editedAnswer = answerDao.editAnswerContent(answerId, authenticatedUser.getUserId(),
+                answerEntity.getAnswer(), ZonedDateTime.now(), answerEntity.getVersion());
+        if(editedAnswer == null){
+            AnswerEntity answerTobeUpdated = answerDao.lockAnswerByUuid(answerId);
+            if(answerTobeUpdated == null){
+                throw new AnswerNotFoundException("ANS-001","Entered answer uuid does not exist");
+            }
+            //Only answer owner can update the answer.
+            if(!answerTobeUpdated.getUser().getId().equals(authenticatedUser.getUserId())){
+                throw new AuthorizationFailedException("ATHR-003","Only the answer owner can edit the answer");
             }
+            throw new EditConflictException("ANS-003","The answer has been changed since version " +
+                    answerEntity.getVersion() + ", it is now at version " + answerTobeUpdated.getVersion());
         }
+        entityCache.lockUntilCompletion(AnswerEntity.class, editedAnswer.getId());
+        collectionVersions.answersChanged(editedAnswer.getQuestion().getUuid());
+        return editedAnswer;
     }
 
     /**
-     * Method validates if the answer uuid is valid and authorization token belongs answer owner or user having admin
+     * Method validates if the answer uuid is valid and the signed-in user is the answer owner or has admin
      * role and delete the answer from the DB
      * @param answerId
-     * @param authorizationToken
+     * @param authenticatedUser
      * @return AnswerEntity
      * @throws AuthorizationFailedException
      * @throws AnswerNotFoundException
      */
     @Transactional(propagation = Propagation.REQUIRED)
-    public AnswerEntity deleteAnswer(final String answerId, final String authorizationToken)
+    public AnswerEntity deleteAnswer(final String answerId, final AuthenticatedUser authenticatedUser)
         throws AuthorizationFailedException, AnswerNotFoundException{
 
-        //Check if the authorization token is valid
-        UserAuthEntity userAuthEntity = userAuthDao.getUserAuth(authorizationToken);
-        if(userAuthEntity == null){
-            throw new AuthorizationFailedException("ATHR-001","User has not signed in");
+        //Locked read, the delete checks the version of the row and not of a cached copy
+        AnswerEntity answerTobeDeleted = answerDao.lockAnswerByUuid(answerId);
+        if(answerTobeDeleted == null){
+            throw new AnswerNotFoundException("ANS-001","Entered answer uuid does not exist");
         } else {
-            if(userAuthEntity.getLogoutAt() != null){
-                throw new AuthorizationFailedException("ATHR-002","User is signed out.Sign in first to delete an answer");
-            } else {
-                //Get answer by UUID
-                AnswerEntity answerTobeDeleted = answerDao.getAnswerByUuid(answerId);
-                if(answerTobeDeleted == null){
-                    throw new AnswerNotFoundException("ANS-001","Entered answer uuid does not exist");
-                } else {
-                    //Only answer owner or user with admin role can delete the answer.
-                    if(answerTobeDeleted.getUser().getId() == userAuthEntity.getUser().getId() ||
-                        userAuthEntity.getUser().getRole().equals("admin")){
-                        answerDao.deleteAnswer(answerTobeDeleted);
-                        return answerTobeDeleted;
-                    } else{
-                        throw new AuthorizationFailedException("ATHR-003","Only the answer owner or admin can delete the answer");
-                    }
-                }
+            //Only answer owner or user with admin role can delete the answer.
+            if(answerTobeDeleted.getUser().getId().equals(authenticatedUser.getUserId()) ||
+                authenticatedUser.isAdmin()){
+                final QuestionEntity question = answerTobeDeleted.getQuestion();
+                answerDao.deleteAnswer(answerTobeDeleted);
+                questionDao.updateAnswerCount(question.getId(), -1);
+                questionFeedCache.answersChanged(question.getUuid(), -1);
+                collectionVersions.questionChanged(question.getUuid());
+                return answerTobeDeleted;
+            } else{
+                throw new AuthorizationFailedException("ATHR-003","Only the answer owner or admin can delete the answer");
             }
         }
 
@@ -163,33 +229,43 @@ public class AnswerBusinessService {
 
 
     /**
-     * Method returns the list of answers for a question if authorization token is valid.
+     * Method returns one page of the answers for a question in the order they were posted, each with the question
+     * content. The question is only looked up on its own when the page is empty, to tell an unknown question apart.
      * @param questionUuid
-     * @param authorizationToken
-     * @return List of AnswerEntity
-     * @throws AuthorizationFailedException
+     * @param cursor next page cursor of the previous page, null for the first page
+     * @param limit requested page size, capped at the configured maximum
+     * @return page of AnswerSummary
      * @throws InvalidQuestionException
+     * @throws InvalidPageRequestException if the cursor is malformed
      */
-    public List<AnswerEntity> getAllAnswersToQuestion(final String questionUuid, final String authorizationToken)
-        throws AuthorizationFailedException, InvalidQuestionException{
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public KeysetPage<AnswerSummary> getAllAnswersToQuestion(final String questionUuid, final String cursor,
+                                                             final Integer limit)
+            throws InvalidQuestionException, InvalidPageRequestException{
+        final IdCursor after = decodeCursor(cursor);
+        final int pageSize = limit == null ? Math.min(defaultPageSize, maxPageSize)
+                : Math.max(1, Math.min(limit, maxPageSize));
+        //One more record than the page size tells whether there is a next page
+        final List<AnswerSummary> answers = answerDao.getAnswersToQuestionPage(questionUuid, after, pageSize + 1);
+        if(answers.isEmpty() && getQuestionByUuid(questionUuid) == null){
+            throw new InvalidQuestionException("QUES-001","The question with entered uuid whose details " +
+                    "are to be seen does not exist");
+        }
+        if(answers.size() <= pageSize){
+            return new KeysetPage<>(answers, null);
+        }
+        final List<AnswerSummary> page = answers.subList(0, pageSize);
+        return new KeysetPage<>(page, new IdCursor(page.get(pageSize - 1).getId()).encode());
+    }
 
-        //Check if the authorization token is valid
-        UserAuthEntity userAuthEntity = userAuthDao.getUserAuth(authorizationToken);
-        if(userAuthEntity == null){
-            throw new AuthorizationFailedException("ATHR-001","User has not signed in");
-        } else {
-            if(userAuthEntity.getLogoutAt() != null){
-                throw new AuthorizationFailedException("ATHR-002","User is signed out.Sign in first to get the answers");
-            } else {
-                //Get question by UUID
-                QuestionEntity questionEntity = getQuestionByUuid(questionUuid);
-                if(questionEntity == null){
-                    throw new InvalidQuestionException("QUES-001","The question with entered uuid whose details " +
-                            "are to be seen does not exist");
-                } else {
-                    return answerDao.getAllAnswersToQuestion(questionEntity);
-                }
-            }
+    private static IdCursor decodeCursor(final String cursor) throws InvalidPageRequestException{
+        if(cursor == null || cursor.isEmpty()){
+            return null;
+        }
+        try {
+            return IdCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPageRequestException("PAGE-001", "Entered page cursor is not valid");
         }
     }
 
@@ -0,0 +1,71 @@
+package com.upgrad.quora.service.business;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.upgrad.quora.service.cache.TokenRevocationFilter;
+import com.upgrad.quora.service.common.AuthenticatedUser;
+import com.upgrad.quora.service.dao.UserAuthDao;
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+@Service
+public class AuthorizationBusinessService {
+
+    @Autowired
+    private UserAuthDao userAuthDao;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private TokenRevocationFilter tokenRevocationFilter;
+
+    @Value("${quora.auth.stateless-verification:false}")
+    private boolean statelessVerification;
+
+    /**
+     * Resolves the authorization token to the signed-in user. This is the only place where access tokens of
+     * the authenticated endpoints are validated.
+     * In stateless verification mode signature, issuer and expiry of the token are verified in-process, revocation
+     * is checked against the in-memory revocation filter and the user is taken from the token claims, so no DB
+     * query is needed. The DB is the source of the revocations, but is read by the filter on its own schedule:
+     * a token signed out or tombstoned on another instance is accepted here for up to
+     * "quora.auth.revocation.refresh-interval-ms" after the sign-out.
+     * @param authorizationToken
+     * @param signedOutMessage message returned when the user of the token has signed out
+     * @return AuthenticatedUser of the token
+     * @throws AuthorizationFailedException ATHR-001 if the token does not exist, ATHR-002 if the user is signed out
+     */
+    public AuthenticatedUser authorize(final String authorizationToken, final String signedOutMessage)
+            throws AuthorizationFailedException {
+        if(statelessVerification){
+            return authorizeStateless(authorizationToken, signedOutMessage);
+        }
+        UserAuthEntity userAuthEntity = userAuthDao.getUserAuth(authorizationToken);
+        if(userAuthEntity == null){
+            throw new AuthorizationFailedException("ATHR-001","User has not signed in");
+        }
+        if(userAuthEntity.getLogoutAt() != null){
+            throw new AuthorizationFailedException("ATHR-002", signedOutMessage);
+        }
+        final UserEntity userEntity = userAuthEntity.getUser();
+        return new AuthenticatedUser(userEntity.getId(), userEntity.getUuid(), userEntity.getRole());
+    }
+
+    private AuthenticatedUser authorizeStateless(final String authorizationToken, final String signedOutMessage)
+            throws AuthorizationFailedException {
+        //Forged, expired and malformed tokens are rejected without touching the DB
+        final DecodedJWT jwt = jwtTokenProvider.verify(authorizationToken);
+        if(jwt == null || jwt.getAudience() == null || jwt.getAudience().isEmpty()){
+            throw new AuthorizationFailedException("ATHR-001","User has not signed in");
+        }
+        if(tokenRevocationFilter.isRevoked(jwt.getId())){
+            throw new AuthorizationFailedException("ATHR-002", signedOutMessage);
+        }
+        return new AuthenticatedUser(jwt.getClaim(JwtTokenProvider.USER_ID_CLAIM).asInt(), jwt.getAudience().get(0),
+                jwt.getClaim(JwtTokenProvider.ROLE_CLAIM).asString());
+    }
+}
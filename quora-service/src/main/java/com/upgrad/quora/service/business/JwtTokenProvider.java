@@ -1,54 +1,129 @@
 package com.upgrad.quora.service.business;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
 import com.upgrad.quora.service.common.GenericErrorCode;
 import com.upgrad.quora.service.common.UnexpectedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
 
+import java.security.SecureRandom;
 import java.time.ZonedDateTime;
-import java.time.temporal.ChronoField;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.Date;
-import java.util.UUID;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
- * This class is used in the project to provide JWT token after successful authentication
+ * This class is used in the project to provide JWT token after successful authentication and to verify the tokens
+ * in-process. Tokens are signed with a server side key ring: "quora.jwt.keys" lists the keys as
+ * "keyId:base64Secret" pairs, "quora.jwt.active-key-id" names the key used for signing new tokens and the "kid"
+ * header of every token names the key it was signed with, so that keys can be rotated while older tokens stay valid.
+ * Without configured keys an ephemeral key is generated, tokens signed with it do not survive a restart.
  */
+@Component
 public class JwtTokenProvider {
     private static final String TOKEN_ISSUER = "https://quora.io";
 
-    private final Algorithm algorithm;
+    public static final String USER_ID_CLAIM = "uid";
+
+    public static final String ROLE_CLAIM = "role";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JwtTokenProvider.class);
+
+    private final Map<String, Algorithm> keyRing;
+
+    private final Map<String, JWTVerifier> verifiers;
+
+    private final String activeKeyId;
 
     /**
-     * A constructor for JwtTokenProvider class which receives user password as an argument to be used in the signature part of JWT access token.
+     * A constructor for JwtTokenProvider class which receives the key ring and the id of the signing key.
      */
-    public JwtTokenProvider(final String secret) {
+    @Autowired
+    public JwtTokenProvider(@Value("${quora.jwt.keys:}") final String keys,
+                            @Value("${quora.jwt.active-key-id:}") final String activeKeyId,
+                            @Value("${quora.jwt.leeway-seconds:5}") final long leewaySeconds) {
+        final Map<String, Algorithm> ring = new HashMap<>();
         try {
-            algorithm = Algorithm.HMAC512(secret);
-        } catch (IllegalArgumentException e) {
+            for (final String key : keys.split(",")) {
+                if (key.trim().isEmpty()) {
+                    continue;
+                }
+                final String[] idAndSecret = key.trim().split(":", 2);
+                ring.put(idAndSecret[0], Algorithm.HMAC512(Base64.getDecoder().decode(idAndSecret[1])));
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new UnexpectedException(GenericErrorCode.GEN_001, e);
+        }
+        if (ring.isEmpty()) {
+            final byte[] secret = new byte[64];
+            new SecureRandom().nextBytes(secret);
+            this.activeKeyId = "ephemeral";
+            ring.put(this.activeKeyId, Algorithm.HMAC512(secret));
+            LOGGER.warn("No quora.jwt.keys configured, access tokens are signed with an ephemeral key");
+        } else if (!ring.containsKey(activeKeyId)) {
             throw new UnexpectedException(GenericErrorCode.GEN_001);
+        } else {
+            this.activeKeyId = activeKeyId;
+        }
+        final Map<String, JWTVerifier> ringVerifiers = new HashMap<>();
+        for (final Map.Entry<String, Algorithm> entry : ring.entrySet()) {
+            ringVerifiers.put(entry.getKey(),
+                    JWT.require(entry.getValue()).withIssuer(TOKEN_ISSUER).acceptLeeway(leewaySeconds).build());
         }
+        this.keyRing = Collections.unmodifiableMap(ring);
+        this.verifiers = Collections.unmodifiableMap(ringVerifiers);
     }
 
 
     /**
-     * This method receives uuid of the user, current time and expiry time of the access token.
+     * This method receives the session and user details, current time and expiry time of the access token.
      * This information is stored in the payload of the JWT token and the JWT token is returned by this method.
      */
     /**
+     * @param tokenId         - uuid of the user_auth record, stored as JWT id
      * @param userUuid        - uuid of the user
+     * @param userId          - id of the user
+     * @param role            - role of the user
      * @param issuedDateTime  - current time
      * @param expiresDateTime - expiry time of the JWT token
      * @return - generated JWT token
      */
-    public String generateToken(final String userUuid, final ZonedDateTime issuedDateTime, final ZonedDateTime expiresDateTime) {
+    public String generateToken(final String tokenId, final String userUuid, final Integer userId, final String role,
+                                final ZonedDateTime issuedDateTime, final ZonedDateTime expiresDateTime) {
 
-        final Date issuedAt = new Date(issuedDateTime.getLong(ChronoField.INSTANT_SECONDS));
-        final Date expiresAt = new Date(expiresDateTime.getLong(ChronoField.INSTANT_SECONDS));
+        final Date issuedAt = Date.from(issuedDateTime.toInstant());
+        final Date expiresAt = Date.from(expiresDateTime.toInstant());
 
         return JWT.create().withIssuer(TOKEN_ISSUER) //
-                .withKeyId(UUID.randomUUID().toString())
+                .withKeyId(activeKeyId)
+                .withJWTId(tokenId)
                 .withAudience(userUuid) //
-                .withIssuedAt(issuedAt).withExpiresAt(expiresAt).sign(algorithm);
+                .withClaim(USER_ID_CLAIM, userId)
+                .withClaim(ROLE_CLAIM, role)
+                .withIssuedAt(issuedAt).withExpiresAt(expiresAt).sign(keyRing.get(activeKeyId));
+    }
+
+    /**
+     * Verifies signature, issuer and expiry of the token against the key named by its "kid" header.
+     * @param token - JWT access token
+     * @return - decoded token or null if the token is not valid
+     */
+    public DecodedJWT verify(final String token) {
+        try {
+            final JWTVerifier verifier = verifiers.get(JWT.decode(token).getKeyId());
+            return verifier == null ? null : verifier.verify(token);
+        } catch (JWTVerificationException e) {
+            return null;
+        }
     }
 
 }
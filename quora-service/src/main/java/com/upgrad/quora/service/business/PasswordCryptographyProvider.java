@@ -1,89 +1,178 @@
 package com.upgrad.quora.service.business;
 
 
-import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
-import java.security.spec.InvalidKeySpecException;
-import java.util.Base64;
-import java.util.Random;
-import javax.crypto.SecretKey;
-import javax.crypto.SecretKeyFactory;
-import javax.crypto.spec.PBEKeySpec;
-
+import com.upgrad.quora.service.common.GenericErrorCode;
+import com.upgrad.quora.service.common.UnexpectedException;
+import com.upgrad.quora.service.crypto.PasswordHasher;
+import com.upgrad.quora.service.crypto.Pbkdf2PasswordHasher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+/**
+ * Hashes and verifies passwords with the PasswordHasher named by "quora.auth.password-hashing.algorithm".
+ * Stored hashes are "algorithm:encoded" so that hashes of every known algorithm can still be verified after the
+ * algorithm or its cost changed. Unless "quora.auth.password-hashing.cost" is set, the cost of new hashes is
+ * calibrated on startup so that one hash takes about "quora.auth.password-hashing.target-ms" on this hardware.
+ * The calibrated cost is rounded to coarse steps and stored hashes are rehashed only when they fall below it by more
+ * than the noise of the calibration, so a restart does not make every stored hash outdated.
+ */
 @Component
 public class PasswordCryptographyProvider {
 
-    private static String SECRET_KEY_ALGORITHM = "PBKDF2WithHmacSHA512";
-    private static int HASHING_ITERATIONS = 1000;
-    private static int HASHING_KEY_LENGTH = 64;
-    private final static char[] hexArray = "0123456789ABCDEF".toCharArray();
+    private static final Logger LOGGER = LoggerFactory.getLogger(PasswordCryptographyProvider.class);
+
+    //Hashes stored before the algorithm was recorded: PBKDF2WithHmacSHA512 with 1000 iterations and a 64 bit key
+    private static final String LEGACY_PREFIX = Pbkdf2PasswordHasher.ALGORITHM + ":1000:64:";
+
+    private static final int CALIBRATION_ROUNDS = 10;
+
+    //SecureRandom is thread-safe, seeding a new instance per salt is wasted work
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    @Autowired
+    private List<PasswordHasher> hashers;
+
+    @Value("${quora.auth.password-hashing.algorithm:" + Pbkdf2PasswordHasher.ALGORITHM + "}")
+    private String algorithm;
+
+    @Value("${quora.auth.password-hashing.cost:0}")
+    private int cost;
+
+    @Value("${quora.auth.password-hashing.target-ms:100}")
+    private long targetMillis;
+
+    private final Map<String, PasswordHasher> hashersByAlgorithm = new HashMap<>();
+
+    private PasswordHasher activeHasher;
+
+    private int activeCost;
+
+    //Stored hashes of the active algorithm below this cost are rehashed
+    private int currentCost;
+
+    @PostConstruct
+    public void init() {
+        for (final PasswordHasher hasher : hashers) {
+            hashersByAlgorithm.put(hasher.getAlgorithm(), hasher);
+        }
+        activeHasher = hashersByAlgorithm.get(algorithm);
+        if (activeHasher == null) {
+            throw new UnexpectedException(GenericErrorCode.GEN_001);
+        }
+        if (cost > 0) {
+            activeCost = Math.min(Math.max(cost, activeHasher.getMinimumCost()), activeHasher.getMaximumCost());
+            currentCost = activeCost;
+        } else {
+            activeCost = activeHasher.roundCost(calibrate(activeHasher, targetMillis * 1000000L));
+            currentCost = activeHasher.toleratedCost(activeCost);
+        }
+        LOGGER.info("Hashing passwords with {} at cost {}, rehashing below {}", algorithm, activeCost, currentCost);
+    }
 
     /**
      * This method generates Salt and hashed Password
      *
-     * @param password char array.
-     * @return String array with [0] encoded salt [1] hashed password.
+     * @param password
+     * @return String array with [0] encoded salt [1] hashed password prefixed by its algorithm.
      */
     public String[] encrypt(final String password) {
-        byte[] salt = generateSaltBytes();
-        byte[] hashedPassword = hashPassword(password.toCharArray(), salt);
-        return new String[]{getBase64EncodedBytesAsString(salt), bytesToHex(hashedPassword)};
+        final byte[] salt = generateSaltBytes();
+        return new String[]{getBase64EncodedBytesAsString(salt),
+                activeHasher.getAlgorithm() + ":" + activeHasher.hash(password, salt, activeCost)};
     }
 
     /**
-     * This method re-generates hashed Password from raw-password and salt.
+     * This method verifies the raw-password against the stored salt and hash.
      * This will be used during authentication.
      *
-     * @param password char array.
-     * @param salt     byte array.
-     * @return byte array of hashed password.
+     * @param password
+     * @param salt       encoded salt
+     * @param storedHash hashed password as returned by encrypt
+     * @return true if the password matches
      */
-    public static String encrypt(final String password, String salt) {
-        return bytesToHex(hashPassword(password.toCharArray(), getBase64DecodedStringAsBytes(salt)));
+    public boolean matches(final String password, final String salt, final String storedHash) {
+        final String stored = withAlgorithm(storedHash);
+        final int separator = stored.indexOf(':');
+        final PasswordHasher hasher = hashersByAlgorithm.get(stored.substring(0, separator));
+        if (hasher == null) {
+            return false;
+        }
+        try {
+            return hasher.matches(password, getBase64DecodedStringAsBytes(salt), stored.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            //Malformed salt or hash
+            return false;
+        }
     }
 
     /**
-     * This method generates Salt
-     *
-     * @return 32 bytes long array
+     * @param storedHash hashed password as returned by encrypt
+     * @return true if the hash was created with another algorithm or a cost below the tolerated cost
      */
-    private static byte[] generateSaltBytes() {
-        final Random random = new SecureRandom();
-        byte[] saltBytes = new byte[32];
-        random.nextBytes(saltBytes);
-        return saltBytes;
+    public boolean needsRehash(final String storedHash) {
+        final String stored = withAlgorithm(storedHash);
+        final int separator = stored.indexOf(':');
+        final PasswordHasher hasher = hashersByAlgorithm.get(stored.substring(0, separator));
+        try {
+            return hasher != activeHasher || hasher.isOutdated(stored.substring(separator + 1), currentCost);
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
     }
 
     /**
-     * This method generates hashed Password
-     *
-     * @param password char array.
-     * @param salt     byte array.
-     * @return byte array of hashed password.
+     * Raises the cost from the minimum of the hasher until one hash takes at least 90% of the target time.
      */
-    private static byte[] hashPassword(final char[] password, final byte[] salt) {
-        try {
-            SecretKeyFactory skf = SecretKeyFactory.getInstance(SECRET_KEY_ALGORITHM);
-            PBEKeySpec spec = new PBEKeySpec(password, salt, HASHING_ITERATIONS, HASHING_KEY_LENGTH);
-            SecretKey key = skf.generateSecret(spec);
-            byte[] res = key.getEncoded();
-            return res;
-        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
-            throw new RuntimeException(e);
+    private static int calibrate(final PasswordHasher hasher, final long targetNanos) {
+        final byte[] salt = generateSaltBytes();
+        int calibratedCost = hasher.getMinimumCost();
+        for (int round = 0; round < CALIBRATION_ROUNDS && calibratedCost < hasher.getMaximumCost(); round++) {
+            final long nanos = measure(hasher, salt, calibratedCost);
+            if (nanos >= targetNanos * 9 / 10) {
+                break;
+            }
+            calibratedCost = hasher.scaleCost(calibratedCost, (double) targetNanos / nanos);
         }
+        return calibratedCost;
     }
 
-    private static String bytesToHex(byte[] bytes) {
-        char[] hexChars = new char[bytes.length * 2];
-        for (int j = 0; j < bytes.length; j++) {
-            int v = bytes[j] & 0xFF;
-            hexChars[j * 2] = hexArray[v >>> 4];
-            hexChars[j * 2 + 1] = hexArray[v & 0x0F];
+    /**
+     * @return fastest of three hashes at the cost, after one warm-up hash
+     */
+    private static long measure(final PasswordHasher hasher, final byte[] salt, final int cost) {
+        hasher.hash("calibration", salt, cost);
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            final long start = System.nanoTime();
+            hasher.hash("calibration", salt, cost);
+            fastest = Math.min(fastest, System.nanoTime() - start);
         }
-        return new String(hexChars);
+        return Math.max(1L, fastest);
+    }
+
+    private static String withAlgorithm(final String storedHash) {
+        return storedHash.indexOf(':') < 0 ? LEGACY_PREFIX + storedHash : storedHash;
+    }
+
+    /**
+     * This method generates Salt
+     *
+     * @return 32 bytes long array
+     */
+    private static byte[] generateSaltBytes() {
+        byte[] saltBytes = new byte[32];
+        RANDOM.nextBytes(saltBytes);
+        return saltBytes;
     }
 
     private static String getBase64EncodedBytesAsString(byte bytes[]) {
@@ -94,5 +183,3 @@ public class PasswordCryptographyProvider {
         return Base64.getDecoder().decode(decode);
     }
 }
-
-
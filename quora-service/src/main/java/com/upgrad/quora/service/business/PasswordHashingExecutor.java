@@ -0,0 +1,98 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.datasource.RoutingContext;
+import com.upgrad.quora.service.exception.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs the password hashing of sign-up and sign-in on a dedicated pool of "quora.auth.password-hashing.threads"
+ * threads, so that a burst of sign-ins cannot pin every servlet thread on CPU. At most
+ * "quora.auth.password-hashing.queue-capacity" hashes wait for a thread, beyond that new ones are rejected right
+ * away instead of queueing up behind work which would time out anyway. The hashing, and the stages chained to it
+ * which complete on the hashing thread, run with the RoutingContext of the submitting request.
+ */
+@Component
+public class PasswordHashingExecutor {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${quora.auth.password-hashing.threads:0}")
+    private int threads;
+
+    @Value("${quora.auth.password-hashing.queue-capacity:64}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    private Timer hashTimer;
+
+    private Timer waitTimer;
+
+    private Counter rejections;
+
+    @PostConstruct
+    public void init() {
+        final int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        final AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    final Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        hashTimer = Timer.builder("quora.auth.password.hash").publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        waitTimer = Timer.builder("quora.auth.password.hash.wait").publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        rejections = Counter.builder("quora.auth.password.hash.rejected").register(meterRegistry);
+        Gauge.builder("quora.auth.password.hash.queue", executor, e -> e.getQueue().size()).register(meterRegistry);
+        Gauge.builder("quora.auth.password.hash.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Queues the hashing on the hashing pool.
+     * @param hashing computation of the hash
+     * @return future completed with the hash on a hashing thread, within the RoutingContext of the caller
+     * @throws ServiceBusyException if all hashing threads are busy and the queue is full
+     */
+    public <T> CompletableFuture<T> submit(final Supplier<T> hashing) throws ServiceBusyException {
+        final long queuedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                final long startedAt = System.nanoTime();
+                waitTimer.record(startedAt - queuedAt, TimeUnit.NANOSECONDS);
+                try {
+                    return hashing.get();
+                } finally {
+                    hashTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            }, task -> executor.execute(RoutingContext.propagate(task)));
+        } catch (RejectedExecutionException e) {
+            rejections.increment();
+            throw new ServiceBusyException("GEN-002", "Too many sign-in requests at the moment, please retry later");
+        }
+    }
+}
@@ -1,19 +1,34 @@
 package com.upgrad.quora.service.business;
 
+import com.upgrad.quora.service.cache.CollectionVersions;
+import com.upgrad.quora.service.cache.EntityCache;
+import com.upgrad.quora.service.cache.QuestionFeedCache;
+import com.upgrad.quora.service.common.AuthenticatedUser;
+import com.upgrad.quora.service.common.BulkItemResult;
+import com.upgrad.quora.service.common.KeysetCursor;
+import com.upgrad.quora.service.common.KeysetPage;
+import com.upgrad.quora.service.common.QuestionRowHandler;
+import com.upgrad.quora.service.dao.AnswerDao;
 import com.upgrad.quora.service.dao.QuestionDao;
-import com.upgrad.quora.service.dao.UserAuthDao;
 import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.entity.AnswerEntity;
 import com.upgrad.quora.service.entity.QuestionEntity;
-import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.EditConflictException;
+import com.upgrad.quora.service.exception.InvalidBulkRequestException;
+import com.upgrad.quora.service.exception.InvalidPageRequestException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
+import com.upgrad.quora.service.projection.QuestionSummary;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
@@ -23,161 +38,249 @@ public class QuestionBusinessService {
     private UserDao userDao;
 
     @Autowired
-    private UserAuthDao userAuthDao;
+    private QuestionDao  questionDao;
 
     @Autowired
-    private QuestionDao  questionDao;
+    private AnswerDao answerDao;
+
+    @Autowired
+    private QuestionFeedCache questionFeedCache;
+
+    @Autowired
+    private CollectionVersions collectionVersions;
+
+    @Autowired
+    private EntityCache entityCache;
+
+    @Value("${quora.pagination.default-size:20}")
+    private int defaultPageSize;
+
+    @Value("${quora.pagination.max-size:100}")
+    private int maxPageSize;
+
+    @Value("${quora.export.fetch-size:1000}")
+    private int exportFetchSize;
+
+    @Value("${quora.bulk.max-items:1000}")
+    private int maxBulkItems;
+
+    //Length of QUESTION.content
+    private static final int MAX_CONTENT_LENGTH = 500;
 
 
     /**
-     * Method validates if the token is valid and saves the question to the DB otherwise throws the exception
+     * Method saves the question of the signed-in user to the DB
      * @param newQuestion
-     * @param authorizationToken
+     * @param authenticatedUser
      * @return
-     * @throws AuthorizationFailedException
      */
     @Transactional(propagation = Propagation.REQUIRED)
-    public QuestionEntity createQuestion(QuestionEntity newQuestion, final String authorizationToken)
-            throws AuthorizationFailedException{
-
-       UserAuthEntity userAuthEntity = userAuthDao.getUserAuth(authorizationToken);
-        if(userAuthEntity == null){
-            throw new AuthorizationFailedException("ATHR-001","User has not signed in");
-        } else{
-            if(userAuthEntity.getLogoutAt() != null){
-                throw new AuthorizationFailedException("ATHR-002","User is signed out.Sign in first to post a question");
-            } else{
-                //Gets the logged-in user object
-                UserEntity userEntity = userDao.getUserByPk(userAuthEntity.getUser().getId());
-                //Set the user to the question and save
+    public QuestionEntity createQuestion(QuestionEntity newQuestion, final AuthenticatedUser authenticatedUser){
+        //Only the foreign key of the signed-in user is needed, its record is not read
+        newQuestion.setUser(userDao.getUserReference(authenticatedUser.getUserId()));
+        questionDao.createQuestion(newQuestion);
+        questionFeedCache.added(toSummary(newQuestion));
+        collectionVersions.questionChanged(newQuestion.getUuid());
+        return newQuestion;
+    }
+
+    /**
+     * Method saves the questions of the signed-in user to the DB in one transaction. A question without content
+     * fails on its own, the others are inserted in JDBC batches.
+     * @param newQuestions
+     * @param authenticatedUser
+     * @return result of every question, in order
+     * @throws InvalidBulkRequestException if there are no questions or more than the configured maximum
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public List<BulkItemResult> createQuestions(final List<QuestionEntity> newQuestions,
+                                                final AuthenticatedUser authenticatedUser)
+            throws InvalidBulkRequestException{
+        if(newQuestions.isEmpty() || newQuestions.size() > maxBulkItems){
+            throw new InvalidBulkRequestException("BULK-001",
+                    "Number of questions must be between 1 and " + maxBulkItems);
+        }
+        final UserEntity userEntity = userDao.getUserReference(authenticatedUser.getUserId());
+        final List<BulkItemResult> results = new ArrayList<>(newQuestions.size());
+        for (int i = 0; i < newQuestions.size(); i++) {
+            final QuestionEntity newQuestion = newQuestions.get(i);
+            final String content = newQuestion.getContent();
+            if(content == null || content.trim().isEmpty()){
+                results.add(BulkItemResult.failed(i, "QUES-002", "Question content must not be empty"));
+            } else if(content.length() > MAX_CONTENT_LENGTH){
+                results.add(BulkItemResult.failed(i, "QUES-002",
+                        "Question content must not exceed " + MAX_CONTENT_LENGTH + " characters"));
+            } else {
                 newQuestion.setUser(userEntity);
                 questionDao.createQuestion(newQuestion);
-                return newQuestion;
+                questionFeedCache.added(toSummary(newQuestion));
+                collectionVersions.questionChanged(newQuestion.getUuid());
+                results.add(BulkItemResult.created(i, newQuestion.getUuid()));
             }
         }
-
+        return results;
     }
 
     /**
-     * Method returns all questions in the DB, if the authorization token valid.
-     * @param authorizationToken
-     * @return List of Question Entity
-     * @throws AuthorizationFailedException
+     * Method returns one page of the questions in the DB, newest first. Pages within the feed snapshot are
+     * served from memory.
+     * @param cursor next page cursor of the previous page, null for the first page
+     * @param limit requested page size, capped at the configured maximum
+     * @return page of QuestionSummary
+     * @throws InvalidPageRequestException if the cursor is malformed
      */
-    public List<QuestionEntity> getAllQuestions(final String authorizationToken) throws AuthorizationFailedException{
-        UserAuthEntity userAuthEntity = userAuthDao.getUserAuth(authorizationToken);
-        if(userAuthEntity == null){
-            throw new AuthorizationFailedException("ATHR-001","User has not signed in");
-        } else{
-            if(userAuthEntity.getLogoutAt() != null){
-                throw new AuthorizationFailedException("ATHR-002","User is signed out.Sign in first to get all questions");
-            } else{
-                return questionDao.getAllQuestions();
-            }
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public KeysetPage<QuestionSummary> getAllQuestions(final String cursor, final Integer limit)
+            throws InvalidPageRequestException{
+        final int pageSize = pageSize(limit);
+        final KeysetCursor after = decodeCursor(cursor);
+        //One more record than the page size tells whether there is a next page
+        List<QuestionSummary> questions = questionFeedCache.getQuestionsPage(after, pageSize + 1);
+        if(questions == null){
+            questions = questionDao.getQuestionsPage(after, pageSize + 1);
         }
+        return toPage(questions, pageSize);
     }
 
 
     /**
-     * Method checks if the authorization token is valid, checks if the question with uuid exits.
-     * If success then update the question details in the DB
-     * @param updatedQuestion
-     * @param authorizationToken
-     * @return
+     * Method streams all the questions in the DB to the handler, one row at a time, in a read-only transaction.
+     * Memory use does not depend on the number of questions.
+     * @param handler
+     * @return number of exported questions
+     * @throws IOException if the handler fails to write a row
+     */
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public long exportQuestions(final QuestionRowHandler handler) throws IOException{
+        return questionDao.scrollQuestions(handler, exportFetchSize);
+    }
+
+    /**
+     * Method checks if the question with uuid exits and belongs to the signed-in user and, if the edit carries
+     * a version, whether the question is still at that version.
+     * If success then update the question details in the DB and increment its version
+     * @param updatedQuestion uuid, content and optionally the version the edit was made against
+     * @param authenticatedUser
+     * @return edited question with its new version, not managed
      * @throws AuthorizationFailedException
      * @throws InvalidQuestionException
+     * @throws EditConflictException if the question has been changed since the version
      */
     @Transactional(propagation = Propagation.REQUIRED)
     public QuestionEntity editQuestionContent(
-            QuestionEntity updatedQuestion, final String authorizationToken)
-            throws AuthorizationFailedException, InvalidQuestionException{
+            QuestionEntity updatedQuestion, final AuthenticatedUser authenticatedUser)
+            throws AuthorizationFailedException, InvalidQuestionException, EditConflictException{
 
-        UserAuthEntity userAuthEntity = userAuthDao.getUserAuth(authorizationToken);
-        if(userAuthEntity == null){
-            throw new AuthorizationFailedException("ATHR-001","User has not signed in");
-        } else{
-            if(userAuthEntity.getLogoutAt() != null){
-                throw new AuthorizationFailedException("ATHR-002","User is signed out.Sign in first to edit the question");
-            } else{
-                    QuestionEntity questionEntity = questionDao.getQuestionByUuid(updatedQuestion.getUuid());
-                    if(questionEntity == null){
-                        throw new InvalidQuestionException("QUES-001","Entered question uuid does not exist");
-                    }
-                    if(questionEntity.getUser().getId() == userAuthEntity.getUser().getId()){
-                        questionEntity.setContent(updatedQuestion.getContent());
-                        questionDao.updateQuestion(questionEntity);
-                        return questionEntity;
-                    } else {
-                        throw new AuthorizationFailedException("ATHR-003","Only the question owner can edit the question");
-                    }
+        //One conditional UPDATE, the question is only read if it did not apply, to tell why
+        final QuestionEntity editedQuestion = questionDao.editQuestionContent(updatedQuestion.getUuid(),
+                authenticatedUser.getUserId(), updatedQuestion.getContent(), updatedQuestion.getVersion());
+        if(editedQuestion == null){
+            QuestionEntity questionEntity = questionDao.lockQuestionByUuid(updatedQuestion.getUuid());
+            if(questionEntity == null){
+                throw new InvalidQuestionException("QUES-001","Entered question uuid does not exist");
             }
+            if(!questionEntity.getUser().getId().equals(authenticatedUser.getUserId())){
+                throw new AuthorizationFailedException("ATHR-003","Only the question owner can edit the question");
+            }
+            throw new EditConflictException("QUES-003","The question has been changed since version " +
+                    updatedQuestion.getVersion() + ", it is now at version " + questionEntity.getVersion());
         }
+        entityCache.lockUntilCompletion(QuestionEntity.class, editedQuestion.getId());
+        questionFeedCache.edited(editedQuestion.getId(), editedQuestion.getContent(), editedQuestion.getVersion());
+        collectionVersions.questionChanged(editedQuestion.getUuid());
+        return editedQuestion;
     }
 
     /**
-     * Method deletes the question from the DB, if the authorization token belongs to the question owner or role as admin
+     * Method deletes the question from the DB, if the signed-in user is the question owner or has role as admin
      * and question exists in the DB
      * @param questionUuid
-     * @param authorizationToken
+     * @param authenticatedUser
      * @return
      * @throws AuthorizationFailedException
      * @throws InvalidQuestionException
      */
     @Transactional(propagation = Propagation.REQUIRED)
     public QuestionEntity deleteQuestion (
-            final String questionUuid, final String authorizationToken)
+            final String questionUuid, final AuthenticatedUser authenticatedUser)
             throws AuthorizationFailedException, InvalidQuestionException{
 
-        UserAuthEntity userAuthEntity = userAuthDao.getUserAuth(authorizationToken);
-        if(userAuthEntity == null){
-            throw new AuthorizationFailedException("ATHR-001","User has not signed in");
-        } else{
-            if(userAuthEntity.getLogoutAt() != null){
-                throw new AuthorizationFailedException("ATHR-002","User is signed out.Sign in first to delete a question");
-            } else{
-                QuestionEntity questionEntity = questionDao.getQuestionByUuid(questionUuid);
-                if(questionEntity == null){
-                    throw new InvalidQuestionException("QUES-001","Entered question uuid does not exist");
-                }
-                //if the authorized user is the question owner or his role is admin, then delete the question
-                if(questionEntity.getUser().getId() == userAuthEntity.getUser().getId() ||
-                        userAuthEntity.getUser().getRole().equals("admin")){
-                    questionDao.deleteQuestion(questionEntity);
-                    return questionEntity;
-                } else {
-                    throw new AuthorizationFailedException("ATHR-003","Only the question owner or admin can delete the question");
-                }
+        //Read from the DB and locked, the delete is checked against the current version
+        QuestionEntity questionEntity = questionDao.lockQuestionByUuid(questionUuid);
+        if(questionEntity == null){
+            throw new InvalidQuestionException("QUES-001","Entered question uuid does not exist");
+        }
+        //if the authorized user is the question owner or his role is admin, then delete the question
+        if(questionEntity.getUser().getId().equals(authenticatedUser.getUserId()) || authenticatedUser.isAdmin()){
+            //the answers of the question are removed by the DB cascade, none of them may be served from the cache.
+            //No answer is added meanwhile, posting an answer updates the locked question row
+            for (final Integer answerId : answerDao.getAnswerIdsByQuestionId(questionEntity.getId())) {
+                entityCache.lockUntilCompletion(AnswerEntity.class, answerId);
             }
+            questionDao.deleteQuestion(questionEntity);
+            questionFeedCache.removed(questionEntity.getId());
+            collectionVersions.questionChanged(questionEntity.getUuid());
+            return questionEntity;
+        } else {
+            throw new AuthorizationFailedException("ATHR-003","Only the question owner or admin can delete the question");
         }
     }
 
 
     /**
-     * Method returns list of all questions of a specific user if user id and  authorization token are valid
+     * Method returns one page of the questions of a specific user, newest first, if user id is valid
      * @param uuidOfUser
-     * @param authorizationToken
-     * @return List of questionEntity
-     * @throws AuthorizationFailedException
+     * @param cursor next page cursor of the previous page, null for the first page
+     * @param limit requested page size, capped at the configured maximum
+     * @return page of QuestionSummary
      * @throws UserNotFoundException
+     * @throws InvalidPageRequestException if the cursor is malformed
      */
-    public List<QuestionEntity> getAllQuestionsByUser(final String uuidOfUser, final String authorizationToken)
-        throws AuthorizationFailedException, UserNotFoundException{
-        UserAuthEntity userAuthEntity = userAuthDao.getUserAuth(authorizationToken);
-        if(userAuthEntity == null){
-            throw new AuthorizationFailedException("ATHR-001","User has not signed in");
-        } else{
-            if(userAuthEntity.getLogoutAt() != null){
-                throw new AuthorizationFailedException(
-                        "ATHR-002","User is signed out.Sign in first to get all questions posted by a specific user");
-            } else{
-                    UserEntity userEntity = userDao.getUserByUuid(uuidOfUser);
-                    if(userEntity == null){
-                        throw new UserNotFoundException("USR-001",
-                                "User with entered uuid whose question details are to be seen does not exist");
-                    } else {
-                        return questionDao.getQuestionsByUser(userEntity);
-                    }
-            }
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public KeysetPage<QuestionSummary> getAllQuestionsByUser(final String uuidOfUser, final String cursor,
+                                                            final Integer limit)
+            throws UserNotFoundException, InvalidPageRequestException{
+        final KeysetCursor after = decodeCursor(cursor);
+        UserEntity userEntity = userDao.getUserByUuid(uuidOfUser);
+        if(userEntity == null){
+            throw new UserNotFoundException("USR-001",
+                    "User with entered uuid whose question details are to be seen does not exist");
+        } else {
+            final int pageSize = pageSize(limit);
+            return toPage(questionDao.getQuestionsByUserPage(userEntity, after, pageSize + 1), pageSize);
+        }
+    }
+
+    private int pageSize(final Integer limit){
+        if(limit == null){
+            return Math.min(defaultPageSize, maxPageSize);
+        }
+        return Math.max(1, Math.min(limit, maxPageSize));
+    }
+
+    private static KeysetCursor decodeCursor(final String cursor) throws InvalidPageRequestException{
+        if(cursor == null || cursor.isEmpty()){
+            return null;
+        }
+        try {
+            return KeysetCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPageRequestException("PAGE-001", "Entered page cursor is not valid");
+        }
+    }
+
+    private static QuestionSummary toSummary(final QuestionEntity questionEntity){
+        //A new question has no answers, its answer count is not read back from the DB. Its version is set on persist
+        return new QuestionSummary(questionEntity.getId(), questionEntity.getUuid(), questionEntity.getContent(),
+                questionEntity.getDate(), 0, questionEntity.getVersion());
+    }
+
+    private static KeysetPage<QuestionSummary> toPage(final List<QuestionSummary> questions, final int pageSize){
+        if(questions.size() <= pageSize){
+            return new KeysetPage<>(questions, null);
         }
+        final List<QuestionSummary> page = questions.subList(0, pageSize);
+        final QuestionSummary last = page.get(pageSize - 1);
+        return new KeysetPage<>(page, new KeysetCursor(last.getDate(), last.getId()).encode());
     }
 }
@@ -1,17 +1,24 @@
 package com.upgrad.quora.service.business;
 
+import com.upgrad.quora.service.cache.TokenRevocationFilter;
+import com.upgrad.quora.service.cache.UserAuthCache;
 import com.upgrad.quora.service.dao.UserAuthDao;
 import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.datasource.ReadYourWrites;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.annotation.PostConstruct;
 import java.time.ZonedDateTime;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 public class UserBusinessService {
@@ -25,6 +32,35 @@ public class UserBusinessService {
     @Autowired
     private PasswordCryptographyProvider passwordCryptographyProvider;
 
+    @Autowired
+    private UserAuthCache userAuthCache;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private TokenRevocationFilter tokenRevocationFilter;
+
+    @Autowired
+    private PasswordHashingExecutor passwordHashingExecutor;
+
+    @Autowired
+    private UuidGenerator uuidGenerator;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    //Sign-up and sign-in write on the hashing thread once the hash is available, outside of any proxied call
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
     /**
      * Gets the database entry based on username
      * @param userName
@@ -47,69 +83,108 @@ public class UserBusinessService {
     }
 
     /**
-     * This method registers the user if username and password already present in the DB
+     * This method registers the user if username and email are not already present in the DB. The password is
+     * hashed on the password hashing pool, the user is persisted once the hash is available.
      * @param userEntity
-     * @return
+     * @return future completed with the persisted user
      * @throws SignUpRestrictedException
+     * @throws ServiceBusyException if the password hashing pool is saturated
      */
-    @Transactional(propagation = Propagation.REQUIRED)
-    public UserEntity signup(UserEntity userEntity) throws SignUpRestrictedException{
-        //Step1: validate username exits in the database. If exists throw SignUpRestrictedException with username already exists
-        if(userDao.getUserByUserName(userEntity.getUserName()) != null){
-            throw new SignUpRestrictedException("SGR-001", "Try any other Username, this Username has already been taken");
-        }
-        // validate email exists in the database, if exists throw SignUpRestrictedException with email already exists
-        if(userDao.getUserByEmail(userEntity.getEmail()) != null){
-            throw new SignUpRestrictedException("SGR-002", "This user has already been registered, try with any other emailId");
-        }
-
-        //if username and email are not taken, persist the user in the database.
+    public CompletableFuture<UserEntity> signup(final UserEntity userEntity)
+            throws SignUpRestrictedException, ServiceBusyException{
+        //Fail fast, before spending a hash on a sign-up which cannot succeed
+        checkSignupAllowed(userEntity);
 
         //Encrypt the password
-        String password = userEntity.getPassword();
-        if(password == null){
-            password = "password";
-        }
-        String[] encryptedPassword = passwordCryptographyProvider.encrypt(password);
-        userEntity.setSalt(encryptedPassword[0]);
-        userEntity.setPassword(encryptedPassword[1]);
-
-        //persist in the database
-        return  userDao.createUser(userEntity);
+        final String password = userEntity.getPassword() == null ? "password" : userEntity.getPassword();
+        return passwordHashingExecutor.submit(() -> passwordCryptographyProvider.encrypt(password))
+                .thenApply(encryptedPassword -> {
+                    userEntity.setSalt(encryptedPassword[0]);
+                    userEntity.setPassword(encryptedPassword[1]);
+                    return transactionTemplate.execute(status -> {
+                        //username or email may have been taken while the password was hashed
+                        try {
+                            checkSignupAllowed(userEntity);
+                        } catch (SignUpRestrictedException e) {
+                            throw new CompletionException(e);
+                        }
+                        //persist in the database, the first reads of the new user must see it
+                        final UserEntity createdUser = userDao.createUser(userEntity);
+                        readYourWrites.pinAfterCommit(createdUser.getId());
+                        return createdUser;
+                    });
+                });
     }
 
     /**
-     * Method check if the user is present in the DB, if so a token will be generated. The token will be saved
-     * as well as sent to user for further authentication. Otherwise throws an exception.
+     * Method check if the user is present in the DB, if so the password is verified on the password hashing pool
+     * and a token will be generated. The token will be saved as well as sent to user for further authentication.
+     * Otherwise throws an exception. A password hash with an outdated algorithm or cost is replaced in the
+     * same transaction as the new session.
      * @param username
      * @param password
-     * @return
-     * @throws AuthenticationFailedException
+     * @return future completed with the new session, or exceptionally with AuthenticationFailedException
+     * @throws AuthenticationFailedException if the username does not exist
+     * @throws ServiceBusyException if the password hashing pool is saturated
      */
-    @Transactional(propagation = Propagation.REQUIRED)
-    public UserAuthEntity authenticate(final String username, final String password) throws AuthenticationFailedException {
-        UserEntity userEntity = userDao.getUserByUserName(username);
+    public CompletableFuture<UserAuthEntity> authenticate(final String username, final String password)
+            throws AuthenticationFailedException, ServiceBusyException {
+        final UserEntity userEntity = userDao.getUserByUserName(username);
         if(userEntity == null){
             throw new AuthenticationFailedException("ATH-001", "This username does not exist");
         }
-        final String encryptedPassword = passwordCryptographyProvider.encrypt(password, userEntity.getSalt());
-        if(encryptedPassword.equals(userEntity.getPassword())){
-            JwtTokenProvider jwtTokenProvider = new JwtTokenProvider(encryptedPassword);
-            UserAuthEntity userAuthEntity = new UserAuthEntity();
-            userAuthEntity.setUuid(UUID.randomUUID().toString());
-            userAuthEntity.setUser(userEntity);
-            final ZonedDateTime now = ZonedDateTime.now();
-            final ZonedDateTime expiresAt = now.plusHours(8);
-            userAuthEntity.setAccessToken(jwtTokenProvider.generateToken(userEntity.getUuid(),now, expiresAt));
-            userAuthEntity.setLoginAt(now);
-            userAuthEntity.setExpiresAt(expiresAt);
-            userAuthDao.createUserAuth(userAuthEntity);
-
-            return userAuthEntity;
-        } else {
-            throw new AuthenticationFailedException("ATH-002","Password failed");
+        return passwordHashingExecutor.submit(() -> verifyPassword(userEntity, password))
+                .thenApply(rehashedPassword -> transactionTemplate.execute(status -> {
+                    if(rehashedPassword != null){
+                        userDao.updatePassword(userEntity, rehashedPassword[0], rehashedPassword[1]);
+                    }
+                    //The requests made with the new session must find it
+                    readYourWrites.pinAfterCommit(userEntity.getId());
+                    return createSession(userEntity);
+                }));
+    }
+
+    /**
+     * Verifies the password of the user, runs on the password hashing pool.
+     * @param userEntity
+     * @param password
+     * @return new [salt, hash] of the password if the stored hash is outdated, null otherwise
+     */
+    private String[] verifyPassword(final UserEntity userEntity, final String password) {
+        if(!passwordCryptographyProvider.matches(password, userEntity.getSalt(), userEntity.getPassword())){
+            throw new CompletionException(new AuthenticationFailedException("ATH-002","Password failed"));
         }
+        //The plain password is only at hand here, so outdated hashes are upgraded on sign-in
+        if(passwordCryptographyProvider.needsRehash(userEntity.getPassword())){
+            return passwordCryptographyProvider.encrypt(password);
+        }
+        return null;
+    }
+
+    private void checkSignupAllowed(final UserEntity userEntity) throws SignUpRestrictedException {
+        //Step1: validate username exits in the database. If exists throw SignUpRestrictedException with username already exists
+        if(userDao.getUserByUserName(userEntity.getUserName()) != null){
+            throw new SignUpRestrictedException("SGR-001", "Try any other Username, this Username has already been taken");
+        }
+        // validate email exists in the database, if exists throw SignUpRestrictedException with email already exists
+        if(userDao.getUserByEmail(userEntity.getEmail()) != null){
+            throw new SignUpRestrictedException("SGR-002", "This user has already been registered, try with any other emailId");
+        }
+    }
 
+    private UserAuthEntity createSession(final UserEntity userEntity) {
+        UserAuthEntity userAuthEntity = new UserAuthEntity();
+        userAuthEntity.setUuid(uuidGenerator.generate());
+        userAuthEntity.setUser(userEntity);
+        final ZonedDateTime now = ZonedDateTime.now();
+        final ZonedDateTime expiresAt = now.plusHours(8);
+        //The token is signed with the server key ring, its JWT id is the uuid of the session
+        userAuthEntity.setAccessToken(jwtTokenProvider.generateToken(userAuthEntity.getUuid(), userEntity.getUuid(),
+                userEntity.getId(), userEntity.getRole(), now, expiresAt));
+        userAuthEntity.setLoginAt(now);
+        userAuthEntity.setExpiresAt(expiresAt);
+        userAuthDao.createUserAuth(userAuthEntity);
+        return userAuthEntity;
     }
 
     /**
@@ -127,6 +202,9 @@ public class UserBusinessService {
             final ZonedDateTime now = ZonedDateTime.now();
             userAuthEntity.setLogoutAt(now);
             userAuthDao.updateUserAuth(userAuthEntity);
+            //the signed out session must not be served from the cache anymore
+            userAuthCache.invalidate(authorizationToken);
+            tokenRevocationFilter.revoke(userAuthEntity.getUuid(), userAuthEntity.getExpiresAt());
             return userAuthEntity.getUser();
         }
         throw new SignOutRestrictedException("SGR-001","User is not Signed in");
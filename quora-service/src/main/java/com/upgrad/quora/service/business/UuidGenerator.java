@@ -0,0 +1,58 @@
+package com.upgrad.quora.service.business;
+
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates the uuid of new records as time-ordered UUIDs in the layout of UUID version 7: 48 bits of Unix epoch
+ * milliseconds, the version, a 12 bit sequence and 62 random bits. Consecutive ids land next to each other in the
+ * uuid indexes instead of on random B-tree pages, and ids of one thread are strictly increasing.
+ * The state is kept per thread and the random bits come from ThreadLocalRandom, so no lock or shared SecureRandom
+ * is involved. The ids are unique, not unpredictable: they must not be used as secrets.
+ */
+@Component
+public class UuidGenerator {
+
+    private static final int SEQUENCE_BITS = 12;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
+    /**
+     * @return new time-ordered uuid as string
+     */
+    public String generate() {
+        return next().toString();
+    }
+
+    /**
+     * @return new time-ordered uuid
+     */
+    public UUID next() {
+        final State state = STATE.get();
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final long now = System.currentTimeMillis();
+        if (now > state.millis) {
+            state.millis = now;
+            //Random start in the lower half leaves room for at least 2048 ids in the same millisecond
+            state.sequence = random.nextLong() & (SEQUENCE_MASK >>> 1);
+        } else if (++state.sequence > SEQUENCE_MASK) {
+            //Sequence exhausted or clock moved backwards, borrow the next millisecond to stay monotonic
+            state.millis++;
+            state.sequence = 0;
+        }
+        final long mostSigBits = (state.millis << 16) | (0x7L << SEQUENCE_BITS) | state.sequence;
+        final long leastSigBits = (random.nextLong() >>> 2) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    private static final class State {
+
+        private long millis;
+
+        private long sequence;
+    }
+}
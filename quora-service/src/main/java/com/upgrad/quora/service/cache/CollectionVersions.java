@@ -0,0 +1,178 @@
+package com.upgrad.quora.service.cache;
+
+import com.upgrad.quora.service.datasource.RoutingContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version counters of the listed collections: the question listings and the answers of each question. The
+ * questions of a user share the version of the feed, since they show answer counts which change with answers to
+ * any question. A version covers the whole collection, not a page of it: the tags of all the pages of a listing
+ * are the same and any change of the collection replaces them. A counter is bumped after a transaction changing
+ * its collection commits, so a version taken before reading a collection never outlives the state that was read. The versions are the strong ETags of the
+ * listings, which lets an unchanged listing be answered with 304 without a DB round trip.
+ * The listings are read from the replica, which may still lag behind the commit that bumped a counter. For
+ * "quora.datasource.read-your-writes-ms" after a change, taking the tag of the collection sends the reads of the
+ * request to the primary, so that a new tag is not handed out with a body read before the change. Like
+ * ReadYourWrites, this relies on the replica lag staying below that window.
+ * Counters only see the changes made on this instance: the tags carry an id of the instance, and all of them
+ * are replaced every "quora.etag.rollover-interval-ms" to bound how long a change made elsewhere goes unnoticed.
+ * This also bounds the counters kept per question to the questions changed since the rollover.
+ */
+@Component
+public class CollectionVersions {
+
+    private static final String FEED = "feed";
+
+    private static final String ANSWERS = "answers:";
+
+    //Key of the changes of every collection
+    private static final String ALL = "*";
+
+    private final String instanceId = Long.toHexString(UUID.randomUUID().getMostSignificantBits());
+
+    @Value("${quora.datasource.read-your-writes-ms:5000}")
+    private long windowMs;
+
+    private volatile Generation generation = new Generation(0L);
+
+    //End of the window after the last change per collection, in System.nanoTime()
+    private final Map<String, Long> changedUntil = new ConcurrentHashMap<>();
+
+    /**
+     * @return quoted tag of the current version of the question feed, the same for all of its pages
+     */
+    public String feedTag() {
+        final Generation current = generation;
+        final String tag = tag(current, current.feed.get());
+        requirePrimaryIfChanged(FEED);
+        return tag;
+    }
+
+    /**
+     * The questions of every user share one tag, which is the tag of the feed: a change of the questions of any
+     * user replaces it.
+     * @return quoted tag of the current version of the questions of the users, the same for all of their pages
+     */
+    public String userQuestionsTag() {
+        return feedTag();
+    }
+
+    /**
+     * @param questionUuid
+     * @return quoted tag of the current version of the answers of the question, the same for all of their pages
+     */
+    public String answersTag(final String questionUuid) {
+        final Generation current = generation;
+        final String tag = tag(current, current.answers.getOrDefault(questionUuid, 0L));
+        requirePrimaryIfChanged(ANSWERS + questionUuid);
+        return tag;
+    }
+
+    /**
+     * Bumps the question listings and the answers of the question, which carry its content, once the current
+     * transaction commits. Used for changes of the question itself and of its answer count.
+     * @param questionUuid
+     */
+    public void questionChanged(final String questionUuid) {
+        afterCommit(() -> {
+            changed(FEED);
+            changed(ANSWERS + questionUuid);
+            final Generation current = generation;
+            current.feed.incrementAndGet();
+            current.answers.merge(questionUuid, 1L, Long::sum);
+        });
+    }
+
+    /**
+     * Bumps the answers of the question once the current transaction commits.
+     * @param questionUuid
+     */
+    public void answersChanged(final String questionUuid) {
+        afterCommit(() -> {
+            changed(ANSWERS + questionUuid);
+            generation.answers.merge(questionUuid, 1L, Long::sum);
+        });
+    }
+
+    /**
+     * Replaces every tag once the current transaction commits, used when collections change by a DB cascade.
+     */
+    public void invalidateAll() {
+        afterCommit(() -> {
+            changed(ALL);
+            rollover();
+        });
+    }
+
+    /**
+     * Starts a new generation, so that no tag handed out before matches anymore.
+     */
+    @Scheduled(fixedDelayString = "${quora.etag.rollover-interval-ms:60000}",
+            initialDelayString = "${quora.etag.rollover-interval-ms:60000}")
+    public synchronized void rollover() {
+        generation = new Generation(generation.number + 1);
+    }
+
+    /**
+     * Forgets the collections whose window has ended.
+     */
+    @Scheduled(fixedDelayString = "${quora.datasource.read-your-writes-ms:5000}")
+    public void prune() {
+        final long now = System.nanoTime();
+        changedUntil.values().removeIf(until -> until - now <= 0);
+    }
+
+    //Marked before the counter is bumped, so that whoever reads the new version also sees the mark
+    private void changed(final String collection) {
+        changedUntil.put(collection, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMs));
+    }
+
+    private void requirePrimaryIfChanged(final String collection) {
+        final long now = System.nanoTime();
+        final Long until = changedUntil.get(collection);
+        final Long allUntil = changedUntil.get(ALL);
+        if ((until != null && until - now > 0) || (allUntil != null && allUntil - now > 0)) {
+            RoutingContext.requirePrimary();
+        }
+    }
+
+    private String tag(final Generation current, final long version) {
+        return "\"" + instanceId + "-" + current.number + "-" + version + "\"";
+    }
+
+    private static void afterCommit(final Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static final class Generation {
+
+        private final long number;
+
+        private final AtomicLong feed = new AtomicLong();
+
+        private final Map<String, Long> answers = new ConcurrentHashMap<>();
+
+        private Generation(final long number) {
+            this.number = number;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.upgrad.quora.service.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jpa.HibernateMetrics;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.spi.access.EntityRegionAccessStrategy;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+
+/**
+ * Eviction of the Hibernate second-level cache for the rows Hibernate does not see go: the questions and answers of
+ * a deleted user and the answers of a deleted question are removed by the DB cascade, so their cached
+ * entities and natural ids would outlive them, and the questions and answers edited by native UPDATEs are
+ * locked in the cache by id until the edit completes. Changes made through the entity manager and bulk statements
+ * are evicted by Hibernate itself.
+ * The Hibernate statistics, with the hits, misses and puts of every cache region, are published as the
+ * "hibernate.*" meters.
+ */
+@Component
+public class EntityCache {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @PostConstruct
+    public void init() {
+        HibernateMetrics.monitor(meterRegistry, entityManagerFactory, "entityManagerFactory");
+    }
+
+    /**
+     * Evicts every cached entity and natural id of the classes once the current transaction commits, immediately
+     * outside of a transaction. An entity read again before the commit is still current and evicted with the rest.
+     * @param entityClasses
+     */
+    public void evictAfterCommit(final Class<?>... entityClasses) {
+        afterCommit(() -> {
+            final Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+            for (final Class<?> entityClass : entityClasses) {
+                cache.evictEntityRegion(entityClass);
+                cache.evictNaturalIdRegion(entityClass);
+            }
+        });
+    }
+
+    /**
+     * Soft locks the cached entity with the id until the current transaction completes, as Hibernate does for the
+     * entities it updates itself; immediately evicts it outside of a transaction. Used for rows changed by native
+     * statements, which Hibernate does not track, and to be called within their transaction. The lock replaces the
+     * cached entity, and a copy loaded by a transaction which started before the lock was released is not cached:
+     * a concurrent read of the row as it was before the change cannot put it back after the commit, as it could
+     * after an eviction.
+     * @param entityClass
+     * @param id
+     */
+    public void lockUntilCompletion(final Class<?> entityClass, final Object id) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            entityManagerFactory.getCache().evict(entityClass, id);
+            return;
+        }
+        final SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        final EntityPersister persister = session.getFactory().getMetamodel().entityPersister(entityClass);
+        if (!persister.hasCache()) {
+            return;
+        }
+        final EntityRegionAccessStrategy access = persister.getCacheAccessStrategy();
+        final Object key = access.generateCacheKey(id, persister, session.getFactory(), session.getTenantIdentifier());
+        final SoftLock lock = access.lockItem(session, key, null);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                access.unlockItem(session, key, lock);
+            }
+        });
+    }
+
+    private static void afterCommit(final Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
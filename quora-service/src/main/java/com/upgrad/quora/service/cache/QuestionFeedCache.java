@@ -0,0 +1,461 @@
+package com.upgrad.quora.service.cache;
+
+import com.upgrad.quora.service.common.KeysetCursor;
+import com.upgrad.quora.service.dao.QuestionDao;
+import com.upgrad.quora.service.projection.QuestionSummary;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * In-memory snapshot of the newest questions, in the order of the global feed (date desc, id desc), serving the
+ * pages of GET /question/all without a DB round trip. The snapshot is immutable and replaced as a whole, so a
+ * read is one volatile load and never blocks; the rare writes are serialized on the cache and copy the list.
+ * Created, edited and deleted questions and changed answer counts are applied after their transaction commits.
+ * Changes which do not go through the business services (other instances, deleted users) are picked up by the
+ * periodic reload. The changes committed while a reload runs are replayed on top of the loaded rows: creates, edits
+ * and deletes are idempotent, but answer counts are applied as deltas, which the loaded rows may or may not include
+ * already when their transaction overlapped the load. Such a reload is retried, up to "quora.feed.reload-attempts"
+ * times, after which it is published without the overlapping deltas: the counts concerned may be off by them until
+ * the next reload, while everything else in the snapshot is never older than the reload interval.
+ */
+@Component
+public class QuestionFeedCache {
+
+    //Orders like the getQuestionsFirstPage query, on the instant so that the zone of a date does not matter
+    static final Comparator<QuestionSummary> FEED_ORDER = Comparator
+            .comparing((QuestionSummary question) -> question.getDate().toInstant())
+            .thenComparing(QuestionSummary::getId)
+            .reversed();
+
+    private static final Snapshot UNLOADED = new Snapshot(0L, Collections.emptyList(), Collections.emptySet(), false,
+            false);
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${quora.feed.enabled:true}")
+    private boolean enabled;
+
+    @Value("${quora.feed.snapshot-size:1000}")
+    private int snapshotSize;
+
+    @Value("${quora.feed.reload-attempts:3}")
+    private int reloadAttempts;
+
+    private TransactionTemplate transactionTemplate;
+
+    private volatile Snapshot snapshot = UNLOADED;
+
+    //Bumped when a change is registered and when it completes, guarded by the cache; orders the changes against
+    //the loads of the reload
+    private long changes;
+
+    //Value of changes when each answer count delta which has not completed yet was registered, guarded by the cache
+    private final List<Long> pendingDeltas = new ArrayList<>();
+
+    //Changes committed since the running reload started, in the order they were applied, guarded by the cache
+    private final List<CommittedChange> committedDuringReload = new ArrayList<>();
+
+    private boolean reloading;
+
+    //Answer count deltas registered up to this value of changes are not applied to the snapshot any more, guarded by
+    //the cache: they overlapped the load of the published snapshot, which may include them already
+    private long deltasLoadedUpTo;
+
+    //The scheduled reload and the one of the answer count repair must not record over each other
+    private final Object reloadLock = new Object();
+
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    public void init() {
+        //Not read-only, so that the reload reads the primary: the change stamp only covers the changes committed
+        //there, a lagging replica could miss some of them until the next reload
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        hits = meterRegistry.counter("quora.question.feed.cache", "result", "hit");
+        misses = meterRegistry.counter("quora.question.feed.cache", "result", "miss");
+        Gauge.builder("quora.question.feed.cache.size", this, cache -> cache.snapshot.items.size())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the questions following the cursor from the snapshot, or null if the snapshot cannot answer the
+     * request: not loaded yet, or the requested records run past the end of a partial snapshot.
+     * @param after position of the last record of the previous page, null for the first page
+     * @param maxResults
+     * @return unmodifiable list of at most maxResults questions, or null to read the DB
+     */
+    public List<QuestionSummary> getQuestionsPage(final KeysetCursor after, final int maxResults) {
+        if (!enabled) {
+            return null;
+        }
+        final Snapshot current = snapshot;
+        final List<QuestionSummary> items = current.items;
+        final int from = after == null ? 0 : indexAfter(items, after);
+        final int to = from + maxResults;
+        if (!current.loaded || (to > items.size() && !current.complete)) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return items.subList(from, Math.min(to, items.size()));
+    }
+
+    /**
+     * @return version of the current snapshot, increased by every change, reload and invalidation
+     */
+    public long getVersion() {
+        return snapshot.version;
+    }
+
+    /**
+     * Adds the created question to the snapshot once the current transaction commits.
+     * @param question
+     */
+    public void added(final QuestionSummary question) {
+        //The DB keeps microseconds, the snapshot must order and page exactly like the rows read back
+        final QuestionSummary stored = new QuestionSummary(question.getId(), question.getUuid(), question.getContent(),
+                question.getDate().truncatedTo(ChronoUnit.MICROS), question.getAnswerCount(), question.getVersion());
+        afterCommit(current -> current.with(stored, snapshotSize), false);
+    }
+
+    /**
+     * Replaces the content of the question in the snapshot once the current transaction commits, unless the
+     * snapshot already holds that version or a later one.
+     * @param questionId
+     * @param content
+     * @param questionVersion version of the question after the edit
+     */
+    public void edited(final Integer questionId, final String content, final Integer questionVersion) {
+        afterCommit(current -> current.withContent(questionId, content, questionVersion), false);
+    }
+
+    /**
+     * Removes the question from the snapshot once the current transaction commits.
+     * @param questionId
+     */
+    public void removed(final Integer questionId) {
+        afterCommit(current -> current.without(questionId), false);
+    }
+
+    /**
+     * Adds delta to the answer count of the question in the snapshot once the current transaction commits.
+     * @param questionUuid
+     * @param delta number of answers added, negative for removed answers
+     */
+    public void answersChanged(final String questionUuid, final int delta) {
+        afterCommit(current -> current.withAnswerCount(questionUuid, delta), true);
+    }
+
+    /**
+     * Drops the snapshot once the current transaction commits, used when questions are removed by a DB cascade.
+     * The feed is read from the DB until the next reload.
+     */
+    public void invalidate() {
+        afterCommit(Snapshot::unloaded, false);
+    }
+
+    /**
+     * Reloads the snapshot from the DB and replays the changes committed meanwhile on top of it. A load which
+     * answer count deltas overlapped is retried, the last attempt is published in any case.
+     */
+    @Scheduled(fixedDelayString = "${quora.feed.refresh-interval-ms:60000}", initialDelay = 0)
+    public void reload() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (reloadLock) {
+            try {
+                for (int attempt = 1; attempt <= reloadAttempts; attempt++) {
+                    startReload();
+                    final List<QuestionSummary> newest = transactionTemplate.execute(status ->
+                            questionDao.getQuestionsPage(null, snapshotSize + 1));
+                    if (publish(newest, stamp(), attempt >= reloadAttempts)) {
+                        return;
+                    }
+                }
+            } finally {
+                stopReload();
+            }
+        }
+    }
+
+    /**
+     * Starts recording the committed changes, to be taken before loading the feed from the DB.
+     */
+    synchronized void startReload() {
+        reloading = true;
+        committedDuringReload.clear();
+    }
+
+    private synchronized void stopReload() {
+        reloading = false;
+        committedDuringReload.clear();
+    }
+
+    /**
+     * @return change stamp to be taken right after loading the feed from the DB
+     */
+    synchronized long stamp() {
+        return changes;
+    }
+
+    /**
+     * Replaces the snapshot with the newest questions loaded from the DB and the changes committed since
+     * startReload() replayed on top of them. Answer count deltas registered before the load ended may or may not
+     * be part of the loaded counts: unless forced, the reload is then not published. Once published, those deltas
+     * are not applied any more, neither the committed ones nor the ones still in flight.
+     * @param newest up to snapshotSize + 1 questions in feed order, more than snapshotSize marks a partial feed
+     * @param loaded value of stamp() taken right after the DB load
+     * @param force publish even if answer count deltas overlapped the load, without them
+     * @return true if the snapshot was replaced
+     */
+    synchronized boolean publish(final List<QuestionSummary> newest, final long loaded, final boolean force) {
+        if (!force && overlapsDelta(loaded)) {
+            return false;
+        }
+        final boolean complete = newest.size() <= snapshotSize;
+        final List<QuestionSummary> items = new ArrayList<>(complete ? newest : newest.subList(0, snapshotSize));
+        Snapshot reloaded = new Snapshot(snapshot.version + 1, Collections.unmodifiableList(items),
+                Collections.emptySet(), complete, true);
+        for (final CommittedChange committed : committedDuringReload) {
+            if (reloaded.loaded && (!committed.delta || committed.registered > loaded)) {
+                reloaded = committed.change.applyTo(reloaded);
+            }
+        }
+        snapshot = reloaded;
+        deltasLoadedUpTo = loaded;
+        stopReload();
+        return true;
+    }
+
+    private boolean overlapsDelta(final long loaded) {
+        for (final Long registered : pendingDeltas) {
+            if (registered <= loaded) {
+                return true;
+            }
+        }
+        for (final CommittedChange committed : committedDuringReload) {
+            if (committed.delta && committed.registered <= loaded) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Registers the change as in flight and applies it once the current transaction commits, immediately outside
+     * of a transaction.
+     * @param delta true for answer count deltas, which cannot be applied twice
+     */
+    private void afterCommit(final Change change, final boolean delta) {
+        final long registered = begin(delta);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    complete(status == STATUS_COMMITTED ? change : null, registered, delta);
+                }
+            });
+        } else {
+            complete(change, registered, delta);
+        }
+    }
+
+    private synchronized long begin(final boolean delta) {
+        changes++;
+        if (delta) {
+            pendingDeltas.add(changes);
+        }
+        return changes;
+    }
+
+    /**
+     * @param change committed change, null if its transaction rolled back
+     * @param registered value of changes when the change was registered
+     */
+    private synchronized void complete(final Change change, final long registered, final boolean delta) {
+        changes++;
+        if (delta) {
+            pendingDeltas.remove(Long.valueOf(registered));
+        }
+        if (change == null || (delta && registered <= deltasLoadedUpTo)) {
+            return;
+        }
+        if (reloading) {
+            committedDuringReload.add(new CommittedChange(change, registered, delta));
+        }
+        final Snapshot current = snapshot;
+        if (current.loaded) {
+            snapshot = change.applyTo(current);
+        }
+    }
+
+    /**
+     * @return index of the first question after the cursor position in feed order
+     */
+    private static int indexAfter(final List<QuestionSummary> items, final KeysetCursor after) {
+        final QuestionSummary position = new QuestionSummary(after.getId(), null, null, after.getDate(), null,
+                null);
+        int low = 0;
+        int high = items.size();
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (FEED_ORDER.compare(items.get(middle), position) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private interface Change {
+
+        Snapshot applyTo(Snapshot current);
+    }
+
+    private static final class CommittedChange {
+
+        private final Change change;
+
+        private final long registered;
+
+        private final boolean delta;
+
+        private CommittedChange(final Change change, final long registered, final boolean delta) {
+            this.change = change;
+            this.registered = registered;
+            this.delta = delta;
+        }
+    }
+
+    /**
+     * Newest questions of the feed. removedIds holds the questions deleted since the load, so that a create whose
+     * commit callback runs after the one of the delete does not bring the question back.
+     */
+    private static final class Snapshot {
+
+        private final long version;
+
+        private final List<QuestionSummary> items;
+
+        private final Set<Integer> removedIds;
+
+        //True if items holds every question, false if it is the newest snapshotSize only
+        private final boolean complete;
+
+        //False until the first load and after an invalidation, the feed is then read from the DB
+        private final boolean loaded;
+
+        private Snapshot(final long version, final List<QuestionSummary> items, final Set<Integer> removedIds,
+                         final boolean complete, final boolean loaded) {
+            this.version = version;
+            this.items = items;
+            this.removedIds = removedIds;
+            this.complete = complete;
+            this.loaded = loaded;
+        }
+
+        private Snapshot unloaded() {
+            return new Snapshot(version + 1, Collections.emptyList(), Collections.emptySet(), false, false);
+        }
+
+        private Snapshot with(final QuestionSummary question, final int snapshotSize) {
+            if (removedIds.contains(question.getId()) || indexOf(question.getId()) >= 0) {
+                return this;
+            }
+            final int position = -Collections.binarySearch(items, question, FEED_ORDER) - 1;
+            //Older than the newest snapshotSize questions, it is not part of the snapshot
+            if (position == items.size() && !complete) {
+                return this;
+            }
+            final List<QuestionSummary> updated = new ArrayList<>(items.size() + 1);
+            updated.addAll(items);
+            updated.add(position, question);
+            boolean nowComplete = complete;
+            if (updated.size() > snapshotSize) {
+                updated.remove(updated.size() - 1);
+                nowComplete = false;
+            }
+            return new Snapshot(version + 1, Collections.unmodifiableList(updated), removedIds, nowComplete, true);
+        }
+
+        private Snapshot withContent(final Integer questionId, final String content,
+                                     final Integer questionVersion) {
+            final int index = indexOf(questionId);
+            if (index < 0) {
+                return this;
+            }
+            final QuestionSummary question = items.get(index);
+            //Commit callbacks of concurrent edits may run out of order, the later version wins
+            if (question.getVersion() != null && questionVersion <= question.getVersion()) {
+                return this;
+            }
+            final List<QuestionSummary> updated = new ArrayList<>(items);
+            updated.set(index, new QuestionSummary(question.getId(), question.getUuid(), content, question.getDate(),
+                    question.getAnswerCount(), questionVersion));
+            return new Snapshot(version + 1, Collections.unmodifiableList(updated), removedIds, complete, true);
+        }
+
+        private Snapshot withAnswerCount(final String questionUuid, final int delta) {
+            for (int i = 0; i < items.size(); i++) {
+                final QuestionSummary question = items.get(i);
+                if (question.getUuid().equals(questionUuid)) {
+                    final List<QuestionSummary> updated = new ArrayList<>(items);
+                    updated.set(i, new QuestionSummary(question.getId(), question.getUuid(), question.getContent(),
+                            question.getDate(), question.getAnswerCount() + delta, question.getVersion()));
+                    return new Snapshot(version + 1, Collections.unmodifiableList(updated), removedIds, complete,
+                            true);
+                }
+            }
+            return this;
+        }
+
+        private Snapshot without(final Integer questionId) {
+            final Set<Integer> updatedRemovedIds = new HashSet<>(removedIds);
+            updatedRemovedIds.add(questionId);
+            final List<QuestionSummary> updated = new ArrayList<>(items);
+            final int index = indexOf(questionId);
+            if (index >= 0) {
+                updated.remove(index);
+            }
+            return new Snapshot(version + 1, Collections.unmodifiableList(updated),
+                    Collections.unmodifiableSet(updatedRemovedIds), complete, true);
+        }
+
+        private int indexOf(final Integer questionId) {
+            for (int i = 0; i < items.size(); i++) {
+                if (items.get(i).getId().equals(questionId)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.upgrad.quora.service.cache;
+
+import com.upgrad.quora.service.dao.UserAuthDao;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.ZonedDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory set of the signed-out sessions which have not expired yet, keyed by the JWT id ("jti") of their
+ * access token, which is the uuid of the user_auth record. A Bloom filter sits in front of the exact set so that
+ * the check on every request is a handful of bit probes for the common case of a live token, without locking
+ * or allocation. The set is rebuilt from user_auth and the revoked_token tombstones of the sessions of deleted
+ * users on startup, refreshed periodically with the sessions signed out or tombstoned on other instances and
+ * pruned as the sessions pass expires_at.
+ */
+@Component
+public class TokenRevocationFilter {
+
+    @Autowired
+    private UserAuthDao userAuthDao;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${quora.auth.revocation.expected-revocations:100000}")
+    private int expectedRevocations;
+
+    @Value("${quora.auth.revocation.refresh-overlap-seconds:60}")
+    private long refreshOverlapSeconds;
+
+    //Hash probes per token, optimal for a false positive rate around 1% with 10 bits per revocation
+    private static final int HASH_PROBES = 7;
+
+    private volatile Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    private volatile AtomicLongArray bits;
+
+    private long bitMask;
+
+    private ZonedDateTime lastRefresh;
+
+    @PostConstruct
+    public void init() {
+        final long requiredBits = Math.max(64L, expectedRevocations * 10L);
+        final long size = Long.highestOneBit(requiredBits - 1) << 1;
+        bitMask = size - 1;
+        bits = new AtomicLongArray((int) (size >>> 6));
+        Gauge.builder("quora.auth.revocation.size", this, filter -> filter.revoked.size()).register(meterRegistry);
+    }
+
+    /**
+     * Checks whether the session of the JWT id has been signed out.
+     * @param tokenId JWT id of the access token
+     * @return true if the session is revoked
+     */
+    public boolean isRevoked(final String tokenId) {
+        if (tokenId == null) {
+            return false;
+        }
+        final AtomicLongArray current = bits;
+        final int h1 = tokenId.hashCode();
+        final int h2 = secondaryHash(tokenId);
+        for (int i = 0; i < HASH_PROBES; i++) {
+            final long bit = (h1 + (long) i * h2) & bitMask;
+            if ((current.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return revoked.containsKey(tokenId);
+    }
+
+    /**
+     * Marks the session of the JWT id as signed out until it expires.
+     * @param tokenId JWT id of the access token
+     * @param expiresAt expiry of the session
+     */
+    public synchronized void revoke(final String tokenId, final ZonedDateTime expiresAt) {
+        if (tokenId == null || expiresAt == null) {
+            return;
+        }
+        revoked.put(tokenId, expiresAt.toInstant().toEpochMilli());
+        setBits(bits, tokenId);
+    }
+
+    /**
+     * Loads all the signed-out sessions which have not expired yet, before the web server accepts requests. The
+     * event fires again on every refresh of a context, so the sessions are loaded into a new set which is swapped
+     * in with the sessions already revoked: no token is accepted again while the set is being reloaded.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public synchronized void rebuild() {
+        final ZonedDateTime now = ZonedDateTime.now();
+        final Map<String, Long> reloaded = new ConcurrentHashMap<>();
+        for (final Object[] session : userAuthDao.getRevokedSessions(null, now)) {
+            if (session[0] != null && session[1] != null) {
+                reloaded.put((String) session[0], ((ZonedDateTime) session[1]).toInstant().toEpochMilli());
+            }
+        }
+        //Revoked on this instance by a transaction the load may not see yet
+        for (final Map.Entry<String, Long> session : revoked.entrySet()) {
+            reloaded.putIfAbsent(session.getKey(), session.getValue());
+        }
+        for (final String tokenId : reloaded.keySet()) {
+            setBits(bits, tokenId);
+        }
+        revoked = reloaded;
+        lastRefresh = now;
+        prune();
+    }
+
+    /**
+     * Picks up the sessions signed out on other instances since the last refresh.
+     */
+    @Scheduled(fixedDelayString = "${quora.auth.revocation.refresh-interval-ms:30000}")
+    public synchronized void refresh() {
+        if (lastRefresh == null) {
+            return;
+        }
+        final ZonedDateTime now = ZonedDateTime.now();
+        load(userAuthDao.getRevokedSessions(lastRefresh.minusSeconds(refreshOverlapSeconds), now));
+        lastRefresh = now;
+    }
+
+    /**
+     * Drops the expired sessions and rebuilds the Bloom filter from the remaining ones, since bits cannot be
+     * removed from it.
+     */
+    @Scheduled(fixedDelayString = "${quora.auth.revocation.prune-interval-ms:300000}")
+    public synchronized void prune() {
+        final long now = System.currentTimeMillis();
+        final Iterator<Long> iterator = revoked.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() <= now) {
+                iterator.remove();
+            }
+        }
+        final AtomicLongArray rebuilt = new AtomicLongArray(bits.length());
+        for (final String tokenId : revoked.keySet()) {
+            setBits(rebuilt, tokenId);
+        }
+        bits = rebuilt;
+    }
+
+    private void load(final List<Object[]> sessions) {
+        for (final Object[] session : sessions) {
+            revoke((String) session[0], (ZonedDateTime) session[1]);
+        }
+    }
+
+    private void setBits(final AtomicLongArray target, final String tokenId) {
+        final int h1 = tokenId.hashCode();
+        final int h2 = secondaryHash(tokenId);
+        for (int i = 0; i < HASH_PROBES; i++) {
+            final long bit = (h1 + (long) i * h2) & bitMask;
+            final int index = (int) (bit >>> 6);
+            final long mask = 1L << bit;
+            long word;
+            do {
+                word = target.get(index);
+            } while ((word & mask) == 0 && !target.compareAndSet(index, word, word | mask));
+        }
+    }
+
+    /**
+     * FNV-1a over the characters, independent of String.hashCode and forced odd so that the probes never collapse.
+     */
+    private static int secondaryHash(final String value) {
+        int hash = 0x811c9dc5;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x01000193;
+        }
+        return hash | 1;
+    }
+}
@@ -0,0 +1,226 @@
+package com.upgrad.quora.service.cache;
+
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process cache of user_auth records keyed by access token, sitting in front of UserAuthDao.getUserAuth.
+ * An entry never outlives the expires_at of its session and is dropped as soon as the session is signed out.
+ * Sign-outs and user deletions on other instances are seen through the TokenRevocationFilter, so a cached session
+ * is served for at most "quora.auth.revocation.refresh-interval-ms" after it was revoked elsewhere.
+ * Only detached copies are handed out, so a caller can never touch an instance managed by another request.
+ */
+@Component
+public class UserAuthCache {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TokenRevocationFilter tokenRevocationFilter;
+
+    @Value("${quora.auth.session-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${quora.auth.session-cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${quora.auth.session-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    //Bumped on every invalidation, a load which started before an invalidation must not be cached
+    private final AtomicLong invalidationStamp = new AtomicLong();
+
+    private Counter hits;
+    private Counter misses;
+    private Counter evictions;
+
+    @PostConstruct
+    public void registerMetrics() {
+        hits = meterRegistry.counter("quora.auth.session.cache", "result", "hit");
+        misses = meterRegistry.counter("quora.auth.session.cache", "result", "miss");
+        evictions = meterRegistry.counter("quora.auth.session.cache.evictions");
+        Gauge.builder("quora.auth.session.cache.size", entries, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Returns a detached copy of the cached session for the token, or null if the token is not cached, its entry
+     * has expired or its session has been revoked since it was cached.
+     * @param accessToken
+     * @return UserAuthEntity copy or null
+     */
+    public UserAuthEntity get(final String accessToken) {
+        if (!enabled || accessToken == null) {
+            return null;
+        }
+        final Entry entry = entries.get(accessToken);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        //A session cached before it was signed out or tombstoned, possibly on another instance, is read again
+        if (entry.validUntil <= System.currentTimeMillis()
+                || (entry.userAuth.getLogoutAt() == null && tokenRevocationFilter.isRevoked(entry.userAuth.getUuid()))) {
+            if (entries.remove(accessToken, entry)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return copyOf(entry.userAuth);
+    }
+
+    /**
+     * Stamp to be taken before loading a session from the DB and handed back to put.
+     * @return current invalidation stamp
+     */
+    public long stamp() {
+        return invalidationStamp.get();
+    }
+
+    /**
+     * Caches the session loaded from the DB. Nothing is cached if an invalidation happened since the stamp was
+     * taken or the session has already passed expires_at.
+     * @param accessToken
+     * @param userAuthEntity
+     * @param stamp value of stamp() taken before the DB load
+     */
+    public void put(final String accessToken, final UserAuthEntity userAuthEntity, final long stamp) {
+        if (!enabled || accessToken == null || userAuthEntity == null || userAuthEntity.getExpiresAt() == null) {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        final long validUntil = Math.min(now + ttlSeconds * 1000,
+                userAuthEntity.getExpiresAt().toInstant().toEpochMilli());
+        if (validUntil <= now) {
+            return;
+        }
+        if (entries.size() >= maxSize) {
+            evict(now);
+        }
+        entries.put(accessToken, new Entry(copyOf(userAuthEntity), validUntil));
+        //An invalidation raced with the DB load, the loaded state may already be stale
+        if (invalidationStamp.get() != stamp) {
+            entries.remove(accessToken);
+        }
+    }
+
+    /**
+     * Drops the session of the token. If called within a transaction, the entry is dropped again after completion
+     * so that a concurrent reader cannot re-cache the state as it was before the commit.
+     * @param accessToken
+     */
+    public void invalidate(final String accessToken) {
+        if (accessToken == null) {
+            return;
+        }
+        invalidationStamp.incrementAndGet();
+        entries.remove(accessToken);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidationStamp.incrementAndGet();
+                    entries.remove(accessToken);
+                }
+            });
+        }
+    }
+
+    /**
+     * Drops all the sessions of a user, used when the user is deleted.
+     * @param userId
+     */
+    public void invalidateUser(final Integer userId) {
+        invalidationStamp.incrementAndGet();
+        entries.values().removeIf(entry -> entry.userAuth.getUser().getId().equals(userId));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidationStamp.incrementAndGet();
+                    entries.values().removeIf(entry -> entry.userAuth.getUser().getId().equals(userId));
+                }
+            });
+        }
+    }
+
+    /**
+     * Removes expired entries and, if the cache is still full, an arbitrary tenth of the remaining ones so that
+     * the cost of a full sweep is paid once for many inserts.
+     */
+    private void evict(final long now) {
+        final int target = maxSize - Math.max(1, maxSize / 10);
+        final Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().validUntil <= now) {
+                iterator.remove();
+                evictions.increment();
+            }
+        }
+        final Iterator<Entry> overflow = entries.values().iterator();
+        while (entries.size() > target && overflow.hasNext()) {
+            overflow.next();
+            overflow.remove();
+            evictions.increment();
+        }
+    }
+
+    private static UserAuthEntity copyOf(final UserAuthEntity source) {
+        final UserAuthEntity copy = new UserAuthEntity();
+        copy.setId(source.getId());
+        copy.setUuid(source.getUuid());
+        copy.setAccessToken(source.getAccessToken());
+        copy.setAccessTokenHash(source.getAccessTokenHash());
+        copy.setExpiresAt(source.getExpiresAt());
+        copy.setLoginAt(source.getLoginAt());
+        copy.setLogoutAt(source.getLogoutAt());
+        copy.setUser(copyOf(source.getUser()));
+        return copy;
+    }
+
+    private static UserEntity copyOf(final UserEntity source) {
+        final UserEntity copy = new UserEntity();
+        copy.setId(source.getId());
+        copy.setUuid(source.getUuid());
+        copy.setFirstName(source.getFirstName());
+        copy.setLastName(source.getLastName());
+        copy.setUserName(source.getUserName());
+        copy.setEmail(source.getEmail());
+        copy.setPassword(source.getPassword());
+        copy.setSalt(source.getSalt());
+        copy.setCountry(source.getCountry());
+        copy.setAboutMe(source.getAboutMe());
+        copy.setDob(source.getDob());
+        copy.setRole(source.getRole());
+        copy.setContactNumber(source.getContactNumber());
+        return copy;
+    }
+
+    private static final class Entry {
+        private final UserAuthEntity userAuth;
+        private final long validUntil;
+
+        private Entry(final UserAuthEntity userAuth, final long validUntil) {
+            this.userAuth = userAuth;
+            this.validUntil = validUntil;
+        }
+    }
+}
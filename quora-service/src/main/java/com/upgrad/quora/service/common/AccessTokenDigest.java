@@ -0,0 +1,46 @@
+package com.upgrad.quora.service.common;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Fixed-width digest of access tokens. user_auth is looked up by the SHA-256 of the token, stored as 64 lower-case
+ * hex characters in access_token_hash, which matches encode(digest(access_token, 'sha256'), 'hex') on the DB side.
+ */
+public final class AccessTokenDigest {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    //MessageDigest is not thread-safe, one instance per thread avoids the provider lookup on every request
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new UnexpectedException(GenericErrorCode.GEN_001, e);
+        }
+    });
+
+    private AccessTokenDigest() {
+    }
+
+    /**
+     * @param accessToken
+     * @return SHA-256 of the token as 64 lower-case hex characters, null if the token is null
+     */
+    public static String sha256Hex(final String accessToken) {
+        if (accessToken == null) {
+            return null;
+        }
+        final MessageDigest digest = SHA_256.get();
+        digest.reset();
+        final byte[] hash = digest.digest(accessToken.getBytes(StandardCharsets.UTF_8));
+        final char[] hexChars = new char[hash.length * 2];
+        for (int j = 0; j < hash.length; j++) {
+            final int v = hash[j] & 0xFF;
+            hexChars[j * 2] = HEX[v >>> 4];
+            hexChars[j * 2 + 1] = HEX[v & 0x0F];
+        }
+        return new String(hexChars);
+    }
+}
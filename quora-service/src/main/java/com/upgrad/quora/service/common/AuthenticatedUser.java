@@ -0,0 +1,35 @@
+package com.upgrad.quora.service.common;
+
+/**
+ * Principal of the signed-in user resolved once per request from the authorization token.
+ */
+public final class AuthenticatedUser {
+
+    private final Integer userId;
+
+    private final String userUuid;
+
+    private final String role;
+
+    public AuthenticatedUser(final Integer userId, final String userUuid, final String role) {
+        this.userId = userId;
+        this.userUuid = userUuid;
+        this.role = role;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public String getUserUuid() {
+        return userUuid;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public boolean isAdmin() {
+        return "admin".equals(role);
+    }
+}
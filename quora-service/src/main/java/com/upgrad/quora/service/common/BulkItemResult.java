@@ -0,0 +1,60 @@
+package com.upgrad.quora.service.common;
+
+/**
+ * Outcome of one item of a bulk request: the uuid of the created record, or the error code and message of the
+ * failure. A failed item does not fail the other items of the request.
+ */
+public final class BulkItemResult {
+
+    private final int index;
+
+    private final String uuid;
+
+    private final String code;
+
+    private final String errorMessage;
+
+    private BulkItemResult(final int index, final String uuid, final String code, final String errorMessage) {
+        this.index = index;
+        this.uuid = uuid;
+        this.code = code;
+        this.errorMessage = errorMessage;
+    }
+
+    /**
+     * @param index position of the item in the request
+     * @param uuid uuid of the created record
+     */
+    public static BulkItemResult created(final int index, final String uuid) {
+        return new BulkItemResult(index, uuid, null, null);
+    }
+
+    /**
+     * @param index position of the item in the request
+     * @param code error code, as of the exceptions
+     * @param errorMessage error message, as of the exceptions
+     */
+    public static BulkItemResult failed(final int index, final String code, final String errorMessage) {
+        return new BulkItemResult(index, null, code, errorMessage);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public boolean isCreated() {
+        return code == null;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+}
@@ -0,0 +1,39 @@
+package com.upgrad.quora.service.common;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a listing ordered by id: the id of the last record of the previous page.
+ * Handed out to clients as an opaque url-safe string.
+ */
+public final class IdCursor {
+
+    private final Integer id;
+
+    public IdCursor(final Integer id) {
+        this.id = id;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    /**
+     * @return the cursor as opaque url-safe string
+     */
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(String.valueOf(id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param cursor as returned by encode
+     * @return the decoded cursor
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static IdCursor decode(final String cursor) {
+        final String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        //NumberFormatException is an IllegalArgumentException
+        return new IdCursor(Integer.valueOf(position));
+    }
+}
@@ -0,0 +1,61 @@
+package com.upgrad.quora.service.common;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a listing ordered by (date desc, id desc): the date and id of the last record of the previous page.
+ * Handed out to clients as an opaque url-safe string.
+ */
+public final class KeysetCursor {
+
+    private final ZonedDateTime date;
+
+    private final Integer id;
+
+    public KeysetCursor(final ZonedDateTime date, final Integer id) {
+        this.date = date;
+        this.id = id;
+    }
+
+    public ZonedDateTime getDate() {
+        return date;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    /**
+     * @return the cursor as opaque url-safe string
+     */
+    public String encode() {
+        //The instant keeps the full precision of the date, a rounded date would skip or repeat records
+        final String position = date.toInstant().toString() + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param cursor as returned by encode
+     * @return the decoded cursor
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static KeysetCursor decode(final String cursor) {
+        final String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        final int separator = position.indexOf('|');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        try {
+            final Instant instant = Instant.parse(position.substring(0, separator));
+            return new KeysetCursor(ZonedDateTime.ofInstant(instant, ZoneId.systemDefault()),
+                    Integer.valueOf(position.substring(separator + 1)));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+    }
+}
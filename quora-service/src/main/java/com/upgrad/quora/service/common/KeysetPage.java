@@ -0,0 +1,29 @@
+package com.upgrad.quora.service.common;
+
+import java.util.List;
+
+/**
+ * One page of a keyset paginated listing.
+ */
+public final class KeysetPage<T> {
+
+    private final List<T> items;
+
+    private final String nextCursor;
+
+    public KeysetPage(final List<T> items, final String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * @return cursor of the next page, null if this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
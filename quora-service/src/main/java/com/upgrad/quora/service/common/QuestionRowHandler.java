@@ -0,0 +1,19 @@
+package com.upgrad.quora.service.common;
+
+import java.io.IOException;
+import java.time.ZonedDateTime;
+
+/**
+ * Receives the questions of an export one row at a time, as they are read from the DB.
+ */
+public interface QuestionRowHandler {
+
+    /**
+     * @param uuid uuid of the question
+     * @param content content of the question
+     * @param date date of the question
+     * @param userUuid uuid of the user who posted the question
+     * @throws IOException if the row cannot be written
+     */
+    void handle(String uuid, String content, ZonedDateTime date, String userUuid) throws IOException;
+}
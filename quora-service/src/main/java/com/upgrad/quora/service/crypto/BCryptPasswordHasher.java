@@ -0,0 +1,67 @@
+package com.upgrad.quora.service.crypto;
+
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+
+/**
+ * bcrypt, the cost is the base-2 logarithm of the number of rounds. The encoded hash is the standard
+ * "$2a$cost$saltAndHash" string, which carries its own salt. Only the first 72 bytes of a password are significant.
+ */
+@Component
+public class BCryptPasswordHasher implements PasswordHasher {
+
+    public static final String ALGORITHM = "bcrypt";
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    @Override
+    public String getAlgorithm() {
+        return ALGORITHM;
+    }
+
+    @Override
+    public int getMinimumCost() {
+        return 10;
+    }
+
+    @Override
+    public int getMaximumCost() {
+        return 31;
+    }
+
+    @Override
+    public int scaleCost(final int cost, final double factor) {
+        //Every step doubles the hashing time, round down rather than overshoot the target twofold
+        final int steps = (int) Math.floor(Math.log(factor) / Math.log(2));
+        return Math.min(getMaximumCost(), cost + Math.max(1, steps));
+    }
+
+    @Override
+    public int roundCost(final int cost) {
+        //Already a whole number of doublings
+        return cost;
+    }
+
+    @Override
+    public int toleratedCost(final int cost) {
+        //A calibration near a doubling can come out one step higher or lower
+        return Math.max(getMinimumCost(), cost - 1);
+    }
+
+    @Override
+    public String hash(final String password, final byte[] salt, final int cost) {
+        return BCrypt.hashpw(password, BCrypt.gensalt(cost, RANDOM));
+    }
+
+    @Override
+    public boolean matches(final String password, final byte[] salt, final String encoded) {
+        return BCrypt.checkpw(password, encoded);
+    }
+
+    @Override
+    public boolean isOutdated(final String encoded, final int cost) {
+        return encoded.length() < 7 || Integer.parseInt(encoded.substring(4, 6)) < cost;
+    }
+}
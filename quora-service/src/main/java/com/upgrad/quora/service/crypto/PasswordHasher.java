@@ -0,0 +1,66 @@
+package com.upgrad.quora.service.crypto;
+
+/**
+ * Password hashing algorithm. A stored password hash is "algorithm:encoded", where the encoded part produced by
+ * the hasher records every parameter needed to verify it again, so that the algorithm and its cost can be changed
+ * without invalidating existing passwords.
+ */
+public interface PasswordHasher {
+
+    /**
+     * @return name of the algorithm recorded in front of the stored hash
+     */
+    String getAlgorithm();
+
+    /**
+     * @return lowest cost accepted for new hashes
+     */
+    int getMinimumCost();
+
+    /**
+     * @return highest cost supported by the algorithm
+     */
+    int getMaximumCost();
+
+    /**
+     * @param cost
+     * @param factor ratio between the wanted and the current hashing time
+     * @return cost expected to take factor times as long to hash as cost
+     */
+    int scaleCost(int cost, double factor);
+
+    /**
+     * @param cost calibrated cost
+     * @return cost rounded to the coarse steps of the algorithm, so that calibrations on the same hardware agree
+     */
+    int roundCost(int cost);
+
+    /**
+     * @param cost calibrated cost of new hashes
+     * @return lowest cost of a stored hash still current, hashes within the noise of the calibration are kept
+     */
+    int toleratedCost(int cost);
+
+    /**
+     * @param password
+     * @param salt random salt, hashers which generate their own salt ignore it
+     * @param cost work factor of the algorithm
+     * @return parameters and hash, without the algorithm name
+     */
+    String hash(String password, byte[] salt, int cost);
+
+    /**
+     * @param password
+     * @param salt salt the hash was created with
+     * @param encoded parameters and hash as returned by hash
+     * @return true if the password matches the hash
+     */
+    boolean matches(String password, byte[] salt, String encoded);
+
+    /**
+     * @param encoded parameters and hash as returned by hash
+     * @param cost lowest cost still current
+     * @return true if the hash was created with weaker parameters
+     */
+    boolean isOutdated(String encoded, int cost);
+}
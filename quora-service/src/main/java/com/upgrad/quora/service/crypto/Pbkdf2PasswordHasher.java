@@ -0,0 +1,129 @@
+package com.upgrad.quora.service.crypto;
+
+import com.upgrad.quora.service.common.GenericErrorCode;
+import com.upgrad.quora.service.common.UnexpectedException;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.spec.InvalidKeySpecException;
+
+/**
+ * PBKDF2WithHmacSHA512, the cost is the number of iterations. Encoded as "iterations:keyLengthBits:hexHash".
+ */
+@Component
+public class Pbkdf2PasswordHasher implements PasswordHasher {
+
+    public static final String ALGORITHM = "pbkdf2-sha512";
+
+    private static final String SECRET_KEY_ALGORITHM = "PBKDF2WithHmacSHA512";
+
+    private static final int KEY_LENGTH = 256;
+
+    //Calibrated iteration counts are rounded to this step
+    private static final int COST_STEP = 10000;
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    //SecretKeyFactory is not thread-safe, SecretKeyFactory.getInstance scans the security providers on every call
+    private static final ThreadLocal<SecretKeyFactory> FACTORY = ThreadLocal.withInitial(() -> {
+        try {
+            return SecretKeyFactory.getInstance(SECRET_KEY_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new UnexpectedException(GenericErrorCode.GEN_001, e);
+        }
+    });
+
+    @Override
+    public String getAlgorithm() {
+        return ALGORITHM;
+    }
+
+    @Override
+    public int getMinimumCost() {
+        return 10000;
+    }
+
+    @Override
+    public int getMaximumCost() {
+        return 100000000;
+    }
+
+    @Override
+    public int scaleCost(final int cost, final double factor) {
+        return (int) Math.min(getMaximumCost(), Math.max(cost + 1L, Math.round(cost * factor)));
+    }
+
+    @Override
+    public int roundCost(final int cost) {
+        final long rounded = Math.round((double) cost / COST_STEP) * COST_STEP;
+        return (int) Math.min(getMaximumCost(), Math.max(getMinimumCost(), rounded));
+    }
+
+    @Override
+    public int toleratedCost(final int cost) {
+        //Repeated calibrations differ by up to a few tens of percent, hashes at three quarters of the cost are kept
+        return Math.max(getMinimumCost(), cost / 4 * 3);
+    }
+
+    @Override
+    public String hash(final String password, final byte[] salt, final int cost) {
+        return cost + ":" + KEY_LENGTH + ":" + bytesToHex(derive(password, salt, cost, KEY_LENGTH));
+    }
+
+    @Override
+    public boolean matches(final String password, final byte[] salt, final String encoded) {
+        final String[] parts = encoded.split(":");
+        if (parts.length != 3) {
+            return false;
+        }
+        final byte[] expected = hexToBytes(parts[2]);
+        final byte[] actual = derive(password, salt, Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+        return MessageDigest.isEqual(expected, actual);
+    }
+
+    @Override
+    public boolean isOutdated(final String encoded, final int cost) {
+        final String[] parts = encoded.split(":");
+        return parts.length != 3 || Integer.parseInt(parts[0]) < cost || Integer.parseInt(parts[1]) != KEY_LENGTH;
+    }
+
+    private static byte[] derive(final String password, final byte[] salt, final int iterations, final int keyLength) {
+        final PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, keyLength);
+        try {
+            return FACTORY.get().generateSecret(spec).getEncoded();
+        } catch (InvalidKeySpecException e) {
+            throw new UnexpectedException(GenericErrorCode.GEN_001, e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static String bytesToHex(final byte[] bytes) {
+        final char[] hexChars = new char[bytes.length * 2];
+        for (int j = 0; j < bytes.length; j++) {
+            final int v = bytes[j] & 0xFF;
+            hexChars[j * 2] = HEX[v >>> 4];
+            hexChars[j * 2 + 1] = HEX[v & 0x0F];
+        }
+        return new String(hexChars);
+    }
+
+    private static byte[] hexToBytes(final String hex) {
+        if (hex.length() % 2 != 0) {
+            throw new IllegalArgumentException("Odd length hex string");
+        }
+        final byte[] bytes = new byte[hex.length() / 2];
+        for (int j = 0; j < bytes.length; j++) {
+            final int high = Character.digit(hex.charAt(j * 2), 16);
+            final int low = Character.digit(hex.charAt(j * 2 + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("Invalid hex string");
+            }
+            bytes[j] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+}
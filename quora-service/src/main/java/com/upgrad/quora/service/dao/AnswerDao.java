@@ -1,12 +1,21 @@
 package com.upgrad.quora.service.dao;
 
+import com.upgrad.quora.service.common.IdCursor;
 import com.upgrad.quora.service.entity.AnswerEntity;
 import com.upgrad.quora.service.entity.QuestionEntity;
+import com.upgrad.quora.service.projection.AnswerSummary;
+import org.hibernate.LockOptions;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.query.NativeQuery;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
-import javax.persistence.NoResultException;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import java.sql.Timestamp;
+import java.time.ZonedDateTime;
 import java.util.List;
 
 @Repository
@@ -16,35 +25,99 @@ public class AnswerDao {
     private EntityManager entityManager;
 
     /**
-     * Method saves the answer entity record in the DB
+     * Method saves the answer entity record in the DB for the question with the given uuid, in a single statement
+     * which looks up the question and increments its answer count. The answer entity is not made managed, its id
+     * is drawn from the same pooled-lo blocks as the ids of persisted answers. The new answer stales no cached
+     * entity, the statement is synchronized on the answer count query space only.
      * @param answerEntity
-     * @return Answer Entity
+     * @param questionUuid
+     * @param userId id of the user posting the answer
+     * @return number of inserted records, 0 if there is no question with the uuid
      */
-    public AnswerEntity createAnswer(final AnswerEntity answerEntity){
-        entityManager.persist(answerEntity);
-        return answerEntity;
+    public int createAnswer(final AnswerEntity answerEntity, final String questionUuid, final Integer userId){
+        final SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        answerEntity.setId((Integer) session.getFactory().getMetamodel().entityPersister(AnswerEntity.class)
+                .getIdentifierGenerator().generate(session, answerEntity));
+        return entityManager.createNamedQuery("createAnswerForQuestionUuid").unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace(QuestionEntity.ANSWER_COUNT_QUERY_SPACE)
+                .setParameter("id", answerEntity.getId())
+                .setParameter("uuid", answerEntity.getUuid())
+                .setParameter("answer", answerEntity.getAnswer())
+                .setParameter("date", Timestamp.from(answerEntity.getDate().toInstant()))
+                .setParameter("userId", userId)
+                .setParameter("questionUuid", questionUuid)
+                .executeUpdate();
     }
 
     /**
-     * Method get the answer entity record from DB using UUID
+     * Method saves the answer entity records in the DB. The inserts are sent in JDBC batches when the
+     * transaction is flushed.
+     * @param answerEntities
+     */
+    public void createAnswers(final List<AnswerEntity> answerEntities){
+        for (final AnswerEntity answerEntity : answerEntities) {
+            entityManager.persist(answerEntity);
+        }
+    }
+
+    /**
+     * Method get the answer entity record using UUID, the natural id. Served from the second-level cache when the
+     * answer is cached; its question is loaded lazily, from the cache as well.
      * @param uuid
-     * @return Answer entity
+     * @return Answer entity, null if there is no answer with the uuid
      */
     public AnswerEntity getAnswerByUuid(final String uuid){
-        try {
-            return entityManager.createNamedQuery("getAnswerByUuid", AnswerEntity.class).setParameter("uuid", uuid)
-                    .getSingleResult();
-        } catch (NoResultException nre) {
-            return null;
-        }
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(AnswerEntity.class).load(uuid);
     }
 
     /**
-     * Method updates the existing answer entity record in the DB
-     * @param updatedAnswerEntity
+     * Method reads the answer for a uuid from the DB, never from the second-level cache, and locks it until the
+     * transaction ends, so that it can be removed against its current version.
+     * @param uuid
+     * @return Answer entity, null if there is no answer with the uuid
      */
-    public void updateAnswer(final AnswerEntity updatedAnswerEntity){
-        entityManager.merge(updatedAnswerEntity);
+    public AnswerEntity lockAnswerByUuid(final String uuid){
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(AnswerEntity.class)
+                .with(LockOptions.UPGRADE).load(uuid);
+    }
+
+    /**
+     * Method replaces the content and date of the answer in a single conditional UPDATE, which increments its
+     * version. Nothing is read before, the answer is not loaded and any cached copy is left to the caller to lock, see
+     * EntityCache.lockUntilCompletion.
+     * @param uuid
+     * @param userId id of the user editing the answer, who must own it
+     * @param answer
+     * @param date
+     * @param version version the edit was made against, null to edit whatever version is current
+     * @return edited answer, not managed, with id, uuid, answer, date, the new version and a question holding only
+     * its uuid; null if the user owns no answer with the uuid, or no longer in the given version
+     */
+    public AnswerEntity editAnswerContent(final String uuid, final Integer userId, final String answer,
+                                          final ZonedDateTime date, final Integer version){
+        final Query query;
+        if(version == null){
+            query = entityManager.createNamedQuery("editAnswerContent");
+        } else {
+            query = entityManager.createNamedQuery("editAnswerContentOfVersion").setParameter("version", version);
+        }
+        @SuppressWarnings("unchecked")
+        final List<Object[]> rows = query.setParameter("uuid", uuid).setParameter("userId", userId)
+                .setParameter("answer", answer).setParameter("date", Timestamp.from(date.toInstant()))
+                .getResultList();
+        if(rows.isEmpty()){
+            return null;
+        }
+        final QuestionEntity question = new QuestionEntity();
+        question.setUuid((String) rows.get(0)[2]);
+        final AnswerEntity edited = new AnswerEntity();
+        edited.setId((Integer) rows.get(0)[0]);
+        edited.setVersion((Integer) rows.get(0)[1]);
+        edited.setUuid(uuid);
+        edited.setAnswer(answer);
+        edited.setDate(date);
+        edited.setQuestion(question);
+        return edited;
     }
 
     /**
@@ -56,18 +129,32 @@ public class AnswerDao {
     }
 
     /**
-     * Fetches the list of answers for a given question entity
-     * @param questionEntity
-     * @return List of AnswerEntity
+     * Method reads the ids of the answers of a question from the DB, through the question id index
+     * @param questionId
+     * @return List of answer ids, empty if the question has no answers
      */
-    public List<AnswerEntity> getAllAnswersToQuestion(final QuestionEntity questionEntity){
-        try {
-            return entityManager.createNamedQuery("getAllAnswerByQuestionUuid", AnswerEntity.class)
-                    .setParameter("question", questionEntity)
-                    .getResultList();
-        } catch (NoResultException nre) {
-            return null;
+    public List<Integer> getAnswerIdsByQuestionId(final Integer questionId){
+        return entityManager.createNamedQuery("getAnswerIdsByQuestionId", Integer.class)
+                .setParameter("questionId", questionId).getResultList();
+    }
+
+    /**
+     * Fetches one page of the answers for a given question uuid, in id order, as read-only projections
+     * @param questionUuid
+     * @param after position after which the page starts, null for the first page
+     * @param maxResults
+     * @return List of AnswerSummary, empty if there are no more answers or the question does not exist
+     */
+    public List<AnswerSummary> getAnswersToQuestionPage(final String questionUuid, final IdCursor after,
+                                                        final int maxResults){
+        final TypedQuery<AnswerSummary> query;
+        if(after == null){
+            query = entityManager.createNamedQuery("getAnswersByQuestionUuidFirstPage", AnswerSummary.class);
+        } else {
+            query = entityManager.createNamedQuery("getAnswersByQuestionUuidPageAfter", AnswerSummary.class)
+                    .setParameter("id", after.getId());
         }
+        return query.setParameter("uuid", questionUuid).setMaxResults(maxResults).getResultList();
     }
 
 }
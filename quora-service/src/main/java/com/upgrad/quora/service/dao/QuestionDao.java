@@ -1,13 +1,27 @@
 package com.upgrad.quora.service.dao;
 
+import com.upgrad.quora.service.common.KeysetCursor;
+import com.upgrad.quora.service.common.QuestionRowHandler;
 import com.upgrad.quora.service.entity.QuestionEntity;
 import com.upgrad.quora.service.entity.UserEntity;
+import com.upgrad.quora.service.projection.QuestionSummary;
+import org.hibernate.LockOptions;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
-import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Repository
 public class QuestionDao {
@@ -26,37 +40,125 @@ public class QuestionDao {
     }
 
     /**
-     * Method returns the list of all records in the question entity
-     * @return list of Question entity
+     * Method returns one page of questions, newest first, as read-only projections
+     * @param after position after which the page starts, null for the first page
+     * @param maxResults
+     * @return list of QuestionSummary
      */
-    public List<QuestionEntity> getAllQuestions(){
-        try {
-            return entityManager.createNamedQuery("getAllQuestions", QuestionEntity.class).getResultList();
-        } catch (NoResultException nre) {
-            return null;
+    public List<QuestionSummary> getQuestionsPage(final KeysetCursor after, final int maxResults){
+        final TypedQuery<QuestionSummary> query;
+        if(after == null){
+            query = entityManager.createNamedQuery("getQuestionsFirstPage", QuestionSummary.class);
+        } else {
+            query = entityManager.createNamedQuery("getQuestionsPageAfter", QuestionSummary.class)
+                    .setParameter("date", after.getDate()).setParameter("id", after.getId());
+        }
+        return query.setMaxResults(maxResults).getResultList();
+    }
+
+    /**
+     * Reads all the questions with a forward-only cursor and hands them to the handler one row at a time, in id
+     * order. Only the exported columns are selected, so no entity is loaded; the persistence context is cleared
+     * every fetchSize rows all the same, so that nothing accumulates over the scroll. Must run in a transaction,
+     * the PostgreSQL driver only streams the result set with autocommit off.
+     * @param handler
+     * @param fetchSize number of rows fetched from the DB at a time
+     * @return number of exported questions
+     * @throws IOException if the handler fails to write a row
+     */
+    public long scrollQuestions(final QuestionRowHandler handler, final int fetchSize) throws IOException{
+        final Session session = entityManager.unwrap(Session.class);
+        long rows = 0;
+        try (ScrollableResults results = session.createQuery("select q.uuid, q.content, q.date, u.uuid " +
+                "from QuestionEntity q join q.user u order by q.id")
+                .setReadOnly(true).setFetchSize(fetchSize).scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                handler.handle((String) results.get(0), (String) results.get(1), (ZonedDateTime) results.get(2),
+                        (String) results.get(3));
+                if (++rows % fetchSize == 0) {
+                    session.clear();
+                }
+            }
         }
+        return rows;
     }
 
     /**
-     * Fetches the Question Entity record from the DB for a uuid
+     * Fetches the Question Entity record for a uuid, the natural id. Served from the second-level cache when the
+     * question is cached.
      * @param uuid
-     * @return
+     * @return question entity, null if there is no question with the uuid
      */
     public QuestionEntity getQuestionByUuid(final String uuid){
-        try {
-            return entityManager.createNamedQuery("getQuestionByUuid", QuestionEntity.class).setParameter("uuid", uuid)
-                    .getSingleResult();
-        } catch (NoResultException nre) {
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(QuestionEntity.class).load(uuid);
+    }
+
+    /**
+     * Reads the question for a uuid from the DB, never from the second-level cache, and locks it until the
+     * transaction ends, so that it can be removed against its current version.
+     * @param uuid
+     * @return question entity, null if there is no question with the uuid
+     */
+    public QuestionEntity lockQuestionByUuid(final String uuid){
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(QuestionEntity.class)
+                .with(LockOptions.UPGRADE).load(uuid);
+    }
+
+    /**
+     * Replaces the content of the question in a single conditional UPDATE, which increments its version. Nothing
+     * is read before, the question is not loaded and any cached copy is left to the caller to lock, see
+     * EntityCache.lockUntilCompletion.
+     * @param uuid
+     * @param userId id of the user editing the question, who must own it
+     * @param content
+     * @param version version the edit was made against, null to edit whatever version is current
+     * @return edited question, not managed, with id, uuid, content and the new version set; null if the user owns
+     * no question with the uuid, or no longer in the given version
+     */
+    public QuestionEntity editQuestionContent(final String uuid, final Integer userId, final String content,
+                                              final Integer version){
+        final Query query;
+        if(version == null){
+            query = entityManager.createNamedQuery("editQuestionContent");
+        } else {
+            query = entityManager.createNamedQuery("editQuestionContentOfVersion").setParameter("version", version);
+        }
+        @SuppressWarnings("unchecked")
+        final List<Object[]> rows = query.setParameter("uuid", uuid).setParameter("userId", userId)
+                .setParameter("content", content).getResultList();
+        if(rows.isEmpty()){
             return null;
         }
+        final QuestionEntity edited = new QuestionEntity();
+        edited.setId((Integer) rows.get(0)[0]);
+        edited.setVersion((Integer) rows.get(0)[1]);
+        edited.setUuid(uuid);
+        edited.setContent(content);
+        return edited;
+    }
+
+    /**
+     * Method resolves the ids of the questions with the given uuids in a single query
+     * @param uuids
+     * @return id of every existing question by its uuid, unknown uuids are missing
+     */
+    public Map<String, Integer> getQuestionIdsByUuids(final Collection<String> uuids){
+        final Map<String, Integer> ids = new HashMap<>();
+        for (final Object[] row : entityManager.createNamedQuery("getQuestionIdsByUuids", Object[].class)
+                .setParameter("uuids", uuids).getResultList()) {
+            ids.put((String) row[0], (Integer) row[1]);
+        }
+        return ids;
     }
 
     /**
-     * Method updates the existing QuestionEntity record in the DB
-     * @param updatedQuestion
+     * Gets a reference to the question with the given PrimaryKey without reading the record, to be used for
+     * setting the question on a new record.
+     * @param id
+     * @return question entity reference
      */
-    public void updateQuestion(final QuestionEntity updatedQuestion){
-        entityManager.merge(updatedQuestion);
+    public QuestionEntity getQuestionReference(final Integer id){
+        return entityManager.getReference(QuestionEntity.class, id);
     }
 
     /**
@@ -68,19 +170,72 @@ public class QuestionDao {
     }
 
     /**
-     * Method returns the list of Question Entity records for a given user uuid
+     * Adds delta to the answer count of the question
+     * @param questionId
+     * @param delta number of answers added, negative for removed answers
+     */
+    public void updateAnswerCount(final Integer questionId, final int delta){
+        answerCountStatement("updateAnswerCount").setParameter("delta", delta)
+                .setParameter("id", questionId).executeUpdate();
+    }
+
+    /**
+     * Subtracts the answers of the user from the answer counts of their questions, before the answers are removed
+     * with the user by the DB cascade.
+     * @param userId
+     */
+    public void decrementAnswerCountsOfUser(final Integer userId){
+        answerCountStatement("decrementAnswerCountsOfUser").setParameter("userId", userId).executeUpdate();
+    }
+
+    /**
+     * @return highest question id, null if there are no questions
+     */
+    public Integer getMaxQuestionId(){
+        return entityManager.createNamedQuery("getMaxQuestionId", Integer.class).getSingleResult();
+    }
+
+    /**
+     * Resets the answer count of the questions with after < id <= upto to the number of their answers, where it
+     * differs. The questions are locked first, so that a count in flight commits before or after the repair but
+     * never in between. Must run in a transaction.
+     * @param after
+     * @param upto
+     * @return number of corrected questions
+     */
+    public int repairAnswerCounts(final Integer after, final Integer upto){
+        entityManager.createNamedQuery("lockQuestionRange").setParameter("after", after).setParameter("upto", upto)
+                .getResultList();
+        return answerCountStatement("repairAnswerCounts").setParameter("after", after)
+                .setParameter("upto", upto).executeUpdate();
+    }
+
+    /**
+     * @param name name of a native statement which only changes answer_count
+     * @return the statement, synchronized on the answer count query space so that it evicts no cached entity
+     */
+    private NativeQuery answerCountStatement(final String name){
+        return entityManager.createNamedQuery(name).unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace(QuestionEntity.ANSWER_COUNT_QUERY_SPACE);
+    }
+
+    /**
+     * Method returns one page of the questions of a given user, newest first, as read-only projections
      * @param user
-     * @return List of QuestionEntity
+     * @param after position after which the page starts, null for the first page
+     * @param maxResults
+     * @return List of QuestionSummary
      */
-    public List<QuestionEntity> getQuestionsByUser(final UserEntity user){
-        try {
-            return entityManager.createNamedQuery("getQuestionsByUserId", QuestionEntity.class)
-                    .setParameter("user", user)
-                    .getResultList();
-        } catch (NoResultException nre) {
-            return null;
+    public List<QuestionSummary> getQuestionsByUserPage(final UserEntity user, final KeysetCursor after,
+                                                        final int maxResults){
+        final TypedQuery<QuestionSummary> query;
+        if(after == null){
+            query = entityManager.createNamedQuery("getQuestionsByUserIdFirstPage", QuestionSummary.class);
+        } else {
+            query = entityManager.createNamedQuery("getQuestionsByUserIdPageAfter", QuestionSummary.class)
+                    .setParameter("date", after.getDate()).setParameter("id", after.getId());
         }
-
+        return query.setParameter("user", user).setMaxResults(maxResults).getResultList();
     }
 
 }
@@ -1,18 +1,38 @@
 package com.upgrad.quora.service.dao;
 
+import com.upgrad.quora.service.cache.UserAuthCache;
+import com.upgrad.quora.service.common.AccessTokenDigest;
 import com.upgrad.quora.service.entity.UserAuthEntity;
+import org.hibernate.query.NativeQuery;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
 
 @Repository
 public class UserAuthDao {
 
+    //Monthly partitions of user_auth are named after the month of login_at they hold, e.g. user_auth_p201809
+    private static final String PARTITION_PREFIX = "user_auth_p";
+
+    private static final DateTimeFormatter PARTITION_MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Autowired
+    private UserAuthCache userAuthCache;
+
     /**
      * Creates a new entry in the user_auth table
      * @param userAuthEntity
@@ -24,19 +44,97 @@ public class UserAuthDao {
     }
 
     /**
-     * Fetches the record from UserAuthEntity using access token
+     * Fetches the record from UserAuthEntity using access token. Hot tokens are served from the session cache,
+     * in which case the returned entity is a detached copy. The DB is queried by the SHA-256 of the token, which
+     * is covered by a unique index, rather than by the raw token.
      * @param accessToken
      * @return
      */
     public UserAuthEntity getUserAuth(final String accessToken){
+        final UserAuthEntity cached = userAuthCache.get(accessToken);
+        if(cached != null){
+            return cached;
+        }
+        final long stamp = userAuthCache.stamp();
         try {
-            return entityManager.createNamedQuery("userAuthByAccessToken", UserAuthEntity.class)
-                    .setParameter("accessToken", accessToken).getSingleResult();
+            final UserAuthEntity userAuthEntity = entityManager.createNamedQuery("userAuthByAccessToken", UserAuthEntity.class)
+                    .setParameter("accessTokenHash", AccessTokenDigest.sha256Hex(accessToken)).getSingleResult();
+            userAuthCache.put(accessToken, userAuthEntity, stamp);
+            return userAuthEntity;
         } catch (NoResultException nre) {
             return null;
         }
     }
 
+    /**
+     * Fetches uuid and expiry of the signed-out sessions which have not expired yet, and of the tombstoned
+     * sessions of deleted users.
+     * @param since only sessions signed out or tombstoned from this time on, all of them if null
+     * @param now
+     * @return list of [uuid, expiresAt]
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> getRevokedSessions(final ZonedDateTime since, final ZonedDateTime now){
+        final List<Object[]> sessions;
+        final List<Object[]> tombstones;
+        if(since == null){
+            sessions = entityManager.createNamedQuery("revokedUserAuth", Object[].class)
+                    .setParameter("now", now).getResultList();
+            tombstones = entityManager.createNamedQuery("revokedTokens")
+                    .setParameter("now", Timestamp.from(now.toInstant())).getResultList();
+        } else {
+            sessions = entityManager.createNamedQuery("revokedUserAuthSince", Object[].class)
+                    .setParameter("since", since).setParameter("now", now).getResultList();
+            tombstones = entityManager.createNamedQuery("revokedTokensSince")
+                    .setParameter("since", Timestamp.from(since.toInstant()))
+                    .setParameter("now", Timestamp.from(now.toInstant())).getResultList();
+        }
+        final List<Object[]> revoked = new ArrayList<>(sessions);
+        for(final Object[] tombstone : tombstones){
+            revoked.add(new Object[]{tombstone[0],
+                    ((Timestamp) tombstone[1]).toInstant().atZone(ZoneId.systemDefault())});
+        }
+        return revoked;
+    }
+
+    /**
+     * Tombstones the sessions of the user which are neither signed out nor expired, so that every instance keeps
+     * rejecting their tokens after the sessions are removed with the user.
+     * @param userId
+     * @param now
+     * @return number of tombstoned sessions
+     */
+    public int tombstoneActiveSessions(final Integer userId, final ZonedDateTime now){
+        return entityManager.createNamedQuery("tombstoneActiveUserAuthByUser").unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(UserAuthEntity.class)
+                .setParameter("userId", userId)
+                .setParameter("now", Timestamp.from(now.toInstant())).executeUpdate();
+    }
+
+    /**
+     * Deletes one batch of tombstones which expired before the cutoff, as deleteExpiredSessions does for sessions.
+     * @param cutoff
+     * @param batchSize maximum number of rows deleted
+     * @return number of deleted rows
+     */
+    public int deleteExpiredTombstones(final ZonedDateTime cutoff, final int batchSize){
+        return entityManager.createNamedQuery("deleteExpiredRevokedTokens").unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(UserAuthEntity.class)
+                .setParameter("cutoff", Timestamp.from(cutoff.toInstant()))
+                .setParameter("batchSize", batchSize).executeUpdate();
+    }
+
+    /**
+     * Fetches uuid and expiry of the sessions of the user which are neither signed out nor expired.
+     * @param userId
+     * @param now
+     * @return list of [uuid, expiresAt]
+     */
+    public List<Object[]> getActiveSessions(final Integer userId, final ZonedDateTime now){
+        return entityManager.createNamedQuery("activeUserAuthByUser", Object[].class)
+                .setParameter("userId", userId).setParameter("now", now).getResultList();
+    }
+
     /**
      * Updates an existing UserAuthEntity record.
      * @param userAuthEntity
@@ -44,4 +142,83 @@ public class UserAuthDao {
     public void updateUserAuth(final UserAuthEntity userAuthEntity){
         entityManager.merge(userAuthEntity);
     }
+
+    /**
+     * Deletes one batch of sessions which expired before the cutoff. Rows locked by another instance running the
+     * same batch are skipped. Like the partition statements, the delete is synchronized on the sessions, which are
+     * not cached, so that it evicts no cached entity.
+     * @param cutoff
+     * @param batchSize maximum number of rows deleted
+     * @return number of deleted rows
+     */
+    public int deleteExpiredSessions(final ZonedDateTime cutoff, final int batchSize){
+        return entityManager.createNamedQuery("deleteExpiredUserAuth").unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(UserAuthEntity.class)
+                .setParameter("cutoff", Timestamp.from(cutoff.toInstant()))
+                .setParameter("batchSize", batchSize).executeUpdate();
+    }
+
+    /**
+     * Fetches name, total size in bytes and estimated number of rows of the partitions of user_auth, or of
+     * user_auth itself if the table is not partitioned.
+     * @return list of [name, bytes, rows]
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> getSessionPartitions(){
+        return entityManager.createNativeQuery("select c.relname, pg_total_relation_size(c.oid), c.reltuples " +
+                "from pg_class c where c.relkind <> 'p' and (c.oid = cast('user_auth' as regclass) " +
+                "or c.oid in (select i.inhrelid from pg_inherits i where i.inhparent = cast('user_auth' as regclass)))")
+                .getResultList();
+    }
+
+    /**
+     * Creates the partition of user_auth holding the sessions logged in during the month, if it does not exist.
+     * @param month
+     */
+    public void createSessionPartition(final YearMonth month){
+        entityManager.createNativeQuery("create table if not exists " + partitionName(month) +
+                " partition of user_auth for values from ('" + month.atDay(1) + "') to ('" +
+                month.plusMonths(1).atDay(1) + "')").unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(UserAuthEntity.class).executeUpdate();
+    }
+
+    /**
+     * Checks whether the partition of the month holds sessions which expire at or after the cutoff.
+     * @param month
+     * @param cutoff
+     * @return true if any such session exists
+     */
+    public boolean hasSessionsExpiringAfter(final YearMonth month, final ZonedDateTime cutoff){
+        return (Boolean) entityManager.createNativeQuery("select exists (select 1 from " + partitionName(month) +
+                " where expires_at >= :cutoff)")
+                .setParameter("cutoff", Timestamp.from(cutoff.toInstant())).getSingleResult();
+    }
+
+    /**
+     * Drops the partition of user_auth holding the sessions logged in during the month.
+     * @param month
+     */
+    public void dropSessionPartition(final YearMonth month){
+        entityManager.createNativeQuery("drop table if exists " + partitionName(month)).unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(UserAuthEntity.class).executeUpdate();
+    }
+
+    /**
+     * @param name table name as returned by getSessionPartitions
+     * @return month of the monthly partition or null if the table is not one
+     */
+    public static YearMonth partitionMonth(final String name){
+        if(name == null || !name.startsWith(PARTITION_PREFIX)){
+            return null;
+        }
+        try {
+            return YearMonth.parse(name.substring(PARTITION_PREFIX.length()), PARTITION_MONTH);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static String partitionName(final YearMonth month){
+        return PARTITION_PREFIX + month.format(PARTITION_MONTH);
+    }
 }
@@ -1,6 +1,7 @@
 package com.upgrad.quora.service.dao;
 
 import com.upgrad.quora.service.entity.UserEntity;
+import org.hibernate.Session;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
@@ -53,33 +54,47 @@ public class UserDao {
     }
 
     /**
-     * Gets the user from the user table using uuid
+     * Gets the user from the user table using uuid, the natural id. Served from the second-level cache when the
+     * user is cached.
      * @param uuid
-     * @return
+     * @return user entity object, null if there is no user with the uuid
      */
     public UserEntity getUserByUuid(final String uuid){
-        try {
-            return entityManager.createNamedQuery("userByUuid", UserEntity.class).setParameter("uuid", uuid)
-                    .getSingleResult();
-        } catch (NoResultException nre) {
-            return null;
-        }
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(UserEntity.class).load(uuid);
     }
 
     /**
-     * Gets the user from user table based on PrimaryKey which is id.
+     * Gets the user from user table based on PrimaryKey which is id. Served from the second-level cache when the
+     * user is cached.
      * @param id
-     * @return user entity object
+     * @return user entity object, null if there is no user with the id
      */
     public UserEntity getUserByPk(final Integer id){
-        try {
-            return entityManager.createNamedQuery("userByPk", UserEntity.class).setParameter("id", id)
-                    .getSingleResult();
-        } catch (NoResultException nre) {
-           return null;
-        }
+        return entityManager.find(UserEntity.class, id);
     }
 
+    /**
+     * Gets a reference to the user with the given PrimaryKey without reading the record, to be used for
+     * setting the user on a new record.
+     * @param id
+     * @return user entity reference
+     */
+    public UserEntity getUserReference(final Integer id){
+        return entityManager.getReference(UserEntity.class, id);
+    }
+
+    /**
+     * Replaces the password hash and salt of the user, unless the hash has been changed in the meantime.
+     * @param userEntity user with the hash to be replaced
+     * @param salt
+     * @param password
+     * @return number of updated records
+     */
+    public int updatePassword(final UserEntity userEntity, final String salt, final String password){
+        return entityManager.createNamedQuery("updateUserPassword").setParameter("salt", salt)
+                .setParameter("password", password).setParameter("id", userEntity.getId())
+                .setParameter("oldPassword", userEntity.getPassword()).executeUpdate();
+    }
 
     /**
      * Delete the userEntity
@@ -0,0 +1,68 @@
+package com.upgrad.quora.service.datasource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every connection taken from the pool as "quora.datasource.acquire", tagged with the pool, the controller
+ * method of the request and whether a connection was obtained. The pool's own hikaricp.connections.acquire timer
+ * has the same times for the pool as a whole; this one tells which endpoints wait.
+ */
+public class AcquireTimingDataSource extends DelegatingDataSource {
+
+    private final String pool;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * @param pool name of the pool, "primary" or "replica"
+     * @param targetDataSource the pool
+     * @param meterRegistry
+     */
+    public AcquireTimingDataSource(final String pool, final DataSource targetDataSource,
+                                   final MeterRegistry meterRegistry) {
+        super(targetDataSource);
+        this.pool = pool;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        final long startedAt = System.nanoTime();
+        boolean acquired = false;
+        try {
+            final Connection connection = super.getConnection();
+            acquired = true;
+            return connection;
+        } finally {
+            record(startedAt, acquired);
+        }
+    }
+
+    @Override
+    public Connection getConnection(final String username, final String password) throws SQLException {
+        final long startedAt = System.nanoTime();
+        boolean acquired = false;
+        try {
+            final Connection connection = super.getConnection(username, password);
+            acquired = true;
+            return connection;
+        } finally {
+            record(startedAt, acquired);
+        }
+    }
+
+    private void record(final long startedAt, final boolean acquired) {
+        Timer.builder("quora.datasource.acquire")
+                .tags("pool", pool, "handler", RoutingContext.currentHandler(),
+                        "outcome", acquired ? "acquired" : "failed")
+                .register(meterRegistry)
+                .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+    }
+}
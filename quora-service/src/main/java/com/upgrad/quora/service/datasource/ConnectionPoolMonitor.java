@@ -0,0 +1,95 @@
+package com.upgrad.quora.service.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Checks the connection pools every "quora.datasource.saturation.check-interval-ms". A pool is saturated when
+ * at least pending-threads threads wait for a connection or active-ratio of its connections are in use. Entering
+ * and leaving saturation is logged as a warning; every check finding a pool saturated is counted as
+ * "quora.datasource.saturated" and the share of connections in use is published as "quora.datasource.utilization",
+ * to alert on. The gauges and timers of the pools themselves are the "hikaricp.connections*" meters.
+ */
+@Component
+public class ConnectionPoolMonitor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionPoolMonitor.class);
+
+    @Autowired
+    private List<HikariDataSource> pools;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${quora.datasource.saturation.pending-threads:1}")
+    private int pendingThreads;
+
+    @Value("${quora.datasource.saturation.active-ratio:0.9}")
+    private double activeRatio;
+
+    //Pools found saturated by the last check, by pool name
+    private final Map<String, Boolean> saturated = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        for (final HikariDataSource pool : pools) {
+            Gauge.builder("quora.datasource.utilization", pool, ConnectionPoolMonitor::utilization)
+                    .tag("pool", pool.getPoolName())
+                    .register(meterRegistry);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${quora.datasource.saturation.check-interval-ms:10000}")
+    public void check() {
+        for (final HikariDataSource pool : pools) {
+            final HikariPoolMXBean stats = pool.getHikariPoolMXBean();
+            //Not started yet, no connection was ever asked for
+            if (stats == null) {
+                continue;
+            }
+            final int active = stats.getActiveConnections();
+            final int waiting = stats.getThreadsAwaitingConnection();
+            final int max = pool.getMaximumPoolSize();
+            final boolean nowSaturated = waiting >= pendingThreads || active >= max * activeRatio;
+            final Boolean wasSaturated = saturated.put(pool.getPoolName(), nowSaturated);
+            if (nowSaturated) {
+                Counter.builder("quora.datasource.saturated").tag("pool", pool.getPoolName()).register(meterRegistry)
+                        .increment();
+                if (!Boolean.TRUE.equals(wasSaturated)) {
+                    LOGGER.warn("Connection pool {} is saturated: {} of {} connections active, {} idle, " +
+                            "{} threads waiting", pool.getPoolName(), active, max, stats.getIdleConnections(), waiting);
+                }
+            } else if (Boolean.TRUE.equals(wasSaturated)) {
+                LOGGER.warn("Connection pool {} is no longer saturated: {} of {} connections active, " +
+                        "{} threads waiting", pool.getPoolName(), active, max, waiting);
+            }
+        }
+    }
+
+    /**
+     * @param poolName
+     * @return true if the last check found the pool saturated
+     */
+    public boolean isSaturated(final String poolName) {
+        return Boolean.TRUE.equals(saturated.get(poolName));
+    }
+
+    private static double utilization(final HikariDataSource pool) {
+        final HikariPoolMXBean stats = pool.getHikariPoolMXBean();
+        return stats == null ? 0 : (double) stats.getActiveConnections() / pool.getMaximumPoolSize();
+    }
+}
@@ -0,0 +1,119 @@
+package com.upgrad.quora.service.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Connection pools of the primary database, "spring.datasource", and of the optional read replica,
+ * "quora.datasource.replica", behind one RoutingDataSource. Without "quora.datasource.replica.url" there is no
+ * replica pool and every connection comes from the primary, as before.
+ * Both pools log the stack of where a connection was taken when it is held longer than
+ * "quora.datasource.leak-detection-threshold-ms", unless their hikari properties set leak-detection-threshold.
+ */
+@Configuration
+public class DataSourceConfiguration {
+
+    @Value("${quora.datasource.leak-detection-threshold-ms:0}")
+    private long leakDetectionThreshold;
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties primaryDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryPool() {
+        final HikariDataSource pool = primaryDataSourceProperties().initializeDataSourceBuilder()
+                .type(HikariDataSource.class).build();
+        pool.setPoolName(RoutingDataSource.PRIMARY);
+        pool.setLeakDetectionThreshold(leakDetectionThreshold);
+        return pool;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "quora.datasource.replica", name = "url")
+    @ConfigurationProperties("quora.datasource.replica")
+    public DataSourceProperties replicaDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "quora.datasource.replica", name = "url")
+    @ConfigurationProperties("quora.datasource.replica.hikari")
+    public HikariDataSource replicaPool() {
+        final HikariDataSource pool = replicaDataSourceProperties().initializeDataSourceBuilder()
+                .type(HikariDataSource.class).build();
+        pool.setPoolName(RoutingDataSource.REPLICA);
+        pool.setReadOnly(true);
+        pool.setLeakDetectionThreshold(leakDetectionThreshold);
+        return pool;
+    }
+
+    /**
+     * The data source of JPA and of the JdbcTemplate. The connection is taken from a pool only when the first
+     * statement runs, once the transaction is known to be read-only or not.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryPool") final DataSource primaryPool,
+                                 @Qualifier("replicaPool") final ObjectProvider<DataSource> replicaPool,
+                                 final ReadYourWrites readYourWrites, final MeterRegistry meterRegistry) {
+        final DataSource replica = replicaPool.getIfAvailable();
+        final Map<Object, Object> targetDataSources = new HashMap<>();
+        targetDataSources.put(RoutingDataSource.PRIMARY,
+                new AcquireTimingDataSource(RoutingDataSource.PRIMARY, primaryPool, meterRegistry));
+        if (replica != null) {
+            targetDataSources.put(RoutingDataSource.REPLICA,
+                    new AcquireTimingDataSource(RoutingDataSource.REPLICA, replica, meterRegistry));
+        }
+        final RoutingDataSource routingDataSource =
+                new RoutingDataSource(readYourWrites, replica != null, meterRegistry);
+        routingDataSource.setTargetDataSources(targetDataSources);
+        routingDataSource.setDefaultTargetDataSource(targetDataSources.get(RoutingDataSource.PRIMARY));
+        routingDataSource.afterPropertiesSet();
+        //The defaults of the pools, given so that no connection is taken to look them up on startup
+        final LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy();
+        dataSource.setTargetDataSource(routingDataSource);
+        dataSource.setDefaultAutoCommit(true);
+        dataSource.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        return dataSource;
+    }
+
+    /**
+     * JPA transaction manager with the ReadOnlyJpaDialect, replacing the one of the JPA auto-configuration.
+     */
+    @Bean
+    public PlatformTransactionManager transactionManager(
+            final EntityManagerFactory entityManagerFactory,
+            final ObjectProvider<TransactionManagerCustomizers> transactionManagerCustomizers) {
+        final JpaTransactionManager transactionManager = new JpaTransactionManager(entityManagerFactory);
+        transactionManager.setJpaDialect(new ReadOnlyJpaDialect());
+        final TransactionManagerCustomizers customizers = transactionManagerCustomizers.getIfAvailable();
+        if (customizers != null) {
+            customizers.customize(transactionManager);
+        }
+        return transactionManager;
+    }
+}
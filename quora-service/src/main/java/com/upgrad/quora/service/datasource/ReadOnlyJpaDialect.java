@@ -0,0 +1,62 @@
+package com.upgrad.quora.service.datasource;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import java.sql.SQLException;
+
+/**
+ * Hibernate dialect of the transaction manager for read-only transactions, which may be served by the replica.
+ * The base dialect already switches their sessions to FlushMode.MANUAL and read-only entities, so nothing is
+ * dirty checked or flushed. On top of that they only read the second-level cache: an entity loaded from a lagging
+ * replica must not be put in the cache shared with the primary, where it would outlive the lag by its TTL.
+ * The cache mode of the session is restored when the transaction ends, the session may be used for writes later
+ * in the same request.
+ */
+public class ReadOnlyJpaDialect extends HibernateJpaDialect {
+
+    @Override
+    public Object beginTransaction(final EntityManager entityManager, final TransactionDefinition definition)
+            throws PersistenceException, SQLException, TransactionException {
+        final Object transactionData = super.beginTransaction(entityManager, definition);
+        if (!definition.isReadOnly()) {
+            return transactionData;
+        }
+        final Session session = entityManager.unwrap(Session.class);
+        final CacheMode previousCacheMode = session.getCacheMode();
+        session.setCacheMode(CacheMode.GET);
+        return new ReadOnlyTransactionData(transactionData, session, previousCacheMode);
+    }
+
+    @Override
+    public void cleanupTransaction(final Object transactionData) {
+        if (transactionData instanceof ReadOnlyTransactionData) {
+            final ReadOnlyTransactionData readOnly = (ReadOnlyTransactionData) transactionData;
+            readOnly.session.setCacheMode(readOnly.previousCacheMode);
+            super.cleanupTransaction(readOnly.transactionData);
+        } else {
+            super.cleanupTransaction(transactionData);
+        }
+    }
+
+    private static final class ReadOnlyTransactionData {
+
+        private final Object transactionData;
+
+        private final Session session;
+
+        private final CacheMode previousCacheMode;
+
+        private ReadOnlyTransactionData(final Object transactionData, final Session session,
+                                        final CacheMode previousCacheMode) {
+            this.transactionData = transactionData;
+            this.session = session;
+            this.previousCacheMode = previousCacheMode;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.upgrad.quora.service.datasource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Users who committed a write in the last "quora.datasource.read-your-writes-ms", whose reads go to the primary
+ * so that they see their own changes while the replica may still lag behind. The window is kept per instance;
+ * behind a load balancer without sticky sessions it only covers the requests served by the instance of the write.
+ */
+@Component
+public class ReadYourWrites {
+
+    @Value("${quora.datasource.read-your-writes-ms:5000}")
+    private long windowMs;
+
+    //End of the window per user id, in System.nanoTime()
+    private final Map<Integer, Long> pinnedUntil = new ConcurrentHashMap<>();
+
+    /**
+     * Pins the reads of the user to the primary once the current transaction commits, immediately outside of a
+     * transaction.
+     * @param userId
+     */
+    public void pinAfterCommit(final Integer userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    pin(userId);
+                }
+            });
+        } else {
+            pin(userId);
+        }
+    }
+
+    /**
+     * @param userId
+     * @return true if the user committed a write within the window, false for no user
+     */
+    public boolean isPinned(final Integer userId) {
+        if (userId == null) {
+            return false;
+        }
+        final Long until = pinnedUntil.get(userId);
+        return until != null && until - System.nanoTime() > 0;
+    }
+
+    /**
+     * Forgets the users whose window has ended.
+     */
+    @Scheduled(fixedDelayString = "${quora.datasource.read-your-writes-ms:5000}")
+    public void prune() {
+        final long now = System.nanoTime();
+        pinnedUntil.values().removeIf(until -> until - now <= 0);
+    }
+
+    private void pin(final Integer userId) {
+        pinnedUntil.put(userId, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMs));
+    }
+}
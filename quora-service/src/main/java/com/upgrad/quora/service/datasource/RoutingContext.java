@@ -0,0 +1,145 @@
+package com.upgrad.quora.service.datasource;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * Routing state of the request handled by the current thread: the controller method handling it, the signed-in
+ * user, whose own writes are read back from the primary, whether all of its reads must go to the primary, and the
+ * pools which served the connections of the
+ * request. Opened and closed around every request by the web layer and carried along with the work a request
+ * hands over to other threads, see propagate; outside of a request nothing is bound and nothing is recorded.
+ */
+public final class RoutingContext {
+
+    //Tag of the connection metrics taken outside of a request
+    public static final String NO_HANDLER = "none";
+
+    private static final ThreadLocal<RoutingContext> CURRENT = new ThreadLocal<>();
+
+    private final String handler;
+
+    private volatile Integer userId;
+
+    private volatile boolean primaryRequired;
+
+    //Written by the threads working for the request, in the order the pools were first used
+    private final Set<String> servedBy = new CopyOnWriteArraySet<>();
+
+    private RoutingContext(final String handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * @param handler controller method handling the request, as "Controller.method"
+     */
+    public static void open(final String handler) {
+        CURRENT.set(new RoutingContext(handler));
+    }
+
+    public static void close() {
+        CURRENT.remove();
+    }
+
+    /**
+     * @return context of the request handled by the current thread, null if there is none
+     */
+    public static RoutingContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Binds the context of a request to the current thread, e.g. when the request is dispatched again after it
+     * continued asynchronously.
+     * @param context context of the request, null to unbind
+     */
+    public static void bind(final RoutingContext context) {
+        if (context == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(context);
+        }
+    }
+
+    /**
+     * Wraps a task which the current request hands over to another thread, so that it runs with the context of
+     * the request: its connections are tagged with the handler, routed for the user and reported as served.
+     * To be called on the thread of the request; the context bound to the running thread is restored afterwards.
+     * @param task
+     * @return task running with the context of the current request
+     */
+    public static Runnable propagate(final Runnable task) {
+        final RoutingContext context = CURRENT.get();
+        return () -> {
+            final RoutingContext previous = CURRENT.get();
+            bind(context);
+            try {
+                task.run();
+            } finally {
+                bind(previous);
+            }
+        };
+    }
+
+    /**
+     * Binds the signed-in user to the current request.
+     * @param userId
+     */
+    public static void bindUser(final Integer userId) {
+        final RoutingContext context = CURRENT.get();
+        if (context != null) {
+            context.userId = userId;
+        }
+    }
+
+    /**
+     * Sends the reads of the current request to the primary, e.g. when the replica may not have caught up yet with
+     * a change the response is tagged with.
+     */
+    public static void requirePrimary() {
+        final RoutingContext context = CURRENT.get();
+        if (context != null) {
+            context.primaryRequired = true;
+        }
+    }
+
+    /**
+     * @return controller method handling the current request, NO_HANDLER if there is none
+     */
+    static String currentHandler() {
+        final RoutingContext context = CURRENT.get();
+        return context == null || context.handler == null ? NO_HANDLER : context.handler;
+    }
+
+    /**
+     * @return id of the signed-in user of the current request, null if there is none
+     */
+    static Integer currentUser() {
+        final RoutingContext context = CURRENT.get();
+        return context == null ? null : context.userId;
+    }
+
+    /**
+     * @return true if the reads of the current request must go to the primary
+     */
+    static boolean isPrimaryRequired() {
+        final RoutingContext context = CURRENT.get();
+        return context != null && context.primaryRequired;
+    }
+
+    static void served(final String pool) {
+        final RoutingContext context = CURRENT.get();
+        if (context != null) {
+            context.servedBy.add(pool);
+        }
+    }
+
+    /**
+     * @return pools which served a connection to the current request so far, in the order they were first used
+     */
+    public static Set<String> servedBy() {
+        final RoutingContext context = CURRENT.get();
+        return context == null ? Collections.emptySet() : Collections.unmodifiableSet(context.servedBy);
+    }
+}
@@ -0,0 +1,69 @@
+package com.upgrad.quora.service.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Hands out the connections of read-only transactions from the replica pool and all the others from the primary
+ * pool. Read-only transactions of a user who has just written are kept on the primary, see ReadYourWrites, and so
+ * are those of a request which requires the primary, see RoutingContext.requirePrimary.
+ * Connections are looked up when the first statement runs, by the LazyConnectionDataSourceProxy in front of this
+ * data source, as the transaction manager takes the connection before it marks the transaction read-only.
+ * Every lookup is counted as "quora.datasource.connections" per pool.
+ */
+public class RoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+
+    public static final String REPLICA = "replica";
+
+    private final ReadYourWrites readYourWrites;
+
+    private final boolean replicaEnabled;
+
+    private final Counter primaryConnections;
+
+    private final Counter replicaConnections;
+
+    /**
+     * @param readYourWrites
+     * @param replicaEnabled false to route everything to the primary, when there is no replica pool
+     * @param meterRegistry
+     */
+    public RoutingDataSource(final ReadYourWrites readYourWrites, final boolean replicaEnabled,
+                             final MeterRegistry meterRegistry) {
+        this.readYourWrites = readYourWrites;
+        this.replicaEnabled = replicaEnabled;
+        primaryConnections = meterRegistry.counter("quora.datasource.connections", "pool", PRIMARY);
+        replicaConnections = meterRegistry.counter("quora.datasource.connections", "pool", REPLICA);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        final String pool = route();
+        RoutingContext.served(pool);
+        if (REPLICA.equals(pool)) {
+            replicaConnections.increment();
+        } else {
+            primaryConnections.increment();
+        }
+        return pool;
+    }
+
+    private String route() {
+        if (!replicaEnabled) {
+            return PRIMARY;
+        }
+        final Integer userId = RoutingContext.currentUser();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            //A write of the signed-in user, its next reads must see it
+            if (userId != null && TransactionSynchronizationManager.isActualTransactionActive()) {
+                readYourWrites.pinAfterCommit(userId);
+            }
+            return PRIMARY;
+        }
+        return readYourWrites.isPinned(userId) || RoutingContext.isPrimaryRequired() ? PRIMARY : REPLICA;
+    }
+}
@@ -1,5 +1,9 @@
 package com.upgrad.quora.service.entity;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
 
@@ -10,22 +14,53 @@ import java.time.ZonedDateTime;
 
 /**
  * Creates answer table in the database.
+ * Answers are kept in the second-level cache, looked up by id or by their uuid (natural id), see ehcache.xml.
  */
 @Entity
 @Table(name = "answer", schema = "public")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "quora.answer")
+@NaturalIdCache(region = "quora.answer.uuid")
 @NamedQueries(
         {
-                @NamedQuery(name = "getAnswerByUuid", query = "select a from AnswerEntity a where uuid = :uuid"),
-                @NamedQuery(name = "getAllAnswerByQuestionUuid", query = "select a from AnswerEntity a where question = :question")
+                //Keyset pages in id order. The listing shows the question content next to every answer, selected
+                //as AnswerSummary projections
+                @NamedQuery(name = "getAnswersByQuestionUuidFirstPage", query = "select new " +
+                        "com.upgrad.quora.service.projection.AnswerSummary(a.id, a.uuid, a.answer, q.content, " +
+                        "a.version) from AnswerEntity a join a.question q where q.uuid = :uuid order by a.id"),
+                @NamedQuery(name = "getAnswersByQuestionUuidPageAfter", query = "select new " +
+                        "com.upgrad.quora.service.projection.AnswerSummary(a.id, a.uuid, a.answer, q.content, " +
+                        "a.version) from AnswerEntity a join a.question q where q.uuid = :uuid and a.id > :id " +
+                        "order by a.id"),
+                //Ids of the answers of a question, read before the question is deleted to evict the answers the
+                //DB cascade removes
+                @NamedQuery(name = "getAnswerIdsByQuestionId", query = "select a.id from AnswerEntity a " +
+                        "where a.question.id = :questionId")
         }
 )
+@NamedNativeQueries({
+        //Resolves the question by uuid and counts the answer in the same statement, no row is inserted or
+        //counted for an unknown question. The id comes from the pooled id generator, the column default would
+        //take a whole block of ids from the sequence
+        @NamedNativeQuery(name = "createAnswerForQuestionUuid", query = "with q as (update question " +
+                "set answer_count = answer_count + 1 where uuid = :questionUuid returning id) insert into answer " +
+                "(id, uuid, ans, date, user_id, question_id) select :id, :uuid, :answer, :date, :userId, q.id from q"),
+        //Edits are single conditional UPDATEs as for questions, returning the question uuid for the listing versions
+        @NamedNativeQuery(name = "editAnswerContent", query = "update answer a set ans = :answer, date = :date, " +
+                "version = a.version + 1 from question q where q.id = a.question_id and a.uuid = :uuid " +
+                "and a.user_id = :userId returning a.id, a.version, q.uuid"),
+        @NamedNativeQuery(name = "editAnswerContentOfVersion", query = "update answer a set ans = :answer, " +
+                "date = :date, version = a.version + 1 from question q where q.id = a.question_id " +
+                "and a.uuid = :uuid and a.user_id = :userId and a.version = :version returning a.id, a.version, q.uuid")
+})
 public class AnswerEntity {
 
     @Id
     @Column(name="id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "answer_id_generator")
+    @SequenceGenerator(name = "answer_id_generator", sequenceName = "answer_id_seq", allocationSize = 50)
     private Integer id;
 
+    @NaturalId
     @Column(name="uuid")
     @Size(max = 200)
     private String uuid;
@@ -38,16 +73,21 @@ public class AnswerEntity {
     @NotNull
     private ZonedDateTime date;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @OnDelete(action = OnDeleteAction.CASCADE)
     @JoinColumn(name="user_id", referencedColumnName = "id")
     private UserEntity user;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @OnDelete(action = OnDeleteAction.CASCADE)
     @JoinColumn(name="question_id", referencedColumnName = "id")
     private QuestionEntity question;
 
+    //Incremented by every edit, see editAnswerContentOfVersion. Entity deletes are checked against it as well
+    @Version
+    @Column(name="version")
+    private Integer version;
+
     public Integer getId() {
         return id;
     }
@@ -95,4 +135,12 @@ public class AnswerEntity {
     public void setQuestion(QuestionEntity question) {
         this.question = question;
     }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
 }
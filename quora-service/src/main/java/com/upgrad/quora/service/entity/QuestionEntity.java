@@ -1,5 +1,9 @@
 package com.upgrad.quora.service.entity;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
 
@@ -10,23 +14,75 @@ import java.time.ZonedDateTime;
 
 /**
  * Creates question table in the database.
+ * Questions are kept in the second-level cache, looked up by id or by their uuid (natural id), see ehcache.xml.
  */
 @Entity
 @Table(name = "question", schema = "public")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "quora.question")
+@NaturalIdCache(region = "quora.question.uuid")
 @NamedQueries(
         {
-                @NamedQuery(name = "getAllQuestions", query = "select q from QuestionEntity q"),
-                @NamedQuery(name = "getQuestionByUuid", query = "select q from QuestionEntity q where uuid = :uuid"),
-                @NamedQuery(name = "getQuestionsByUserId", query = "select q from QuestionEntity q where user = :user")
+                //Keyset pages, newest first. "date <= :date" bounds the index range scan, the rest skips the ties.
+                //The listings select QuestionSummary projections, not entities
+                @NamedQuery(name = "getQuestionsFirstPage", query = "select new " +
+                        "com.upgrad.quora.service.projection.QuestionSummary(q.id, q.uuid, q.content, q.date, " +
+                        "q.answerCount, q.version) " +
+                        "from QuestionEntity q order by q.date desc, q.id desc"),
+                @NamedQuery(name = "getQuestionsPageAfter", query = "select new " +
+                        "com.upgrad.quora.service.projection.QuestionSummary(q.id, q.uuid, q.content, q.date, " +
+                        "q.answerCount, q.version) " +
+                        "from QuestionEntity q where q.date <= :date and (q.date < :date or q.id < :id) " +
+                        "order by q.date desc, q.id desc"),
+                @NamedQuery(name = "getQuestionIdsByUuids", query = "select q.uuid, q.id from QuestionEntity q " +
+                        "where q.uuid in :uuids"),
+                @NamedQuery(name = "getQuestionsByUserIdFirstPage", query = "select new " +
+                        "com.upgrad.quora.service.projection.QuestionSummary(q.id, q.uuid, q.content, q.date, " +
+                        "q.answerCount, q.version) " +
+                        "from QuestionEntity q where q.user = :user order by q.date desc, q.id desc"),
+                @NamedQuery(name = "getQuestionsByUserIdPageAfter", query = "select new " +
+                        "com.upgrad.quora.service.projection.QuestionSummary(q.id, q.uuid, q.content, q.date, " +
+                        "q.answerCount, q.version) " +
+                        "from QuestionEntity q where q.user = :user and q.date <= :date " +
+                        "and (q.date < :date or q.id < :id) order by q.date desc, q.id desc"),
+                @NamedQuery(name = "getMaxQuestionId", query = "select max(q.id) from QuestionEntity q")
         }
 )
+@NamedNativeQueries({
+        //answer_count is only changed by relative updates, so concurrent answers to a question never lose a count
+        @NamedNativeQuery(name = "updateAnswerCount", query = "update question set answer_count = answer_count + " +
+                ":delta where id = :id"),
+        @NamedNativeQuery(name = "decrementAnswerCountsOfUser", query = "update question q set answer_count = " +
+                "q.answer_count - c.n from (select question_id, count(*) n from answer where user_id = :userId " +
+                "group by question_id) c where q.id = c.question_id"),
+        //The repair locks the questions before counting, a count read under the lock includes every committed answer
+        @NamedNativeQuery(name = "lockQuestionRange", query = "select id from question where id > :after " +
+                "and id <= :upto order by id for update"),
+        //Edits are single conditional UPDATEs, on the owner and, if the client sent one, on the version it edited.
+        //No row updated means the question does not exist, is not owned by the user or has changed since
+        @NamedNativeQuery(name = "editQuestionContent", query = "update question set content = :content, " +
+                "version = version + 1 where uuid = :uuid and user_id = :userId returning id, version"),
+        @NamedNativeQuery(name = "editQuestionContentOfVersion", query = "update question set content = :content, " +
+                "version = version + 1 where uuid = :uuid and user_id = :userId and version = :version " +
+                "returning id, version"),
+        @NamedNativeQuery(name = "repairAnswerCounts", query = "update question q set answer_count = c.n from " +
+                "(select q2.id, count(a.id) n from question q2 left join answer a on a.question_id = q2.id " +
+                "where q2.id > :after and q2.id <= :upto group by q2.id) c where q.id = c.id and q.answer_count <> c.n")
+})
 public class QuestionEntity implements Serializable {
 
+    /**
+     * Query space of the native statements which only change answer_count. No entity maps it, so Hibernate evicts
+     * no cached entity after them, where a statement without query space evicts every region.
+     */
+    public static final String ANSWER_COUNT_QUERY_SPACE = "question.answer_count";
+
     @Id
     @Column(name="id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "question_id_generator")
+    @SequenceGenerator(name = "question_id_generator", sequenceName = "question_id_seq", allocationSize = 50)
     private Integer id;
 
+    @NaturalId
     @Column(name="uuid")
     @Size(max = 200)
     private String uuid;
@@ -38,11 +94,22 @@ public class QuestionEntity implements Serializable {
     @Column(name="date")
     private ZonedDateTime date;
 
-    @ManyToOne
+    //Lazy, the listings only need the question columns. Queries needing the user fetch join it
+    @ManyToOne(fetch = FetchType.LAZY)
     @OnDelete(action = OnDeleteAction.CASCADE)
     @JoinColumn(name="user_id", referencedColumnName = "id")
     private UserEntity user;
 
+    //Maintained in SQL only, an update of the question must never write back the count it read. The count of a
+    //cached question is not refreshed by those statements, it is read from the QuestionSummary projections
+    @Column(name="answer_count", insertable = false, updatable = false)
+    private Integer answerCount;
+
+    //Incremented by every edit, see editQuestionContentOfVersion. Entity deletes are checked against it as well
+    @Version
+    @Column(name="version")
+    private Integer version;
+
     public Integer getId() {
         return id;
     }
@@ -82,4 +149,20 @@ public class QuestionEntity implements Serializable {
     public void setUser(UserEntity user) {
         this.user = user;
     }
+
+    public Integer getAnswerCount() {
+        return answerCount;
+    }
+
+    public void setAnswerCount(Integer answerCount) {
+        this.answerCount = answerCount;
+    }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
 }
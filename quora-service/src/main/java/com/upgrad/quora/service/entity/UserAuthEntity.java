@@ -1,6 +1,7 @@
 package com.upgrad.quora.service.entity;
 
 
+import com.upgrad.quora.service.common.AccessTokenDigest;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
 
@@ -16,20 +17,44 @@ import java.time.ZonedDateTime;
 @Entity
 @Table(name = "user_auth", schema = "public")
 @NamedQueries({
-    @NamedQuery(name="userAuthByAccessToken", query = "select ua from UserAuthEntity ua where ua.accessToken = :accessToken")
+    //Authorization needs the user of the session, fetched in the same statement
+    @NamedQuery(name="userAuthByAccessToken", query = "select ua from UserAuthEntity ua join fetch ua.user " +
+            "where ua.accessTokenHash = :accessTokenHash"),
+    @NamedQuery(name="revokedUserAuth", query = "select ua.uuid, ua.expiresAt from UserAuthEntity ua " +
+            "where ua.logoutAt is not null and ua.expiresAt > :now"),
+    @NamedQuery(name="revokedUserAuthSince", query = "select ua.uuid, ua.expiresAt from UserAuthEntity ua " +
+            "where ua.logoutAt >= :since and ua.expiresAt > :now"),
+    @NamedQuery(name="activeUserAuthByUser", query = "select ua.uuid, ua.expiresAt from UserAuthEntity ua " +
+            "where ua.user.id = :userId and ua.logoutAt is null and ua.expiresAt > :now")
+})
+@NamedNativeQueries({
+    //Signed-out sessions are kept until they expire, the revocation filter is rebuilt from them
+    @NamedNativeQuery(name="deleteExpiredUserAuth", query = "delete from user_auth where id in (" +
+            "select id from user_auth where expires_at < :cutoff limit :batchSize for update skip locked)"),
+    //The live sessions of a deleted user are tombstoned in revoked_token, which outlives the cascade of the delete
+    @NamedNativeQuery(name="tombstoneActiveUserAuthByUser", query = "insert into revoked_token(jti, expires_at, " +
+            "revoked_at) select uuid, expires_at, :now from user_auth where user_id = :userId and logout_at is null " +
+            "and expires_at > :now on conflict (jti) do nothing"),
+    @NamedNativeQuery(name="revokedTokens", query = "select jti, expires_at from revoked_token " +
+            "where expires_at > :now"),
+    @NamedNativeQuery(name="revokedTokensSince", query = "select jti, expires_at from revoked_token " +
+            "where revoked_at >= :since and expires_at > :now"),
+    @NamedNativeQuery(name="deleteExpiredRevokedTokens", query = "delete from revoked_token where jti in (" +
+            "select jti from revoked_token where expires_at < :cutoff limit :batchSize for update skip locked)")
 })
 public class UserAuthEntity implements Serializable {
 
     @Id
     @Column(name="id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_auth_id_generator")
+    @SequenceGenerator(name = "user_auth_id_generator", sequenceName = "user_auth_id_seq", allocationSize = 50)
     private Integer id;
 
     @Column(name="uuid")
     @Size(max = 200)
     private String uuid;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @OnDelete(action = OnDeleteAction.CASCADE)
     @JoinColumn(name="user_id", referencedColumnName = "id")
     @NotNull
@@ -40,6 +65,11 @@ public class UserAuthEntity implements Serializable {
     @Size(max = 500)
     private String accessToken;
 
+    //SHA-256 hex of the access token, the unique index on this column is the lookup path for authorization
+    @Column(name="access_token_hash", length = 64)
+    @Size(max = 64)
+    private String accessTokenHash;
+
     @Column(name="expires_at")
     @NotNull
     private ZonedDateTime expiresAt;
@@ -84,6 +114,14 @@ public class UserAuthEntity implements Serializable {
         this.accessToken = accessToken;
     }
 
+    public String getAccessTokenHash() {
+        return accessTokenHash;
+    }
+
+    public void setAccessTokenHash(String accessTokenHash) {
+        this.accessTokenHash = accessTokenHash;
+    }
+
     public ZonedDateTime getExpiresAt() {
         return expiresAt;
     }
@@ -108,4 +146,13 @@ public class UserAuthEntity implements Serializable {
         this.logoutAt = logoutAt;
     }
 
+    /**
+     * Keeps access_token_hash in line with the access token whenever the record is written.
+     */
+    @PrePersist
+    @PreUpdate
+    protected void digestAccessToken() {
+        this.accessTokenHash = AccessTokenDigest.sha256Hex(accessToken);
+    }
+
 }
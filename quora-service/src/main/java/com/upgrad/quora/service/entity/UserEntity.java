@@ -1,6 +1,10 @@
 package com.upgrad.quora.service.entity;
 
 import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
@@ -8,26 +12,32 @@ import javax.validation.constraints.Size;
 import java.io.Serializable;
 
 /**
- * Creates users table in the database
+ * Creates users table in the database.
+ * Users are kept in the second-level cache, looked up by id or by their uuid (natural id), see ehcache.xml.
  */
 @Entity
 @Table(name ="users", schema="public")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "quora.user")
+@NaturalIdCache(region = "quora.user.uuid")
 @NamedQueries(
         {
                 @NamedQuery(name = "userByUserName", query = "select u from UserEntity u where u.userName = :userName"),
                 @NamedQuery(name = "userByEmail", query = "select u from UserEntity u where u.email =:email"),
-                @NamedQuery(name = "userByUuid", query = "select u from UserEntity u where u.uuid =:uuid"),
-                @NamedQuery(name = "userByPk", query = "select u from UserEntity u where u.id =:id")
+                @NamedQuery(name = "updateUserPassword", query = "update UserEntity u set u.salt = :salt, " +
+                        "u.password = :password where u.id = :id and u.password = :oldPassword")
         }
 )
 
 public class UserEntity implements Serializable {
 
+    //Ids are drawn 50 at a time from the sequence (pooled-lo), so inserts need no round trip for the id and can be batched
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_id_generator")
+    @SequenceGenerator(name = "users_id_generator", sequenceName = "users_id_seq", allocationSize = 50)
     private Integer id;
 
+    @NaturalId
     @Column(name = "uuid")
     @Size(max = 200)
     private  String  uuid;
@@ -0,0 +1,122 @@
+package com.upgrad.quora.service.job;
+
+import com.upgrad.quora.service.cache.CollectionVersions;
+import com.upgrad.quora.service.cache.QuestionFeedCache;
+import com.upgrad.quora.service.dao.QuestionDao;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Reconciles question.answer_count with the answers actually stored. The count is adjusted with every answer
+ * insert and delete, but answers removed by a DB cascade or in SQL, or posted by a version which did not count
+ * them, leave it off. The questions are walked in id ranges of "quora.answer-count.repair.batch-size", each
+ * range counted and corrected in its own transaction with its questions locked, so that no answer committing
+ * meanwhile is lost or counted twice. Only one instance runs a pass at a time: the pass holds a PostgreSQL
+ * advisory lock on a connection of its own, and the instances which do not get it skip the pass.
+ */
+@Component
+@ConditionalOnProperty(name = "quora.answer-count.repair.enabled", havingValue = "true")
+public class AnswerCountRepairJob {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AnswerCountRepairJob.class);
+
+    //Key of the advisory lock of the pass, shared by all the instances
+    private static final long LOCK_KEY = 0x71756f7261726570L;
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Autowired
+    private QuestionFeedCache questionFeedCache;
+
+    @Autowired
+    private CollectionVersions collectionVersions;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${quora.answer-count.repair.batch-size:1000}")
+    private int batchSize;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Counter repairedQuestions;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        repairedQuestions = Counter.builder("quora.answer-count.repaired").register(meterRegistry);
+    }
+
+    /**
+     * Runs one pass over all the questions, unless another instance is running one.
+     */
+    @Scheduled(fixedDelayString = "${quora.answer-count.repair.interval-ms:3600000}",
+            initialDelayString = "${quora.answer-count.repair.initial-delay-ms:300000}")
+    public void repair() throws SQLException {
+        //The lock is held by the session, on a connection kept apart from the transactions of the batches
+        try (Connection lockConnection = dataSource.getConnection()) {
+            if (!advisoryLock(lockConnection, "select pg_try_advisory_lock(?)")) {
+                LOGGER.info("Answer count repair is running on another instance, skipping this pass");
+                return;
+            }
+            try {
+                repairAll();
+            } finally {
+                advisoryLock(lockConnection, "select pg_advisory_unlock(?)");
+            }
+        }
+    }
+
+    private void repairAll() {
+        final Integer maxId = transactionTemplate.execute(status -> questionDao.getMaxQuestionId());
+        if (maxId == null) {
+            return;
+        }
+        int repaired = 0;
+        for (int after = 0; after < maxId; after += batchSize) {
+            final int from = after;
+            final int upto = (int) Math.min((long) after + batchSize, maxId);
+            repaired += transactionTemplate.execute(status -> questionDao.repairAnswerCounts(from, upto));
+        }
+        if (repaired > 0) {
+            repairedQuestions.increment(repaired);
+            LOGGER.warn("Corrected the answer count of {} questions", repaired);
+            //The listings showed the counts as they were, none of their versions may be served as current
+            questionFeedCache.invalidate();
+            collectionVersions.invalidateAll();
+            questionFeedCache.reload();
+        }
+    }
+
+    private static boolean advisoryLock(final Connection connection, final String sql) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, LOCK_KEY);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getBoolean(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.upgrad.quora.service.job;
+
+import com.upgrad.quora.service.dao.UserAuthDao;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.time.YearMonth;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Removes the sessions of user_auth which expired more than "quora.auth.reaper.retention-hours" ago, so that the
+ * table read on every authorized request does not grow with every sign-in forever. Rows are deleted in bounded
+ * batches, each in its own transaction, to keep locks and WAL per statement small. Signed-out sessions are only
+ * removed once they have expired as well, since the revocation filter is rebuilt from them. The same goes for the
+ * revoked_token tombstones of the sessions of deleted users.
+ * When user_auth is range partitioned by login_at (see sql/partition in quora-db) and
+ * "quora.auth.reaper.partitioned" is set, the partitions of the upcoming months are created ahead of time and
+ * partitions holding only reapable sessions are dropped as a whole.
+ */
+@Component
+@ConditionalOnProperty(name = "quora.auth.reaper.enabled", havingValue = "true")
+public class SessionReaper {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SessionReaper.class);
+
+    @Autowired
+    private UserAuthDao userAuthDao;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${quora.auth.reaper.retention-hours:24}")
+    private long retentionHours;
+
+    @Value("${quora.auth.reaper.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${quora.auth.reaper.max-batches:100}")
+    private int maxBatches;
+
+    @Value("${quora.auth.reaper.partitioned:false}")
+    private boolean partitioned;
+
+    @Value("${quora.auth.reaper.partitions-ahead:2}")
+    private int partitionsAhead;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Counter deletedRows;
+
+    private Counter droppedRows;
+
+    private Counter droppedPartitions;
+
+    //Last sampled size of each user_auth partition, read by the partition gauges
+    private final Map<String, Long> partitionBytes = new ConcurrentHashMap<>();
+
+    private final Map<String, Long> partitionRows = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        deletedRows = Counter.builder("quora.auth.reaper.rows").tag("method", "delete").register(meterRegistry);
+        droppedRows = Counter.builder("quora.auth.reaper.rows").tag("method", "drop").register(meterRegistry);
+        droppedPartitions = Counter.builder("quora.auth.reaper.partitions.dropped").register(meterRegistry);
+    }
+
+    /**
+     * Runs one reaping pass: partition maintenance if enabled, then at most "max-batches" delete batches.
+     */
+    @Scheduled(fixedDelayString = "${quora.auth.reaper.interval-ms:60000}",
+            initialDelayString = "${quora.auth.reaper.initial-delay-ms:60000}")
+    public void reap() {
+        final ZonedDateTime cutoff = ZonedDateTime.now().minusHours(retentionHours);
+        if (partitioned) {
+            maintainPartitions(cutoff);
+        }
+        int batches = 0;
+        int deleted;
+        do {
+            deleted = transactionTemplate.execute(status -> userAuthDao.deleteExpiredSessions(cutoff, batchSize));
+            deletedRows.increment(deleted);
+        } while (deleted == batchSize && ++batches < maxBatches);
+        batches = 0;
+        do {
+            deleted = transactionTemplate.execute(status -> userAuthDao.deleteExpiredTombstones(cutoff, batchSize));
+            deletedRows.increment(deleted);
+        } while (deleted == batchSize && ++batches < maxBatches);
+        sampleSizes();
+    }
+
+    private void maintainPartitions(final ZonedDateTime cutoff) {
+        final YearMonth current = YearMonth.from(ZonedDateTime.now());
+        for (int i = 0; i <= partitionsAhead; i++) {
+            final YearMonth month = current.plusMonths(i);
+            transactionTemplate.execute(status -> {
+                userAuthDao.createSessionPartition(month);
+                return null;
+            });
+        }
+        final YearMonth cutoffMonth = YearMonth.from(cutoff);
+        for (final Object[] partition : transactionTemplate.execute(status -> userAuthDao.getSessionPartitions())) {
+            final YearMonth month = UserAuthDao.partitionMonth((String) partition[0]);
+            //Only whole months logged in before the cutoff, still checked for sessions expiring after it
+            if (month == null || !month.isBefore(cutoffMonth)) {
+                continue;
+            }
+            final boolean dropped = transactionTemplate.execute(status -> {
+                if (userAuthDao.hasSessionsExpiringAfter(month, cutoff)) {
+                    return false;
+                }
+                userAuthDao.dropSessionPartition(month);
+                return true;
+            });
+            if (dropped) {
+                droppedPartitions.increment();
+                droppedRows.increment(Math.max(0, ((Number) partition[2]).doubleValue()));
+                partitionBytes.remove(partition[0]);
+                partitionRows.remove(partition[0]);
+                LOGGER.info("Dropped session partition {}", partition[0]);
+            }
+        }
+    }
+
+    private void sampleSizes() {
+        final List<Object[]> partitions = transactionTemplate.execute(status -> userAuthDao.getSessionPartitions());
+        for (final Object[] partition : partitions) {
+            final String name = (String) partition[0];
+            if (!partitionBytes.containsKey(name)) {
+                Gauge.builder("quora.auth.session.partition.size", partitionBytes, m -> m.getOrDefault(name, 0L))
+                        .tag("partition", name).baseUnit("bytes").register(meterRegistry);
+                Gauge.builder("quora.auth.session.partition.rows", partitionRows, m -> m.getOrDefault(name, 0L))
+                        .tag("partition", name).register(meterRegistry);
+            }
+            partitionBytes.put(name, ((Number) partition[1]).longValue());
+            //reltuples is an estimate, -1 or 0 until the partition has been analyzed
+            partitionRows.put(name, Math.max(0L, ((Number) partition[2]).longValue()));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.upgrad.quora.service.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every call of a public method of the DAOs in com.upgrad.quora.service.dao as "quora.dao", tagged with the
+ * DAO, the method and the outcome: "success", or the simple name of the exception the call ended with. The DAOs
+ * throw no custom exceptions, the error codes are tagged on the controller times. Calls of a DAO from within
+ * itself are not proxied and count as part of the calling method.
+ */
+@Aspect
+@Component
+public class DaoTimingAspect {
+
+    public static final String SUCCESS = "success";
+
+    private final MeterRegistry meterRegistry;
+
+    public DaoTimingAspect(final MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("within(com.upgrad.quora.service.dao..*) && execution(public * *(..))")
+    public Object time(final ProceedingJoinPoint joinPoint) throws Throwable {
+        final long startedAt = System.nanoTime();
+        String outcome = SUCCESS;
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            outcome = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            Timer.builder("quora.dao")
+                    .tags("dao", joinPoint.getSignature().getDeclaringType().getSimpleName(),
+                            "method", joinPoint.getSignature().getName(), "outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.upgrad.quora.service.projection;
+
+/**
+ * Read-only view of an answer with the content of its question, selected by a JPQL constructor expression.
+ */
+public final class AnswerSummary {
+
+    private final Integer id;
+
+    private final String uuid;
+
+    private final String answer;
+
+    private final String questionContent;
+
+    private final Integer version;
+
+    public AnswerSummary(final Integer id, final String uuid, final String answer, final String questionContent,
+                         final Integer version) {
+        this.id = id;
+        this.uuid = uuid;
+        this.answer = answer;
+        this.questionContent = questionContent;
+        this.version = version;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public String getAnswer() {
+        return answer;
+    }
+
+    public String getQuestionContent() {
+        return questionContent;
+    }
+
+    public Integer getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,56 @@
+package com.upgrad.quora.service.projection;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Read-only view of a question for the listings, selected by a JPQL constructor expression. Not an entity, so
+ * it is neither managed nor snapshotted by the persistence context.
+ */
+public final class QuestionSummary {
+
+    private final Integer id;
+
+    private final String uuid;
+
+    private final String content;
+
+    private final ZonedDateTime date;
+
+    private final Integer answerCount;
+
+    private final Integer version;
+
+    public QuestionSummary(final Integer id, final String uuid, final String content, final ZonedDateTime date,
+                           final Integer answerCount, final Integer version) {
+        this.id = id;
+        this.uuid = uuid;
+        this.content = content;
+        this.date = date;
+        this.answerCount = answerCount;
+        this.version = version;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public ZonedDateTime getDate() {
+        return date;
+    }
+
+    public Integer getAnswerCount() {
+        return answerCount;
+    }
+
+    public Integer getVersion() {
+        return version;
+    }
+}
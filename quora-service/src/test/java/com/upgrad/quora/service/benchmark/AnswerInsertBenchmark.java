@@ -0,0 +1,110 @@
+package com.upgrad.quora.service.benchmark;
+
+import com.upgrad.quora.service.entity.AnswerEntity;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to insert 100k answers through Hibernate in one transaction, flushing every 50.
+ * "unbatched" sends one INSERT per answer, the round trips the IDENTITY ids cost before; "batched" uses JDBC
+ * batches of 50 with ordered inserts, as configured in application.yaml, and "rewritten" additionally lets the
+ * driver turn each batch into one multi-row INSERT (reWriteBatchedInserts). Needs the database set up by the
+ * quora-db module and migrated to pooled sequences, see BenchmarkDatabase.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+public class AnswerInsertBenchmark {
+
+    private static final int ANSWERS = 100000;
+
+    private static final int FLUSH_SIZE = 50;
+
+    @Param({"unbatched", "batched", "rewritten"})
+    private String mode;
+
+    private DriverManagerDataSource dataSource;
+
+    private LocalContainerEntityManagerFactoryBean factoryBean;
+
+    private EntityManagerFactory entityManagerFactory;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final Properties connectionProperties = new Properties();
+        connectionProperties.setProperty("reWriteBatchedInserts", String.valueOf("rewritten".equals(mode)));
+        dataSource = BenchmarkDatabase.dataSource(connectionProperties);
+        final Map<String, Object> jpaProperties = new HashMap<>();
+        jpaProperties.put("hibernate.jdbc.batch_size", "unbatched".equals(mode) ? "0" : String.valueOf(FLUSH_SIZE));
+        jpaProperties.put("hibernate.order_inserts", "true");
+        factoryBean = BenchmarkDatabase.entityManagerFactory(dataSource, jpaProperties);
+        entityManagerFactory = factoryBean.getObject();
+    }
+
+    @TearDown(Level.Iteration)
+    public void removeAnswers() {
+        new JdbcTemplate(dataSource).update("delete from answer where uuid like 'benchmark_insert_%'");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        factoryBean.destroy();
+    }
+
+    @Benchmark
+    public int insertAnswers() {
+        final EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            //User and question of quora_test.sql
+            final UserEntity user = entityManager.getReference(UserEntity.class, 1026);
+            final QuestionEntity question = entityManager.getReference(QuestionEntity.class, 1024);
+            final ZonedDateTime now = ZonedDateTime.now();
+            for (int i = 0; i < ANSWERS; i++) {
+                final AnswerEntity answer = new AnswerEntity();
+                answer.setUuid("benchmark_insert_" + i);
+                answer.setAnswer("benchmark answer");
+                answer.setDate(now);
+                answer.setUser(user);
+                answer.setQuestion(question);
+                entityManager.persist(answer);
+                if ((i + 1) % FLUSH_SIZE == 0) {
+                    entityManager.flush();
+                    //The user and question references only provide the foreign keys, detaching them is harmless
+                    entityManager.clear();
+                }
+            }
+            entityManager.getTransaction().commit();
+            return ANSWERS;
+        } finally {
+            entityManager.close();
+        }
+    }
+}
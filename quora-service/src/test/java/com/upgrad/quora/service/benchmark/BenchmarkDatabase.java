@@ -0,0 +1,46 @@
+package com.upgrad.quora.service.benchmark;
+
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Connection to the database set up by the quora-db module for the database backed benchmarks, given by
+ * -Dquora.benchmark.url, -Dquora.benchmark.username and -Dquora.benchmark.password (defaults as in
+ * application.yaml), and the entity manager factory of the service entities on top of it.
+ */
+final class BenchmarkDatabase {
+
+    private BenchmarkDatabase() {
+    }
+
+    static DriverManagerDataSource dataSource(final Properties connectionProperties) {
+        final DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                System.getProperty("quora.benchmark.url", "jdbc:postgresql://localhost:5432/quora"),
+                System.getProperty("quora.benchmark.username", "postgres"),
+                System.getProperty("quora.benchmark.password", "password"));
+        dataSource.setConnectionProperties(connectionProperties);
+        return dataSource;
+    }
+
+    /**
+     * @param jpaProperties Hibernate properties on top of the ones of application.yaml needed to map the entities
+     * @return initialized factory bean, to be destroyed after the benchmark
+     */
+    static LocalContainerEntityManagerFactoryBean entityManagerFactory(final DriverManagerDataSource dataSource,
+                                                                       final Map<String, Object> jpaProperties) {
+        final LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setPackagesToScan("com.upgrad.quora.service.entity");
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.getJpaPropertyMap().put("hibernate.dialect", "org.hibernate.dialect.PostgreSQL9Dialect");
+        factoryBean.getJpaPropertyMap().put("hibernate.temp.use_jdbc_metadata_defaults", "false");
+        factoryBean.getJpaPropertyMap().put("hibernate.id.optimizer.pooled.preferred", "pooled-lo");
+        factoryBean.getJpaPropertyMap().putAll(jpaProperties);
+        factoryBean.afterPropertiesSet();
+        return factoryBean;
+    }
+}
@@ -0,0 +1,144 @@
+package com.upgrad.quora.service.benchmark;
+
+import com.upgrad.quora.service.entity.AnswerEntity;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time and SQL statements of the entity lookups of a request: the user by uuid and by id, the question by uuid
+ * and the answer by uuid with its question, as done by the user profile, edit and delete endpoints.
+ * "query" looks them up with JPQL queries and no second-level cache, as before; "cached" uses the natural id and
+ * id lookups of the DAOs with the second-level cache of ehcache.xml. The "statements" and "requests" counters give
+ * the statements per request. Needs the database set up by the quora-db module, see BenchmarkDatabase.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class EntityLookupBenchmark {
+
+    //Records of quora_test.sql
+    private static final String USER_UUID = "database_uuid1";
+
+    private static final Integer USER_ID = 1026;
+
+    private static final String QUESTION_UUID = "database_question_uuid";
+
+    private static final String ANSWER_UUID = "database_answer_uuid";
+
+    @Param({"query", "cached"})
+    private String mode;
+
+    private LocalContainerEntityManagerFactoryBean factoryBean;
+
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    /**
+     * Statements sent to the DB and requests run during the iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+
+        public long statements;
+
+        public long requests;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            statements = 0;
+            requests = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws URISyntaxException {
+        final DriverManagerDataSource dataSource = BenchmarkDatabase.dataSource(new Properties());
+        final Map<String, Object> jpaProperties = new HashMap<>();
+        jpaProperties.put("hibernate.generate_statistics", "true");
+        if ("cached".equals(mode)) {
+            jpaProperties.put("hibernate.cache.use_second_level_cache", "true");
+            jpaProperties.put("hibernate.cache.region.factory_class", "org.hibernate.cache.jcache.JCacheRegionFactory");
+            jpaProperties.put("hibernate.javax.cache.provider", "org.ehcache.jsr107.EhcacheCachingProvider");
+            jpaProperties.put("hibernate.javax.cache.uri", getClass().getResource("/ehcache.xml").toURI().toString());
+        } else {
+            jpaProperties.put("hibernate.cache.use_second_level_cache", "false");
+        }
+        factoryBean = BenchmarkDatabase.entityManagerFactory(dataSource, jpaProperties);
+        entityManagerFactory = factoryBean.getObject();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        factoryBean.destroy();
+    }
+
+    @Benchmark
+    public String lookups(final Counters counters) {
+        final long before = statistics.getPrepareStatementCount();
+        final EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            final String uuid = "cached".equals(mode) ? cachedLookups(entityManager) : queryLookups(entityManager);
+            counters.statements += statistics.getPrepareStatementCount() - before;
+            counters.requests++;
+            return uuid;
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    private static String queryLookups(final EntityManager entityManager) {
+        entityManager.createQuery("select u from UserEntity u where u.uuid = :uuid", UserEntity.class)
+                .setParameter("uuid", USER_UUID).getSingleResult();
+        entityManager.createQuery("select u from UserEntity u where u.id = :id", UserEntity.class)
+                .setParameter("id", USER_ID).getSingleResult();
+        entityManager.createQuery("select q from QuestionEntity q where q.uuid = :uuid", QuestionEntity.class)
+                .setParameter("uuid", QUESTION_UUID).getSingleResult();
+        return entityManager.createQuery("select a from AnswerEntity a join fetch a.question where a.uuid = :uuid",
+                AnswerEntity.class).setParameter("uuid", ANSWER_UUID).getSingleResult().getQuestion().getUuid();
+    }
+
+    //The persistence context is cleared between the lookups, only the second-level cache may spare the statements
+    private static String cachedLookups(final EntityManager entityManager) {
+        final Session session = entityManager.unwrap(Session.class);
+        session.bySimpleNaturalId(UserEntity.class).load(USER_UUID);
+        entityManager.clear();
+        entityManager.find(UserEntity.class, USER_ID);
+        entityManager.clear();
+        session.bySimpleNaturalId(QuestionEntity.class).load(QUESTION_UUID);
+        entityManager.clear();
+        return session.bySimpleNaturalId(AnswerEntity.class).load(ANSWER_UUID).getQuestion().getUuid();
+    }
+}
@@ -0,0 +1,35 @@
+package com.upgrad.quora.service.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Password hashing as PasswordCryptographyProvider did it before the PasswordHasher implementations: a new
+ * SecureRandom and a SecretKeyFactory lookup on every call, 1000 iterations and a 64 bit key.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LegacyPasswordHashingBenchmark {
+
+    @Benchmark
+    public byte[] hash() throws Exception {
+        final byte[] salt = new byte[32];
+        new SecureRandom().nextBytes(salt);
+        final SecretKeyFactory skf = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA512");
+        final PBEKeySpec spec = new PBEKeySpec("benchmark-password".toCharArray(), salt, 1000, 64);
+        return skf.generateSecret(spec).getEncoded();
+    }
+}
@@ -0,0 +1,124 @@
+package com.upgrad.quora.service.benchmark;
+
+import com.upgrad.quora.service.entity.AnswerEntity;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import com.upgrad.quora.service.projection.AnswerSummary;
+import com.upgrad.quora.service.projection.QuestionSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency and, with -prof gc, allocation of the list endpoint queries: managed entities against the read-only
+ * projections. Needs the database set up by the quora-db module, see BenchmarkDatabase.
+ * Questions and answers are seeded on setup and removed on teardown.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ListingReadBenchmark {
+
+    private static final int SEEDED_ROWS = 1000;
+
+    //Question of quora_test.sql the answers are seeded for
+    private static final String QUESTION_UUID = "database_question_uuid";
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    private DriverManagerDataSource dataSource;
+
+    private LocalContainerEntityManagerFactoryBean factoryBean;
+
+    private EntityManagerFactory entityManagerFactory;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        dataSource = BenchmarkDatabase.dataSource(new Properties());
+        factoryBean = BenchmarkDatabase.entityManagerFactory(dataSource, Collections.emptyMap());
+        entityManagerFactory = factoryBean.getObject();
+
+        final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("insert into question (uuid,content,date,user_id) select 'benchmark_question_' || i, " +
+                "'benchmark question', now(), 1025 + i % 5 from generate_series(1, ?) i", SEEDED_ROWS);
+        jdbcTemplate.update("insert into answer (uuid,ans,date,user_id,question_id) select 'benchmark_answer_' || i, " +
+                "'benchmark answer', now(), 1025 + i % 5, (select id from question where uuid = ?) " +
+                "from generate_series(1, ?) i", QUESTION_UUID, pageSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("delete from answer where uuid like 'benchmark_answer_%'");
+        jdbcTemplate.update("delete from question where uuid like 'benchmark_question_%'");
+        factoryBean.destroy();
+    }
+
+    @Benchmark
+    public List<QuestionEntity> questionEntities() {
+        final EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            return entityManager.createQuery("select q from QuestionEntity q order by q.date desc, q.id desc",
+                    QuestionEntity.class).setMaxResults(pageSize).getResultList();
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    @Benchmark
+    public List<QuestionSummary> questionProjections() {
+        final EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            return entityManager.createNamedQuery("getQuestionsFirstPage", QuestionSummary.class)
+                    .setMaxResults(pageSize).getResultList();
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    @Benchmark
+    public List<AnswerEntity> answerEntities() {
+        final EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            return entityManager.createQuery("select a from AnswerEntity a join fetch a.question q " +
+                    "where q.uuid = :uuid order by a.id", AnswerEntity.class)
+                    .setParameter("uuid", QUESTION_UUID).setMaxResults(pageSize).getResultList();
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    @Benchmark
+    public List<AnswerSummary> answerProjections() {
+        final EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            return entityManager.createNamedQuery("getAnswersByQuestionUuidFirstPage", AnswerSummary.class)
+                    .setParameter("uuid", QUESTION_UUID).setMaxResults(pageSize).getResultList();
+        } finally {
+            entityManager.close();
+        }
+    }
+}
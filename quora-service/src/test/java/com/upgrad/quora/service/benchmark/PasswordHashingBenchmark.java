@@ -0,0 +1,58 @@
+package com.upgrad.quora.service.benchmark;
+
+import com.upgrad.quora.service.crypto.BCryptPasswordHasher;
+import com.upgrad.quora.service.crypto.PasswordHasher;
+import com.upgrad.quora.service.crypto.Pbkdf2PasswordHasher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time and allocation per password hash of the PasswordHasher implementations at a few costs. Compare
+ * pbkdf2-sha512:1000 with LegacyPasswordHashingBenchmark for the effect of the cached SecretKeyFactory.
+ * Run with the "benchmark" profile, the gc profiler reports the allocation as gc.alloc.rate.norm in bytes per op.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PasswordHashingBenchmark {
+
+    //algorithm:cost, pbkdf2-sha512:1000 matches the cost of the hashes stored before the hashers
+    @Param({"pbkdf2-sha512:1000", "pbkdf2-sha512:210000", "bcrypt:10", "bcrypt:12"})
+    public String hasher;
+
+    private PasswordHasher passwordHasher;
+
+    private int cost;
+
+    private byte[] salt;
+
+    @Setup
+    public void setUp() {
+        final String[] algorithmAndCost = hasher.split(":");
+        passwordHasher = Pbkdf2PasswordHasher.ALGORITHM.equals(algorithmAndCost[0])
+                ? new Pbkdf2PasswordHasher() : new BCryptPasswordHasher();
+        cost = Integer.parseInt(algorithmAndCost[1]);
+        salt = new byte[32];
+        new SecureRandom().nextBytes(salt);
+    }
+
+    @Benchmark
+    public String hash() {
+        return passwordHasher.hash("benchmark-password", salt, cost);
+    }
+}
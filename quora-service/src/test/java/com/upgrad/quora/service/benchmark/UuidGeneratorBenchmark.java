@@ -0,0 +1,42 @@
+package com.upgrad.quora.service.benchmark;
+
+import com.upgrad.quora.service.business.UuidGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a new uuid from UuidGenerator against UUID.randomUUID, which draws from one shared SecureRandom,
+ * with several threads generating at once as request threads do.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class UuidGeneratorBenchmark {
+
+    private final UuidGenerator uuidGenerator = new UuidGenerator();
+
+    @Benchmark
+    public UUID timeOrdered() {
+        return uuidGenerator.next();
+    }
+
+    @Benchmark
+    public UUID random() {
+        return UUID.randomUUID();
+    }
+}
@@ -0,0 +1,69 @@
+package com.upgrad.quora.service.business;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.upgrad.quora.service.common.UnexpectedException;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.Base64;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+//Signs and verifies tokens with key rings as configured in "quora.jwt.keys" without a DB.
+public class JwtTokenProviderTest {
+
+    private static final String OLD_KEY = "2018-01:" + secret("old_signing_key");
+
+    private static final String NEW_KEY = "2018-07:" + secret("new_signing_key");
+
+    //This test case passes when tokens signed before a rotation stay valid as long as their key is in the ring.
+    @Test
+    public void tokenOfRotatedKeyIsVerifiedByItsKeyId() {
+        final String token = newToken(new JwtTokenProvider(OLD_KEY, "2018-01", 5), ZonedDateTime.now().plusHours(8));
+
+        final JwtTokenProvider rotated = new JwtTokenProvider(OLD_KEY + "," + NEW_KEY, "2018-07", 5);
+        final DecodedJWT jwt = rotated.verify(token);
+        assertNotNull(jwt);
+        assertEquals("2018-01", jwt.getKeyId());
+        assertEquals("database_uuid1", jwt.getAudience().get(0));
+        assertEquals(1026, (int) jwt.getClaim(JwtTokenProvider.USER_ID_CLAIM).asInt());
+        assertEquals("2018-07", rotated.verify(newToken(rotated, ZonedDateTime.now().plusHours(8))).getKeyId());
+
+        assertNull(new JwtTokenProvider(NEW_KEY, "2018-07", 5).verify(token));
+    }
+
+    //This test case passes when a token signed with another secret under a known key id is rejected.
+    @Test
+    public void forgedTokenIsRejected() {
+        final String forged = newToken(new JwtTokenProvider("2018-07:" + secret("guessed_key"), "2018-07", 5),
+                ZonedDateTime.now().plusHours(8));
+        assertNull(new JwtTokenProvider(NEW_KEY, "2018-07", 5).verify(forged));
+        assertNull(new JwtTokenProvider(NEW_KEY, "2018-07", 5).verify("database_accesstoken1"));
+    }
+
+    //This test case passes when a token expired for less than the leeway is still accepted and rejected without it.
+    @Test
+    public void expiryIsCheckedWithLeeway() {
+        final String token = newToken(new JwtTokenProvider(NEW_KEY, "2018-07", 5), ZonedDateTime.now().minusSeconds(2));
+        assertNotNull(new JwtTokenProvider(NEW_KEY, "2018-07", 5).verify(token));
+        assertNull(new JwtTokenProvider(NEW_KEY, "2018-07", 0).verify(token));
+    }
+
+    //This test case passes when the application refuses to start with an active key id missing from the ring.
+    @Test(expected = UnexpectedException.class)
+    public void activeKeyMustBeInRing() {
+        new JwtTokenProvider(OLD_KEY, "2018-07", 5);
+    }
+
+    private static String newToken(final JwtTokenProvider provider, final ZonedDateTime expiresAt) {
+        return provider.generateToken("session_uuid", "database_uuid1", 1026, "nonadmin",
+                expiresAt.minusHours(8), expiresAt);
+    }
+
+    private static String secret(final String value) {
+        return Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
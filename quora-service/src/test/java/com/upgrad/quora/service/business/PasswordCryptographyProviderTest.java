@@ -0,0 +1,177 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.crypto.BCryptPasswordHasher;
+import com.upgrad.quora.service.crypto.Pbkdf2PasswordHasher;
+import com.upgrad.quora.service.dao.UserAuthDao;
+import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.datasource.ReadYourWrites;
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+//Verifies and upgrades stored password hashes without a DB, the sign-in writes go to DAO stubs.
+public class PasswordCryptographyProviderTest {
+
+    private static final String SALT = Base64.getEncoder().encodeToString("database_salt".getBytes());
+
+    //This test case passes when a hash stored before the algorithm was recorded still matches and is marked for rehashing.
+    @Test
+    public void legacyHashMatchesAndNeedsRehash() throws Exception {
+        final PasswordCryptographyProvider provider = newProvider(Pbkdf2PasswordHasher.ALGORITHM, 10000);
+        final String legacyHash = legacyHash("database_password");
+        assertTrue(provider.matches("database_password", SALT, legacyHash));
+        assertFalse(provider.matches("wrong_password", SALT, legacyHash));
+        assertTrue(provider.needsRehash(legacyHash));
+
+        final String[] rehashed = provider.encrypt("database_password");
+        assertTrue(rehashed[1].startsWith(Pbkdf2PasswordHasher.ALGORITHM + ":10000:256:"));
+        assertTrue(provider.matches("database_password", rehashed[0], rehashed[1]));
+        assertFalse(provider.needsRehash(rehashed[1]));
+    }
+
+    //This test case passes when hashes below an explicit cost or of another algorithm are rehashed and still match.
+    @Test
+    public void hashesOfLowerCostOrOtherAlgorithmNeedRehash() {
+        final String[] cheap = newProvider(Pbkdf2PasswordHasher.ALGORITHM, 10000).encrypt("database_password");
+        final PasswordCryptographyProvider provider = newProvider(Pbkdf2PasswordHasher.ALGORITHM, 20000);
+        assertTrue(provider.matches("database_password", cheap[0], cheap[1]));
+        assertTrue(provider.needsRehash(cheap[1]));
+        assertFalse(provider.needsRehash(provider.encrypt("database_password")[1]));
+
+        final PasswordCryptographyProvider bcrypt = newProvider(BCryptPasswordHasher.ALGORITHM, 10);
+        assertTrue(bcrypt.matches("database_password", cheap[0], cheap[1]));
+        assertTrue(bcrypt.needsRehash(cheap[1]));
+        assertTrue(bcrypt.encrypt("database_password")[1].startsWith(BCryptPasswordHasher.ALGORITHM + ":"));
+    }
+
+    //This test case passes when a hash at three quarters of the calibrated cost is kept, so a restart does not outdate every hash.
+    @Test
+    public void calibratedCostToleratesCalibrationNoise() {
+        final PasswordCryptographyProvider provider = newProvider(Pbkdf2PasswordHasher.ALGORITHM, 0);
+        final int activeCost = (Integer) ReflectionTestUtils.getField(provider, "activeCost");
+        assertEquals(0, activeCost % 10000);
+        final int toleratedCost = Math.max(10000, activeCost / 4 * 3);
+        final String stored = Pbkdf2PasswordHasher.ALGORITHM + ":"
+                + new Pbkdf2PasswordHasher().hash("database_password", Base64.getDecoder().decode(SALT), toleratedCost);
+        assertTrue(provider.matches("database_password", SALT, stored));
+        assertFalse(provider.needsRehash(stored));
+    }
+
+    //This test case passes when signing in with a legacy hash replaces it in the transaction of the new session.
+    @Test
+    public void signinUpgradesLegacyHash() throws Exception {
+        final UserEntity user = new UserEntity();
+        user.setId(1026);
+        user.setUuid("database_uuid1");
+        user.setUserName("database_username1");
+        user.setRole("nonadmin");
+        user.setSalt(SALT);
+        user.setPassword(legacyHash("database_password"));
+        final String[][] updatedPassword = new String[1][];
+
+        final UserBusinessService userBusinessService = new UserBusinessService();
+        ReflectionTestUtils.setField(userBusinessService, "userDao", new UserDao() {
+            @Override
+            public UserEntity getUserByUserName(final String userName) {
+                return user.getUserName().equals(userName) ? user : null;
+            }
+
+            @Override
+            public int updatePassword(final UserEntity userEntity, final String salt, final String password) {
+                updatedPassword[0] = new String[]{salt, password};
+                return 1;
+            }
+        });
+        ReflectionTestUtils.setField(userBusinessService, "userAuthDao", new UserAuthDao() {
+            @Override
+            public UserAuthEntity createUserAuth(final UserAuthEntity userAuthEntity) {
+                return userAuthEntity;
+            }
+        });
+        final PasswordCryptographyProvider provider = newProvider(Pbkdf2PasswordHasher.ALGORITHM, 10000);
+        ReflectionTestUtils.setField(userBusinessService, "passwordCryptographyProvider", provider);
+        ReflectionTestUtils.setField(userBusinessService, "passwordHashingExecutor", newHashingExecutor());
+        ReflectionTestUtils.setField(userBusinessService, "jwtTokenProvider", new JwtTokenProvider("", "", 5));
+        ReflectionTestUtils.setField(userBusinessService, "uuidGenerator", new UuidGenerator());
+        final ReadYourWrites readYourWrites = new ReadYourWrites();
+        ReflectionTestUtils.setField(readYourWrites, "windowMs", 5000L);
+        ReflectionTestUtils.setField(userBusinessService, "readYourWrites", readYourWrites);
+        ReflectionTestUtils.setField(userBusinessService, "transactionManager", new AbstractPlatformTransactionManager() {
+            @Override
+            protected Object doGetTransaction() {
+                return new Object();
+            }
+
+            @Override
+            protected void doBegin(final Object transaction, final TransactionDefinition definition) {
+            }
+
+            @Override
+            protected void doCommit(final DefaultTransactionStatus status) {
+            }
+
+            @Override
+            protected void doRollback(final DefaultTransactionStatus status) {
+            }
+        });
+        userBusinessService.init();
+
+        final UserAuthEntity session = userBusinessService.authenticate("database_username1", "database_password")
+                .get(30, TimeUnit.SECONDS);
+        assertNotNull(session.getAccessToken());
+        assertNotNull(updatedPassword[0]);
+        assertTrue(provider.matches("database_password", updatedPassword[0][0], updatedPassword[0][1]));
+        assertFalse(provider.needsRehash(updatedPassword[0][1]));
+        assertTrue(readYourWrites.isPinned(1026));
+    }
+
+    /**
+     * @return hash as stored before the algorithm was recorded: upper-case hex of PBKDF2WithHmacSHA512 with 1000
+     * iterations and a 64 bit key
+     */
+    private static String legacyHash(final String password) throws Exception {
+        final PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), Base64.getDecoder().decode(SALT), 1000, 64);
+        final byte[] hash = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA512").generateSecret(spec).getEncoded();
+        final StringBuilder hex = new StringBuilder();
+        for (final byte b : hash) {
+            hex.append(String.format("%02X", b));
+        }
+        return hex.toString();
+    }
+
+    private static PasswordCryptographyProvider newProvider(final String algorithm, final int cost) {
+        final PasswordCryptographyProvider provider = new PasswordCryptographyProvider();
+        ReflectionTestUtils.setField(provider, "hashers",
+                Arrays.asList(new Pbkdf2PasswordHasher(), new BCryptPasswordHasher()));
+        ReflectionTestUtils.setField(provider, "algorithm", algorithm);
+        ReflectionTestUtils.setField(provider, "cost", cost);
+        ReflectionTestUtils.setField(provider, "targetMillis", 20L);
+        provider.init();
+        return provider;
+    }
+
+    private static PasswordHashingExecutor newHashingExecutor() {
+        final PasswordHashingExecutor executor = new PasswordHashingExecutor();
+        ReflectionTestUtils.setField(executor, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(executor, "threads", 1);
+        ReflectionTestUtils.setField(executor, "queueCapacity", 1);
+        executor.init();
+        return executor;
+    }
+}
@@ -0,0 +1,70 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.exception.ServiceBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+//Saturates a hashing pool of one thread and one queue slot with hashes blocked on a latch.
+public class PasswordHashingExecutorTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private PasswordHashingExecutor executor;
+
+    @After
+    public void shutdown() {
+        release.countDown();
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    //This test case passes when a hash submitted to a busy pool with a full queue is rejected with GEN-002 right away, and the queued ones still complete.
+    @Test
+    public void saturatedPoolRejectsRightAway() throws Exception {
+        executor = newExecutor(1, 1);
+        final CompletableFuture<String> running = executor.submit(this::blockedHash);
+        final CompletableFuture<String> queued = executor.submit(this::blockedHash);
+        try {
+            executor.submit(this::blockedHash);
+            fail("Hash was accepted by a saturated pool");
+        } catch (ServiceBusyException e) {
+            assertEquals("GEN-002", e.getCode());
+        }
+        assertEquals(1.0, meterRegistry.find("quora.auth.password.hash.rejected").counter().count(), 0.0);
+
+        release.countDown();
+        assertEquals("hash", running.get(10, TimeUnit.SECONDS));
+        assertEquals("hash", queued.get(10, TimeUnit.SECONDS));
+        assertEquals("hash", executor.submit(() -> "hash").get(10, TimeUnit.SECONDS));
+    }
+
+    private String blockedHash() {
+        try {
+            release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "hash";
+    }
+
+    private PasswordHashingExecutor newExecutor(final int threads, final int queueCapacity) {
+        final PasswordHashingExecutor hashingExecutor = new PasswordHashingExecutor();
+        ReflectionTestUtils.setField(hashingExecutor, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(hashingExecutor, "threads", threads);
+        ReflectionTestUtils.setField(hashingExecutor, "queueCapacity", queueCapacity);
+        hashingExecutor.init();
+        return hashingExecutor;
+    }
+}
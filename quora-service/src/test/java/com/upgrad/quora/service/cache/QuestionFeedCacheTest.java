@@ -0,0 +1,302 @@
+package com.upgrad.quora.service.cache;
+
+import com.upgrad.quora.service.common.KeysetCursor;
+import com.upgrad.quora.service.projection.QuestionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+//Interleaves creates, edits and deletes with readers paging through the feed, without a DB: the snapshot is
+//published directly and the changes are applied immediately as there is no transaction.
+public class QuestionFeedCacheTest {
+
+    private static final ZonedDateTime BASE_DATE = ZonedDateTime.of(2018, 1, 1, 0, 0, 0, 0, ZoneId.of("UTC"));
+
+    private static final int WRITERS = 4;
+
+    private static final int READERS = 4;
+
+    private static final int WRITES_PER_WRITER = 2000;
+
+    private static final int PAGE_SIZE = 7;
+
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    //This test case passes when every page read during concurrent writes is ordered and the final feed holds exactly the surviving questions.
+    @Test
+    public void completeFeedStaysConsistentUnderConcurrentWrites() throws Exception {
+        final Map<Integer, QuestionSummary> questions = new ConcurrentHashMap<>();
+        final QuestionFeedCache cache = loadedCache(100000, 100, questions);
+        runConcurrently(cache, questions);
+        assertEquals(uuidsOf(sorted(questions.values())), uuidsOf(walk(cache, PAGE_SIZE, new ArrayList<>())));
+    }
+
+    //This test case passes when a snapshot holding only the newest questions stays a prefix of the feed under concurrent writes.
+    @Test
+    public void partialFeedStaysPrefixUnderConcurrentWrites() throws Exception {
+        final Map<Integer, QuestionSummary> questions = new ConcurrentHashMap<>();
+        final QuestionFeedCache cache = loadedCache(500, 1000, questions);
+        runConcurrently(cache, questions);
+        final List<QuestionSummary> walked = walk(cache, PAGE_SIZE, new ArrayList<>());
+        final List<QuestionSummary> expected = sorted(questions.values());
+        assertTrue(walked.size() <= 500);
+        assertEquals(uuidsOf(expected.subList(0, walked.size())), uuidsOf(walked));
+    }
+
+    //This test case passes when a question created and deleted in quick succession stays deleted whatever the order of the commit callbacks.
+    @Test
+    public void lateCreateDoesNotResurrectDeletedQuestion() {
+        final QuestionFeedCache cache = loadedCache(1000, 10, new ConcurrentHashMap<>());
+        final QuestionSummary question = newQuestion(BASE_DATE.plusDays(1));
+        cache.removed(question.getId());
+        cache.added(question);
+        assertFalse(uuidsOf(walk(cache, PAGE_SIZE, new ArrayList<>())).contains(question.getUuid()));
+    }
+
+    //This test case passes when answer count changes are added to the count of the question in the snapshot.
+    @Test
+    public void answerCountChangesAreApplied() {
+        final QuestionFeedCache cache = loadedCache(1000, 10, new ConcurrentHashMap<>());
+        final QuestionSummary question = newQuestion(BASE_DATE.plusDays(1));
+        cache.added(question);
+        cache.answersChanged(question.getUuid(), 3);
+        cache.answersChanged(question.getUuid(), -1);
+        assertEquals(Integer.valueOf(2), cache.getQuestionsPage(null, 1).get(0).getAnswerCount());
+    }
+
+    //This test case passes when an edit increases the version of the snapshot, whatever the version of the question.
+    @Test
+    public void editIncreasesSnapshotVersion() {
+        final QuestionFeedCache cache = loadedCache(1000, 10, new ConcurrentHashMap<>());
+        final QuestionSummary question = newQuestion(BASE_DATE.plusDays(1));
+        cache.added(question);
+        cache.answersChanged(question.getUuid(), 1);
+        cache.answersChanged(question.getUuid(), 1);
+        final long version = cache.getVersion();
+        cache.edited(question.getId(), "edited", 1);
+        assertEquals(version + 1, cache.getVersion());
+        assertEquals("edited", cache.getQuestionsPage(null, 1).get(0).getContent());
+    }
+
+    //This test case passes when the creates, edits and deletes committed while a reload runs are replayed on top of it.
+    @Test
+    public void changesRacingWithReloadAreReplayed() {
+        final QuestionFeedCache cache = loadedCache(1000, 0, new ConcurrentHashMap<>());
+        final QuestionSummary kept = newQuestion(BASE_DATE.plusDays(1));
+        final QuestionSummary deleted = newQuestion(BASE_DATE.plusDays(2));
+        cache.startReload();
+        final List<QuestionSummary> loaded = sorted(Arrays.asList(kept, deleted));
+        final long stamp = cache.stamp();
+        final QuestionSummary created = newQuestion(BASE_DATE.plusDays(3));
+        cache.added(created);
+        cache.edited(kept.getId(), "edited", 1);
+        cache.removed(deleted.getId());
+        final long version = cache.getVersion();
+        assertTrue(cache.publish(loaded, stamp, false));
+        assertTrue(cache.getVersion() > version);
+        final List<QuestionSummary> feed = walk(cache, PAGE_SIZE, new ArrayList<>());
+        assertEquals(Arrays.asList(created.getUuid(), kept.getUuid()), uuidsOf(feed));
+        assertEquals("edited", feed.get(1).getContent());
+    }
+
+    //This test case passes when an answer count delta registered after the load is applied on top of the reload.
+    @Test
+    public void deltaAfterLoadIsReplayed() {
+        final QuestionFeedCache cache = loadedCache(1000, 0, new ConcurrentHashMap<>());
+        final QuestionSummary question = newQuestion(BASE_DATE.plusDays(1));
+        cache.startReload();
+        final long stamp = cache.stamp();
+        cache.answersChanged(question.getUuid(), 1);
+        assertTrue(cache.publish(Collections.singletonList(question), stamp, false));
+        assertEquals(Integer.valueOf(1), cache.getQuestionsPage(null, 1).get(0).getAnswerCount());
+    }
+
+    //This test case passes when a reload which an answer count delta overlapped is retried, and published without the delta when forced.
+    @Test
+    public void deltaOverlappingLoadIsNotAppliedTwice() {
+        final QuestionFeedCache cache = loadedCache(1000, 0, new ConcurrentHashMap<>());
+        final QuestionSummary question = newQuestion(BASE_DATE.plusDays(1));
+        cache.startReload();
+        //Committed while the rows were read, which already count the answer
+        cache.answersChanged(question.getUuid(), 1);
+        final QuestionSummary loaded = new QuestionSummary(question.getId(), question.getUuid(),
+                question.getContent(), question.getDate(), 1, question.getVersion());
+        final long stamp = cache.stamp();
+        assertFalse(cache.publish(Collections.singletonList(loaded), stamp, false));
+        assertTrue(cache.publish(Collections.singletonList(loaded), stamp, true));
+        assertEquals(Integer.valueOf(1), cache.getQuestionsPage(null, 1).get(0).getAnswerCount());
+    }
+
+    //This test case passes when pages running past the end of a partial snapshot are left to the DB.
+    @Test
+    public void pageBeyondPartialSnapshotIsNotServed() {
+        final QuestionFeedCache cache = loadedCache(10, 20, new ConcurrentHashMap<>());
+        final List<QuestionSummary> first = cache.getQuestionsPage(null, 6);
+        assertEquals(6, first.size());
+        final QuestionSummary last = first.get(5);
+        assertNull(cache.getQuestionsPage(new KeysetCursor(last.getDate(), last.getId()), 6));
+    }
+
+    private QuestionFeedCache loadedCache(final int snapshotSize, final int initialQuestions,
+                                          final Map<Integer, QuestionSummary> questions) {
+        final QuestionFeedCache cache = new QuestionFeedCache();
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "snapshotSize", snapshotSize);
+        cache.init();
+        for (int i = 0; i < initialQuestions; i++) {
+            final QuestionSummary question = newQuestion(randomDate());
+            questions.put(question.getId(), question);
+        }
+        final List<QuestionSummary> newest = sorted(questions.values());
+        cache.startReload();
+        assertTrue(cache.publish(newest.subList(0, Math.min(newest.size(), snapshotSize + 1)), cache.stamp(),
+                false));
+        return cache;
+    }
+
+    private void runConcurrently(final QuestionFeedCache cache, final Map<Integer, QuestionSummary> questions)
+            throws InterruptedException {
+        final Queue<String> failures = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            writers.add(new Thread(() -> {
+                awaitQuietly(start);
+                final List<QuestionSummary> own = new ArrayList<>();
+                for (int i = 0; i < WRITES_PER_WRITER; i++) {
+                    final int operation = ThreadLocalRandom.current().nextInt(4);
+                    if (operation < 2 || own.isEmpty()) {
+                        final QuestionSummary question = newQuestion(randomDate());
+                        questions.put(question.getId(), question);
+                        cache.added(question);
+                        own.add(question);
+                    } else if (operation == 2) {
+                        final QuestionSummary question = own.get(ThreadLocalRandom.current().nextInt(own.size()));
+                        final QuestionSummary edited = new QuestionSummary(question.getId(), question.getUuid(),
+                                "edited " + i, question.getDate(), question.getAnswerCount(),
+                                question.getVersion() + 1);
+                        questions.put(edited.getId(), edited);
+                        cache.edited(edited.getId(), edited.getContent(), edited.getVersion());
+                        own.set(own.indexOf(question), edited);
+                    } else {
+                        final QuestionSummary question = own.remove(ThreadLocalRandom.current().nextInt(own.size()));
+                        questions.remove(question.getId());
+                        cache.removed(question.getId());
+                    }
+                }
+            }));
+        }
+        final List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < READERS; r++) {
+            readers.add(new Thread(() -> {
+                awaitQuietly(start);
+                long version = cache.getVersion();
+                while (writing.get()) {
+                    walk(cache, PAGE_SIZE, failures);
+                    final long current = cache.getVersion();
+                    if (current < version) {
+                        failures.add("version went back from " + version + " to " + current);
+                    }
+                    version = current;
+                }
+            }));
+        }
+        writers.forEach(Thread::start);
+        readers.forEach(Thread::start);
+        start.countDown();
+        for (final Thread writer : writers) {
+            writer.join();
+        }
+        writing.set(false);
+        for (final Thread reader : readers) {
+            reader.join();
+        }
+        assertTrue(String.valueOf(failures.peek()), failures.isEmpty());
+        //Edited contents must have been applied as well
+        for (final QuestionSummary question : walk(cache, PAGE_SIZE, new ArrayList<>())) {
+            assertEquals(questions.get(question.getId()).getContent(), question.getContent());
+        }
+    }
+
+    /**
+     * Pages through the feed while the snapshot may be replaced between the pages, recording pages which are not
+     * strictly in feed order or do not continue after the cursor.
+     */
+    private static List<QuestionSummary> walk(final QuestionFeedCache cache, final int pageSize,
+                                              final Collection<String> failures) {
+        final List<QuestionSummary> walked = new ArrayList<>();
+        QuestionSummary previous = null;
+        while (true) {
+            final List<QuestionSummary> page = cache.getQuestionsPage(
+                    previous == null ? null : new KeysetCursor(previous.getDate(), previous.getId()), pageSize);
+            if (page == null) {
+                return walked;
+            }
+            for (final QuestionSummary question : page) {
+                if (previous != null && QuestionFeedCache.FEED_ORDER.compare(previous, question) >= 0) {
+                    failures.add("question " + question.getId() + " is not after question " + previous.getId());
+                }
+                walked.add(question);
+                previous = question;
+            }
+            if (page.size() < pageSize) {
+                return walked;
+            }
+        }
+    }
+
+    private QuestionSummary newQuestion(final ZonedDateTime date) {
+        final int id = nextId.incrementAndGet();
+        return new QuestionSummary(id, "feed_question_" + id, "content " + id, date, 0, 0);
+    }
+
+    private static ZonedDateTime randomDate() {
+        //Coarse dates so that questions share a date and the id breaks the tie
+        return BASE_DATE.plusMinutes(ThreadLocalRandom.current().nextInt(100000));
+    }
+
+    private static List<QuestionSummary> sorted(final Collection<QuestionSummary> questions) {
+        final List<QuestionSummary> sorted = new ArrayList<>(questions);
+        sorted.sort(QuestionFeedCache.FEED_ORDER);
+        return sorted;
+    }
+
+    private static List<String> uuidsOf(final List<QuestionSummary> questions) {
+        final List<String> uuids = new ArrayList<>();
+        for (final QuestionSummary question : questions) {
+            uuids.add(question.getUuid());
+        }
+        return uuids;
+    }
+
+    private static void awaitQuietly(final CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.upgrad.quora.service.cache;
+
+import com.upgrad.quora.service.dao.UserAuthDao;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+//Runs the revocation filter without a DB: the revoked sessions are kept in a list read by UserAuthDao.getRevokedSessions.
+public class TokenRevocationFilterTest {
+
+    //Revoked sessions as read by UserAuthDao.getRevokedSessions, [uuid, expiresAt]
+    private final List<Object[]> revokedInDb = new CopyOnWriteArrayList<>();
+
+    //This test case passes when exactly the revoked sessions are reported, also with many more revocations than expected.
+    @Test
+    public void onlyRevokedSessionsAreReported() {
+        final TokenRevocationFilter filter = newFilter(64);
+        final ZonedDateTime expiresAt = ZonedDateTime.now().plusHours(8);
+        for (int i = 0; i < 1000; i++) {
+            filter.revoke("revoked_uuid_" + i, expiresAt);
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(filter.isRevoked("revoked_uuid_" + i));
+            assertFalse(filter.isRevoked("live_uuid_" + i));
+        }
+        assertFalse(filter.isRevoked(null));
+    }
+
+    //This test case passes when expired sessions are dropped by prune while the others stay revoked.
+    @Test
+    public void pruneDropsExpiredSessions() throws Exception {
+        final TokenRevocationFilter filter = newFilter(1000);
+        filter.revoke("expiring_uuid", ZonedDateTime.now().plusNanos(100000000L));
+        filter.revoke("revoked_uuid", ZonedDateTime.now().plusHours(8));
+        Thread.sleep(200);
+        filter.prune();
+        assertFalse(filter.isRevoked("expiring_uuid"));
+        assertTrue(filter.isRevoked("revoked_uuid"));
+    }
+
+    //This test case passes when rebuild loads the unexpired sessions of the DB and keeps the ones revoked locally.
+    @Test
+    public void rebuildLoadsFromDatabaseAndKeepsLocalRevocations() {
+        final TokenRevocationFilter filter = newFilter(1000);
+        filter.revoke("local_uuid", ZonedDateTime.now().plusHours(8));
+        revokedInDb.add(new Object[]{"database_uuid", ZonedDateTime.now().plusHours(8)});
+        revokedInDb.add(new Object[]{"expired_uuid", ZonedDateTime.now().minusHours(1)});
+        filter.rebuild();
+        assertTrue(filter.isRevoked("local_uuid"));
+        assertTrue(filter.isRevoked("database_uuid"));
+        assertFalse(filter.isRevoked("expired_uuid"));
+    }
+
+    //This test case passes when refresh picks up the sessions revoked in the DB after the rebuild.
+    @Test
+    public void refreshPicksUpNewRevocations() {
+        final TokenRevocationFilter filter = newFilter(1000);
+        revokedInDb.add(new Object[]{"other_instance_uuid", ZonedDateTime.now().plusHours(8)});
+        assertFalse(filter.isRevoked("other_instance_uuid"));
+        filter.refresh();
+        assertTrue(filter.isRevoked("other_instance_uuid"));
+    }
+
+    private TokenRevocationFilter newFilter(final int expectedRevocations) {
+        final TokenRevocationFilter filter = new TokenRevocationFilter();
+        ReflectionTestUtils.setField(filter, "userAuthDao", new UserAuthDao() {
+            @Override
+            public List<Object[]> getRevokedSessions(final ZonedDateTime since, final ZonedDateTime now) {
+                return new ArrayList<>(revokedInDb);
+            }
+        });
+        ReflectionTestUtils.setField(filter, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(filter, "expectedRevocations", expectedRevocations);
+        ReflectionTestUtils.setField(filter, "refreshOverlapSeconds", 60L);
+        filter.init();
+        filter.rebuild();
+        return filter;
+    }
+}
@@ -0,0 +1,141 @@
+package com.upgrad.quora.service.cache;
+
+import com.upgrad.quora.service.dao.UserAuthDao;
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+//Runs the session caches of two instances side by side without a DB: the sessions revoked in the shared DB are
+//kept in a list read by the revocation filters of both instances.
+public class UserAuthCacheTest {
+
+    private static final String TOKEN = "access_token";
+
+    //Revoked sessions as read by UserAuthDao.getRevokedSessions, [uuid, expiresAt]
+    private final List<Object[]> revokedInDb = new CopyOnWriteArrayList<>();
+
+    @After
+    public void endTransaction() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clear();
+        }
+    }
+
+    //This test case passes when a signed-out session is dropped at once and again when the sign-out commits, after a concurrent request cached it as read before the commit.
+    @Test
+    public void signOutInvalidatesCachedSession() {
+        final UserAuthCache cache = newCache(newFilter());
+        final UserAuthEntity session = newSession(ZonedDateTime.now().plusHours(8));
+        cache.put(TOKEN, session, cache.stamp());
+        TransactionSynchronizationManager.initSynchronization();
+        cache.invalidate(TOKEN);
+        assertNull(cache.get(TOKEN));
+        cache.put(TOKEN, session, cache.stamp());
+        assertNotNull(cache.get(TOKEN));
+        for (final TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+        TransactionSynchronizationManager.clear();
+        assertNull(cache.get(TOKEN));
+    }
+
+    //This test case passes when a session is served from the cache until its expires_at only, however long the TTL, and an expired one is not cached.
+    @Test
+    public void entryDoesNotOutliveSessionExpiry() throws Exception {
+        final UserAuthCache cache = newCache(newFilter());
+        cache.put(TOKEN, newSession(ZonedDateTime.now().plusNanos(200000000L)), cache.stamp());
+        assertNotNull(cache.get(TOKEN));
+        Thread.sleep(300);
+        assertNull(cache.get(TOKEN));
+        cache.put(TOKEN, newSession(ZonedDateTime.now().minusSeconds(1)), cache.stamp());
+        assertNull(cache.get(TOKEN));
+    }
+
+    //This test case passes when a session loaded before an invalidation is not cached, as it may hold the state from before the sign-out.
+    @Test
+    public void loadRacingWithInvalidationIsNotCached() {
+        final UserAuthCache cache = newCache(newFilter());
+        final long stamp = cache.stamp();
+        cache.invalidate(TOKEN);
+        cache.put(TOKEN, newSession(ZonedDateTime.now().plusHours(8)), stamp);
+        assertNull(cache.get(TOKEN));
+        cache.put(TOKEN, newSession(ZonedDateTime.now().plusHours(8)), cache.stamp());
+        assertNotNull(cache.get(TOKEN));
+    }
+
+    //This test case passes when instance B stops serving its cached session once A has signed it out and B has refreshed its revocation filter.
+    @Test
+    public void sessionSignedOutOnOtherInstanceIsRejected() {
+        final TokenRevocationFilter filterA = newFilter();
+        final UserAuthCache cacheA = newCache(filterA);
+        final TokenRevocationFilter filterB = newFilter();
+        final UserAuthCache cacheB = newCache(filterB);
+        final UserAuthEntity session = newSession(ZonedDateTime.now().plusHours(8));
+        cacheA.put(TOKEN, session, cacheA.stamp());
+        cacheB.put(TOKEN, session, cacheB.stamp());
+        assertNotNull(cacheB.get(TOKEN));
+
+        //Sign-out handled by instance A
+        cacheA.invalidate(TOKEN);
+        filterA.revoke(session.getUuid(), session.getExpiresAt());
+        revokedInDb.add(new Object[]{session.getUuid(), session.getExpiresAt()});
+        assertNull(cacheA.get(TOKEN));
+
+        filterB.refresh();
+        assertNull(cacheB.get(TOKEN));
+    }
+
+    private TokenRevocationFilter newFilter() {
+        final TokenRevocationFilter filter = new TokenRevocationFilter();
+        ReflectionTestUtils.setField(filter, "userAuthDao", new UserAuthDao() {
+            @Override
+            public List<Object[]> getRevokedSessions(final ZonedDateTime since, final ZonedDateTime now) {
+                return new ArrayList<>(revokedInDb);
+            }
+        });
+        ReflectionTestUtils.setField(filter, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(filter, "expectedRevocations", 1000);
+        ReflectionTestUtils.setField(filter, "refreshOverlapSeconds", 60L);
+        filter.init();
+        filter.rebuild();
+        return filter;
+    }
+
+    private static UserAuthCache newCache(final TokenRevocationFilter filter) {
+        final UserAuthCache cache = new UserAuthCache();
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "tokenRevocationFilter", filter);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxSize", 100);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 300L);
+        cache.registerMetrics();
+        return cache;
+    }
+
+    private static UserAuthEntity newSession(final ZonedDateTime expiresAt) {
+        final UserEntity user = new UserEntity();
+        user.setId(1026);
+        user.setUuid("database_uuid1");
+        final UserAuthEntity session = new UserAuthEntity();
+        session.setId(1);
+        session.setUuid("session_uuid");
+        session.setUser(user);
+        session.setAccessToken(TOKEN);
+        session.setLoginAt(ZonedDateTime.now());
+        session.setExpiresAt(expiresAt);
+        return session;
+    }
+}
@@ -0,0 +1,56 @@
+package com.upgrad.quora.service.common;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+//Checks the digests user_auth is looked up by without a DB, against the ones quora_test.sql computes with pgcrypto.
+public class AccessTokenDigestTest {
+
+    private static final String ADMIN_TOKEN_HASH = "25e589b545fec1a8b8c99b8c43792fccce5add504862dac31e220c2ee97f56f5";
+
+    private static final String USER_TOKEN_HASH = "ed5e89f467d7b102339a0462eb8777df77b444a9b8c660e44041f1914d51654a";
+
+    //This test case passes when the digest matches encode(digest(access_token, 'sha256'), 'hex') of the DB.
+    @Test
+    public void digestMatchesDatabase() {
+        assertEquals(ADMIN_TOKEN_HASH, AccessTokenDigest.sha256Hex("database_accesstoken"));
+        assertEquals(USER_TOKEN_HASH, AccessTokenDigest.sha256Hex("database_accesstoken1"));
+        assertEquals(64, AccessTokenDigest.sha256Hex("").length());
+        assertNull(AccessTokenDigest.sha256Hex(null));
+    }
+
+    //This test case passes when request threads digesting tokens at the same time do not corrupt each other's digest.
+    @Test
+    public void digestIsThreadSafe() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                final boolean admin = i % 2 == 0;
+                results.add(executor.submit(() -> {
+                    for (int j = 0; j < 10000; j++) {
+                        final String hash = AccessTokenDigest.sha256Hex(admin ? "database_accesstoken" : "database_accesstoken1");
+                        if (!hash.equals(admin ? ADMIN_TOKEN_HASH : USER_TOKEN_HASH)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (final Future<Boolean> result : results) {
+                assertEquals(true, result.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.upgrad.quora.service.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+//Takes connections from stand-in pools, without a DB.
+public class AcquireTimingDataSourceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @After
+    public void closeRequest() {
+        RoutingContext.close();
+    }
+
+    //This test case passes when every connection taken is timed with the pool and the controller method of the request.
+    @Test
+    public void acquireIsTimedPerHandler() throws Exception {
+        final AcquireTimingDataSource dataSource = new AcquireTimingDataSource("replica", pool(false), meterRegistry);
+        RoutingContext.open("QuestionController.getAllQuestions");
+        dataSource.getConnection();
+        dataSource.getConnection();
+        RoutingContext.close();
+        dataSource.getConnection();
+        assertEquals(2, count("QuestionController.getAllQuestions", "acquired"));
+        assertEquals(1, count(RoutingContext.NO_HANDLER, "acquired"));
+    }
+
+    //This test case passes when a connection taken on a thread the request handed its work to, e.g. by the export or sign-in, is timed with the controller method of the request.
+    @Test
+    public void acquireOnHandedOverThreadIsTimedPerHandler() throws Exception {
+        final AcquireTimingDataSource dataSource = new AcquireTimingDataSource("replica", pool(false), meterRegistry);
+        RoutingContext.open("QuestionController.exportQuestions");
+        final Thread worker = new Thread(RoutingContext.propagate(() -> {
+            try {
+                dataSource.getConnection();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+        worker.start();
+        worker.join();
+        assertEquals(1, count("QuestionController.exportQuestions", "acquired"));
+    }
+
+    //This test case passes when a connection which could not be taken, e.g. on a pool timeout, is timed as failed.
+    @Test
+    public void failedAcquireIsTimed() {
+        final AcquireTimingDataSource dataSource = new AcquireTimingDataSource("replica", pool(true), meterRegistry);
+        RoutingContext.open("AnswerController.getAllAnswersToQuestion");
+        try {
+            dataSource.getConnection();
+            fail("the pool timeout must be passed on");
+        } catch (SQLException e) {
+            assertEquals(1, count("AnswerController.getAllAnswersToQuestion", "failed"));
+        }
+    }
+
+    private long count(final String handler, final String outcome) {
+        return meterRegistry.get("quora.datasource.acquire").tags("pool", "replica", "handler", handler,
+                "outcome", outcome).timer().count();
+    }
+
+    //Pool handing out no actual connection, or timing out
+    private static AbstractDataSource pool(final boolean timeout) {
+        return new AbstractDataSource() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                if (timeout) {
+                    throw new SQLTransientConnectionException("Connection is not available, request timed out");
+                }
+                return null;
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return getConnection();
+            }
+        };
+    }
+}
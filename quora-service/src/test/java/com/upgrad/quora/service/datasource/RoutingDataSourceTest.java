@@ -0,0 +1,166 @@
+package com.upgrad.quora.service.datasource;
+
+import com.upgrad.quora.service.cache.CollectionVersions;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+//Routes connections inside transactions simulated with the TransactionSynchronizationManager, without a DB.
+public class RoutingDataSourceTest {
+
+    private static final Integer WRITER = 1026;
+
+    private static final Integer OTHER_USER = 1027;
+
+    private ReadYourWrites readYourWrites;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private RoutingDataSource routingDataSource;
+
+    @Before
+    public void openRequest() {
+        readYourWrites = new ReadYourWrites();
+        ReflectionTestUtils.setField(readYourWrites, "windowMs", 60000L);
+        meterRegistry = new SimpleMeterRegistry();
+        routingDataSource = new RoutingDataSource(readYourWrites, true, meterRegistry);
+        RoutingContext.open("QuestionController.getAllQuestions");
+    }
+
+    @After
+    public void closeRequest() {
+        RoutingContext.close();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clear();
+        }
+    }
+
+    //This test case passes when read-only transactions are served by the replica and all other connections by the primary.
+    @Test
+    public void readOnlyTransactionsGoToReplica() {
+        assertEquals(RoutingDataSource.PRIMARY, routingDataSource.determineCurrentLookupKey());
+        begin(true);
+        assertEquals(RoutingDataSource.REPLICA, routingDataSource.determineCurrentLookupKey());
+        TransactionSynchronizationManager.clear();
+        begin(false);
+        assertEquals(RoutingDataSource.PRIMARY, routingDataSource.determineCurrentLookupKey());
+        assertEquals(Arrays.asList(RoutingDataSource.PRIMARY, RoutingDataSource.REPLICA),
+                Arrays.asList(RoutingContext.servedBy().toArray()));
+        assertEquals(1.0, meterRegistry.get("quora.datasource.connections").tag("pool", "replica").counter().count(),
+                0.0);
+    }
+
+    //This test case passes when the reads of a user who committed a write stay on the primary, while those of other users do not.
+    @Test
+    public void readsFollowingOwnWriteGoToPrimary() {
+        RoutingContext.bindUser(WRITER);
+        begin(false);
+        routingDataSource.determineCurrentLookupKey();
+        commit();
+        begin(true);
+        assertEquals(RoutingDataSource.PRIMARY, routingDataSource.determineCurrentLookupKey());
+        TransactionSynchronizationManager.clear();
+        RoutingContext.bindUser(OTHER_USER);
+        begin(true);
+        assertEquals(RoutingDataSource.REPLICA, routingDataSource.determineCurrentLookupKey());
+    }
+
+    //This test case passes when a rolled back write does not pin the reads of its user to the primary.
+    @Test
+    public void rolledBackWriteDoesNotPin() {
+        RoutingContext.bindUser(WRITER);
+        begin(false);
+        routingDataSource.determineCurrentLookupKey();
+        TransactionSynchronizationManager.clear();
+        begin(true);
+        assertEquals(RoutingDataSource.REPLICA, routingDataSource.determineCurrentLookupKey());
+    }
+
+    //This test case passes when the reads go back to the replica once the read-your-writes window has passed.
+    @Test
+    public void pinExpiresAfterWindow() throws Exception {
+        ReflectionTestUtils.setField(readYourWrites, "windowMs", 1L);
+        RoutingContext.bindUser(WRITER);
+        begin(false);
+        routingDataSource.determineCurrentLookupKey();
+        commit();
+        Thread.sleep(5);
+        readYourWrites.prune();
+        begin(true);
+        assertEquals(RoutingDataSource.REPLICA, routingDataSource.determineCurrentLookupKey());
+    }
+
+    //This test case passes when a write made on another thread for the request pins its user and is reported as served for the request.
+    @Test
+    public void workHandedToOtherThreadRunsInRequestContext() throws Exception {
+        RoutingContext.bindUser(WRITER);
+        final Thread worker = new Thread(RoutingContext.propagate(() -> {
+            begin(false);
+            routingDataSource.determineCurrentLookupKey();
+            commit();
+        }));
+        worker.start();
+        worker.join();
+        assertEquals(Arrays.asList(RoutingDataSource.PRIMARY), Arrays.asList(RoutingContext.servedBy().toArray()));
+        begin(true);
+        assertEquals(RoutingDataSource.PRIMARY, routingDataSource.determineCurrentLookupKey());
+    }
+
+    //This test case passes when the reads of a listing whose tag changed within the window go to the primary, as the replica may still serve the state before the change.
+    @Test
+    public void listingChangedWithinWindowIsReadFromPrimary() throws Exception {
+        final CollectionVersions collectionVersions = new CollectionVersions();
+        ReflectionTestUtils.setField(collectionVersions, "windowMs", 60000L);
+        collectionVersions.answersChanged("database_question_uuid");
+        collectionVersions.answersTag("other_question_uuid");
+        begin(true);
+        assertEquals(RoutingDataSource.REPLICA, routingDataSource.determineCurrentLookupKey());
+        TransactionSynchronizationManager.clear();
+        collectionVersions.answersTag("database_question_uuid");
+        begin(true);
+        assertEquals(RoutingDataSource.PRIMARY, routingDataSource.determineCurrentLookupKey());
+        TransactionSynchronizationManager.clear();
+
+        RoutingContext.close();
+        RoutingContext.open("AnswerController.getAllAnswersToQuestion");
+        ReflectionTestUtils.setField(collectionVersions, "windowMs", 1L);
+        collectionVersions.answersChanged("database_question_uuid");
+        Thread.sleep(5);
+        collectionVersions.prune();
+        collectionVersions.answersTag("database_question_uuid");
+        begin(true);
+        assertEquals(RoutingDataSource.REPLICA, routingDataSource.determineCurrentLookupKey());
+    }
+
+    //This test case passes when everything is served by the primary if there is no replica pool.
+    @Test
+    public void withoutReplicaEverythingGoesToPrimary() {
+        routingDataSource = new RoutingDataSource(readYourWrites, false, meterRegistry);
+        begin(true);
+        assertEquals(RoutingDataSource.PRIMARY, routingDataSource.determineCurrentLookupKey());
+    }
+
+    private static void begin(final boolean readOnly) {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+    }
+
+    private static void commit() {
+        final List<TransactionSynchronization> synchronizations =
+                TransactionSynchronizationManager.getSynchronizations();
+        for (final TransactionSynchronization synchronization : synchronizations) {
+            synchronization.afterCommit();
+        }
+        TransactionSynchronizationManager.clear();
+    }
+}
@@ -0,0 +1,161 @@
+package com.upgrad.quora.service.job;
+
+import com.upgrad.quora.service.dao.UserAuthDao;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.time.YearMonth;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+//Runs the reaper against a UserAuthDao stub holding row counts instead of a DB, each transaction is counted.
+public class SessionReaperTest {
+
+    private final AtomicInteger transactions = new AtomicInteger();
+
+    private final List<Integer> sessionBatches = new ArrayList<>();
+
+    private final List<Integer> tombstoneBatches = new ArrayList<>();
+
+    private final List<YearMonth> droppedPartitions = new ArrayList<>();
+
+    private final List<Object[]> partitions = new ArrayList<>();
+
+    //Partitions holding sessions which expire after the cutoff
+    private final List<YearMonth> livePartitions = new ArrayList<>();
+
+    private int expiredSessions;
+
+    private int expiredTombstones;
+
+    //This test case passes when expired sessions and tombstones are deleted in batches, one transaction each, until a batch comes back short.
+    @Test
+    public void deletesInBatchesUntilShortBatch() {
+        expiredSessions = 2500;
+        expiredTombstones = 1000;
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        newReaper(meterRegistry, 1000, 100, false).reap();
+        assertEquals(Arrays.asList(1000, 1000, 500), sessionBatches);
+        assertEquals(Arrays.asList(1000, 0), tombstoneBatches);
+        assertEquals(0, expiredSessions);
+        //One per batch and one for sampling the partition sizes
+        assertEquals(6, transactions.get());
+        assertEquals(3500.0, meterRegistry.find("quora.auth.reaper.rows").tag("method", "delete").counter().count(), 0.0);
+    }
+
+    //This test case passes when a pass stops after max-batches and leaves the rest to the next pass.
+    @Test
+    public void passStopsAfterMaxBatches() {
+        expiredSessions = 10000;
+        final SessionReaper reaper = newReaper(new SimpleMeterRegistry(), 1000, 3, false);
+        reaper.reap();
+        assertEquals(3, sessionBatches.size());
+        assertEquals(7000, expiredSessions);
+        reaper.reap();
+        assertEquals(4000, expiredSessions);
+    }
+
+    //This test case passes when only the partitions of months before the cutoff without unexpired sessions are dropped.
+    @Test
+    public void dropsOnlyPartitionsOfReapableMonths() {
+        final YearMonth current = YearMonth.now();
+        final YearMonth old = current.minusMonths(3);
+        final YearMonth live = current.minusMonths(2);
+        partitions.add(new Object[]{"user_auth_p" + old.toString().replace("-", ""), 8192L, 100.0f});
+        partitions.add(new Object[]{"user_auth_p" + live.toString().replace("-", ""), 8192L, 100.0f});
+        partitions.add(new Object[]{"user_auth_p" + current.toString().replace("-", ""), 8192L, -1.0f});
+        partitions.add(new Object[]{"user_auth_default", 8192L, 0.0f});
+        livePartitions.add(live);
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        newReaper(meterRegistry, 1000, 100, true).reap();
+        assertEquals(Arrays.asList(old), droppedPartitions);
+        assertEquals(1.0, meterRegistry.find("quora.auth.reaper.partitions.dropped").counter().count(), 0.0);
+        assertEquals(100.0, meterRegistry.find("quora.auth.reaper.rows").tag("method", "drop").counter().count(), 0.0);
+        assertNotNull(meterRegistry.find("quora.auth.session.partition.rows").tag("partition", "user_auth_p"
+                + live.toString().replace("-", "")).gauge());
+    }
+
+    private SessionReaper newReaper(final SimpleMeterRegistry meterRegistry, final int batchSize, final int maxBatches,
+                                    final boolean partitioned) {
+        final SessionReaper reaper = new SessionReaper();
+        ReflectionTestUtils.setField(reaper, "userAuthDao", new UserAuthDao() {
+            @Override
+            public int deleteExpiredSessions(final ZonedDateTime cutoff, final int batchSize) {
+                final int deleted = Math.min(expiredSessions, batchSize);
+                expiredSessions -= deleted;
+                sessionBatches.add(deleted);
+                return deleted;
+            }
+
+            @Override
+            public int deleteExpiredTombstones(final ZonedDateTime cutoff, final int batchSize) {
+                final int deleted = Math.min(expiredTombstones, batchSize);
+                expiredTombstones -= deleted;
+                tombstoneBatches.add(deleted);
+                return deleted;
+            }
+
+            @Override
+            public List<Object[]> getSessionPartitions() {
+                final List<Object[]> remaining = new ArrayList<>();
+                for (final Object[] partition : partitions) {
+                    if (!droppedPartitions.contains(UserAuthDao.partitionMonth((String) partition[0]))) {
+                        remaining.add(partition);
+                    }
+                }
+                return remaining;
+            }
+
+            @Override
+            public void createSessionPartition(final YearMonth month) {
+            }
+
+            @Override
+            public boolean hasSessionsExpiringAfter(final YearMonth month, final ZonedDateTime cutoff) {
+                return livePartitions.contains(month);
+            }
+
+            @Override
+            public void dropSessionPartition(final YearMonth month) {
+                droppedPartitions.add(month);
+            }
+        });
+        ReflectionTestUtils.setField(reaper, "transactionManager", new AbstractPlatformTransactionManager() {
+            @Override
+            protected Object doGetTransaction() {
+                return new Object();
+            }
+
+            @Override
+            protected void doBegin(final Object transaction, final TransactionDefinition definition) {
+                transactions.incrementAndGet();
+            }
+
+            @Override
+            protected void doCommit(final DefaultTransactionStatus status) {
+            }
+
+            @Override
+            protected void doRollback(final DefaultTransactionStatus status) {
+            }
+        });
+        ReflectionTestUtils.setField(reaper, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(reaper, "retentionHours", 24L);
+        ReflectionTestUtils.setField(reaper, "batchSize", batchSize);
+        ReflectionTestUtils.setField(reaper, "maxBatches", maxBatches);
+        ReflectionTestUtils.setField(reaper, "partitioned", partitioned);
+        ReflectionTestUtils.setField(reaper, "partitionsAhead", 2);
+        reaper.init();
+        return reaper;
+    }
+}
@@ -0,0 +1,66 @@
+package com.upgrad.quora.service.metrics;
+
+import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.entity.UserEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.persistence.EntityManager;
+import java.lang.reflect.Proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+//Calls a DAO over a stand-in EntityManager, without a DB.
+public class DaoTimingAspectTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    //This test case passes when every DAO call is timed with the DAO, the method and the outcome.
+    @Test
+    public void daoCallsAreTimedPerMethod() {
+        final UserDao userDao = timed(new UserDao());
+        userDao.createUser(new UserEntity());
+        userDao.createUser(new UserEntity());
+        assertEquals(2, count("createUser", DaoTimingAspect.SUCCESS));
+    }
+
+    //This test case passes when a DAO call ending with an exception is timed with the exception, which is passed on.
+    @Test
+    public void failedDaoCallIsTimedWithTheException() {
+        final UserDao userDao = timed(new UserDao());
+        try {
+            userDao.createUser(null);
+            fail("the exception of the EntityManager must be passed on");
+        } catch (IllegalArgumentException e) {
+            assertEquals(1, count("createUser", "IllegalArgumentException"));
+            assertEquals(0, meterRegistry.find("quora.dao").tags("outcome", DaoTimingAspect.SUCCESS).timers().size());
+        }
+    }
+
+    private long count(final String method, final String outcome) {
+        return meterRegistry.get("quora.dao").tags("dao", "UserDao", "method", method, "outcome", outcome).timer()
+                .count();
+    }
+
+    private UserDao timed(final UserDao userDao) {
+        ReflectionTestUtils.setField(userDao, "entityManager", entityManager());
+        final AspectJProxyFactory proxyFactory = new AspectJProxyFactory(userDao);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(new DaoTimingAspect(meterRegistry));
+        return proxyFactory.getProxy();
+    }
+
+    //EntityManager persisting nothing, and refusing null as JPA does
+    private static EntityManager entityManager() {
+        return (EntityManager) Proxy.newProxyInstance(EntityManager.class.getClassLoader(),
+                new Class<?>[]{EntityManager.class}, (proxy, method, args) -> {
+                    if ("persist".equals(method.getName()) && args[0] == null) {
+                        throw new IllegalArgumentException("null is not an entity");
+                    }
+                    return null;
+                });
+    }
+}